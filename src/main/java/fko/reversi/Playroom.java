@@ -27,6 +27,7 @@
 
 package fko.reversi;
 
+import fko.reversi.game.Board;
 import fko.reversi.game.Game;
 import fko.reversi.remote.RemoteGameRequest;
 import fko.reversi.game.ReversiColor;
@@ -982,9 +983,10 @@ public class Playroom extends ModelObservable implements Runnable {
      * @param newBoardDimension (number of rows and columns on the board)
      */
     public void setBoardDimension(int newBoardDimension) {
-        if (newBoardDimension<4 && newBoardDimension%2==0) {
+        if (newBoardDimension<4 || newBoardDimension>Board.MAX_DIM || newBoardDimension%2!=0) {
             throw new IllegalArgumentException(
-                    "Parameter newBoardDimension must be >= 6 and a multiple of 2. Was " + newBoardDimension);
+                    "Parameter newBoardDimension must be >= 4, <= " + Board.MAX_DIM
+                    + " and a multiple of 2. Was " + newBoardDimension);
         }
 
         this._boardDimension = newBoardDimension;
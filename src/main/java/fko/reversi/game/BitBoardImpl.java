@@ -0,0 +1,1010 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Reversi board for the standard dimension (8x8) which stores the position as two 64-bit bitboards,
+ * one for black and one for white stones.<br/>
+ * Legal moves and flipped stones are computed for all 8 directions at once by shifting and masking
+ * the bitboards (parallel prefix) instead of walking rays field by field as <code>BoardImpl</code> does.
+ * <p/>
+ * Bit <code>n</code> of a bitboard represents the field <code>col = n % 8, row = n / 8</code> with 0,0 as
+ * bottom left corner. This is the same order as the characters in the string representation of the board.
+ * <p/>
+ * Outside this class fields are addressed starting from 1 to board dimension<br/>
+ * Within this class fields are addressed starting with 0 to board dimension -1<br/>
+ * <p/>
+ * This board is not thread safe! It does not use any monitors so that a search thread can use it without
+ * locking. Boards which are shared between threads have to be wrapped in a <code>SynchronizedBoard</code>
+ * (see <code>BoardFactory</code>).
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public class BitBoardImpl implements Board {
+
+    /**
+     * board dimension (dim * dim) - this implementation only supports the default dimension
+     */
+    private static final int DIM = DEFAULT_DIM;
+    private static final int NUMBER_OF_FIELDS = DIM * DIM;
+    private static final int MAX_MOVE_NUMBER = NUMBER_OF_FIELDS - 4;
+
+    // -- masks to avoid wrapping around the board edges when shifting - also used by subclasses --
+    // -- bit 0 is col 1/row 1, bit 63 col 8/row 8 --
+    protected static final long NOT_A_FILE  = 0xFEFEFEFEFEFEFEFEL; // all but col 1
+    protected static final long NOT_H_FILE  = 0x7F7F7F7F7F7F7F7FL; // all but col 8
+    protected static final long INNER_FILES = NOT_A_FILE & NOT_H_FILE;
+    protected static final long A_FILE      = ~NOT_A_FILE;         // col 1
+    protected static final long H_FILE      = ~NOT_H_FILE;         // col 8
+    protected static final long RANK_1      = 0x00000000000000FFL; // row 1
+    protected static final long RANK_8      = 0xFF00000000000000L; // row 8
+
+    // -- special fields --
+    private static final long CORNERS   = 0x8100000000000081L;
+    private static final long X_SQUARES = 0x0042000000004200L;
+    private static final long C_SQUARES = 0x4281000000008142L;
+
+    /**
+     * For each field the bitmask of all surrounding fields (used for liberties)
+     */
+    protected static final long[] NEIGHBOURS = new long[NUMBER_OF_FIELDS];
+    static {
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            long b = 1L << i;
+            NEIGHBOURS[i] = ((b << 1) & NOT_A_FILE) | ((b >>> 1) & NOT_H_FILE) | (b << 8) | (b >>> 8)
+                    | ((b << 9) & NOT_A_FILE) | ((b << 7) & NOT_H_FILE)
+                    | ((b >>> 7) & NOT_A_FILE) | ((b >>> 9) & NOT_H_FILE);
+        }
+    }
+
+    /**
+     * Bitboards of the black and white stones.<br/>
+     * Due to performance reasons, subclasses are allowed to use this directly!<br/>
+     * <b>Use carefully!</b>
+     */
+    protected long _black;
+    protected long _white;
+
+    /**
+     * Memorizes the moves made on this board as packed moves (see PackedMove) --
+     * Move objects are kept for moves made with makeMove(Move) and otherwise only created on demand.
+     */
+    private final int[] _moveHistory = new int[MAX_MOVE_NUMBER];
+    private final Move[] _moveHistoryMoves = new Move[MAX_MOVE_NUMBER];
+    private int _moveHistorySize = 0;
+
+    /**
+     * Persistent history of the moves made before this board has been copied followed by the first
+     * <code>_sharedHistorySize</code> moves made on this board. It is shared with the boards copied from
+     * this board and only extended when this board is copied.
+     */
+    private MoveHistory _sharedHistory = MoveHistory.EMPTY;
+    private int _sharedHistorySize = 0;
+
+    /**
+     * ReversiColor of the next player to move
+     */
+    private ReversiColor _nextPlayerColor;
+
+    /**
+     * is true when the last and the next player are the same
+     */
+    private boolean _hasPass = false;
+
+    /**
+     * How many moves has there been so far
+     */
+    private int _lastMoveNumber = 0;
+
+    /**
+     * Bitboard of the legal moves of the next player (always up to date)
+     */
+    private long _legalMoves;
+
+    /**
+     * Incrementally updated Zobrist key of the stones on the board (without the next player)
+     */
+    private long _zobristKey = 0L;
+
+    /**
+     * Undo stack with one entry for each move made on this board since it has been created.
+     * The entries are stored in preallocated arrays so that makeMove/undoMove do not create any objects.
+     */
+    private final long[] _undoFlips = new long[MAX_MOVE_NUMBER];
+    private final long[] _undoLegalMoves = new long[MAX_MOVE_NUMBER];
+    private final ReversiColor[] _undoNextPlayerColor = new ReversiColor[MAX_MOVE_NUMBER];
+    private final boolean[] _undoHasPass = new boolean[MAX_MOVE_NUMBER];
+    private final long[] _undoZobristKey = new long[MAX_MOVE_NUMBER];
+    private int _undoSize = 0;
+
+    /**
+     * Creates a standard Reversi board with default dimensions (8x8).
+     */
+    public BitBoardImpl() {
+        _nextPlayerColor = ReversiColor.BLACK;
+        _hasPass = false;
+        initBoard();
+    }
+
+    /**
+     * Creates a new Reversi board as a exact deep copy of the given BitBoardImpl board
+     * @param oldBoard
+     */
+    public BitBoardImpl(BitBoardImpl oldBoard) {
+        _black = oldBoard._black;
+        _white = oldBoard._white;
+        _nextPlayerColor = oldBoard._nextPlayerColor;
+        // -- share lastMoves --
+        _sharedHistory = oldBoard.sharedHistory();
+        _lastMoveNumber = oldBoard._lastMoveNumber;
+        _hasPass = oldBoard._hasPass;
+        _legalMoves = oldBoard._legalMoves;
+        _zobristKey = oldBoard._zobristKey;
+    }
+
+    /**
+     * Creates a new Reversi board as a exact deep copy of the given Board board.
+     * @param oldBoard
+     * @throws IllegalArgumentException when the given board does not have the default dimension
+     */
+    public BitBoardImpl(Board oldBoard) {
+        if (oldBoard == null) {
+            throw new NullPointerException("Parameter oldBoard may not be null");
+        }
+        if (oldBoard.getDim() != DIM) {
+            throw new IllegalArgumentException(
+                    "BitBoardImpl only supports a board dimension of " + DIM + ". Was " + oldBoard.getDim());
+        }
+
+        // -- copy fields --
+        for (int col = 0; col < DIM; col++) {
+            for (int row = 0; row < DIM; row++) {
+                // we can't use the bitboards here as we do not know the implementation of the old board
+                final ReversiColor color = oldBoard.getField(col + 1, row + 1);
+                if (color.isBlack()) {
+                    _black |= bit(col, row);
+                } else if (color.isWhite()) {
+                    _white |= bit(col, row);
+                }
+            }
+        }
+
+        _nextPlayerColor = oldBoard.getNextPlayerColor();
+
+        // -- copy lastMoves --
+        _sharedHistory = MoveHistory.create(oldBoard.getMoveHistory(), DIM);
+        _lastMoveNumber = oldBoard.getLastMoveNumber();
+        _hasPass = oldBoard.hasPass();
+        updateLegalMoves();
+        initZobristKey();
+    }
+
+    /**
+     * Create start setup of game board
+     */
+    private void initBoard() {
+        _black = bit(3, 3) | bit(4, 4);
+        _white = bit(3, 4) | bit(4, 3);
+        updateLegalMoves();
+        initZobristKey();
+    }
+
+    /**
+     * Computes the Zobrist key of the stones on the board from scratch
+     */
+    private void initZobristKey() {
+        _zobristKey = 0L;
+        for (long b = _black; b != 0; b &= b - 1) {
+            _zobristKey ^= Zobrist.field(Long.numberOfTrailingZeros(b), ReversiColor.BLACK);
+        }
+        for (long w = _white; w != 0; w &= w - 1) {
+            _zobristKey ^= Zobrist.field(Long.numberOfTrailingZeros(w), ReversiColor.WHITE);
+        }
+    }
+
+    /**
+     * Returns all legal moves for the next player.<br>
+     * The legal moves are kept as a bitboard so the list is created new for every call.
+     *
+     * @return returns an unordered ArrayList of possible moves
+     */
+    public List<Move> getMoves() {
+        // If we already know that there are no more legal moves then return an empty list.
+        if (_nextPlayerColor.isNone()) {
+            return Collections.emptyList();
+        }
+        List<Move> result = new ArrayList<Move>(Long.bitCount(_legalMoves));
+        long moves = _legalMoves;
+        while (moves != 0) {
+            final int index = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            //noinspection ObjectAllocationInLoop
+            result.add(new MoveImpl((index & 7) + 1, (index >>> 3) + 1, _nextPlayerColor));
+        }
+        return result;
+    }
+
+    /**
+     * Writes all legal moves for the next player as packed moves (see PackedMove) into the given array.
+     * No objects are created.
+     *
+     * @param moves array to store the moves - the number of fields of the board is always enough
+     * @return number of moves
+     */
+    public int getMoves(int[] moves) {
+        if (_nextPlayerColor.isNone()) {
+            return 0;
+        }
+        int count = 0;
+        for (long m = _legalMoves; m != 0; m &= m - 1) {
+            moves[count++] = PackedMove.create(Long.numberOfTrailingZeros(m), _nextPlayerColor);
+        }
+        return count;
+    }
+
+    /**
+     * Checks if next player has a legal move
+     * @return returns true when the next player has a legal move
+     */
+    public boolean hasLegalMoves() {
+        return !_nextPlayerColor.isNone() && _legalMoves != 0;
+    }
+
+    /**
+     * Checks for legal move
+     * @param move
+     * @return returns true if the given move is legal on this board
+     */
+    public boolean isLegalMove(Move move) {
+        if (move == null) {
+            return false;
+        }
+
+        final int col = move.getCol() - 1;
+        final int row = move.getRow() - 1;
+        final ReversiColor color = move.getColor();
+
+        // -- stay within board
+        if (!isWithinBoard(col, row) || color.isNone()) {
+            return false;
+        }
+
+        // -- the common case - use the precomputed legal moves
+        if (color == _nextPlayerColor) {
+            return (_legalMoves & bit(col, row)) != 0;
+        }
+
+        // -- only valid move if field is empty and we flip at least one stone
+        if (((_black | _white) & bit(col, row)) != 0) {
+            return false;
+        }
+        return color.isBlack() ? flipMask(_black, _white, index(col, row)) != 0
+                               : flipMask(_white, _black, index(col, row)) != 0;
+    }
+
+    /**
+     * Returns the number of stones the given move would flip on this board.
+     * @param move
+     * @return number of flipped stones - 0 if the move is not legal on this board
+     */
+    public int flipCount(Move move) {
+        return Long.bitCount(flips(move));
+    }
+
+    /**
+     * Returns the stones the given move would flip on this board as a bitset with one element.
+     * @param move
+     * @return bitset of the flipped stones - no bit is set if the move is not legal on this board
+     */
+    public long[] flipMask(Move move) {
+        return new long[] { flips(move) };
+    }
+
+    /**
+     * Returns the number of stones the given packed move (see PackedMove) would flip on this board.
+     * No objects are created.
+     * @param move packed move
+     * @return number of flipped stones - 0 if the move is not legal on this board
+     */
+    public int flipCount(int move) {
+        return Long.bitCount(flipMask(move));
+    }
+
+    /**
+     * Returns the bitboard of the stones the given packed move (see PackedMove) would flip on this board.
+     * @param move packed move
+     * @return bitboard of the flipped stones - 0 if the move is not legal on this board
+     */
+    public long flipMask(int move) {
+        final int index = PackedMove.getIndex(move);
+        if (index >= NUMBER_OF_FIELDS || ((_black | _white) & (1L << index)) != 0) {
+            return 0L;
+        }
+        if (PackedMove.isBlack(move)) {
+            return flipMask(_black, _white, index);
+        } else if (PackedMove.getColor(move).isWhite()) {
+            return flipMask(_white, _black, index);
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the bitboard of the stones the given move would flip on this board.
+     * @return bitboard of the flipped stones - 0 if the move is not legal on this board
+     */
+    private long flips(Move move) {
+        if (move == null) {
+            return 0L;
+        }
+        final int col = move.getCol() - 1;
+        final int row = move.getRow() - 1;
+        final ReversiColor color = move.getColor();
+        if (!isWithinBoard(col, row) || ((_black | _white) & bit(col, row)) != 0) {
+            return 0L;
+        }
+        if (color.isBlack()) {
+            return flipMask(_black, _white, index(col, row));
+        } else if (color.isWhite()) {
+            return flipMask(_white, _black, index(col, row));
+        }
+        return 0L;
+    }
+
+    /**
+     * Makes move on board according to rules. It determines the next player at the end.
+     * @param move
+     */
+    public void makeMove(Move move) throws IllegalMoveException {
+        // -- assert ---
+        if (move == null) {
+            throw new NullPointerException("Error: Parameter move in BitBoardImpl.makeMove() may not be null");
+        }
+
+        final int col = move.getCol() - 1;
+        final int row = move.getRow() - 1;
+        final ReversiColor color = move.getColor();
+
+        if (!isWithinBoard(col, row) || color.isNone() || !doMove(index(col, row), color, move)) {
+            throw new IllegalMoveException("Error: BitBoardImpl.makeMove() Tried to make illegal move: " + move);
+        }
+    }
+
+    /**
+     * Makes a packed move (see PackedMove) on board according to rules. It determines the next player at the end.
+     * No objects are created.
+     * @param move packed move
+     */
+    public void makeMove(int move) throws IllegalMoveException {
+        final int index = PackedMove.getIndex(move);
+        final ReversiColor color = PackedMove.getColor(move);
+
+        if (index >= NUMBER_OF_FIELDS || color.isNone() || !doMove(index, color, null)) {
+            throw new IllegalMoveException("Error: BitBoardImpl.makeMove() Tried to make illegal move: "
+                    + PackedMove.toMove(move, DIM));
+        }
+    }
+
+    /**
+     * Makes the move if it is legal.
+     * @param index field index
+     * @param color color of the move
+     * @param move the Move object for the move history or null if the move was given as a packed move
+     * @return false if the move is not legal - the board is unchanged then
+     */
+    private boolean doMove(int index, ReversiColor color, Move move) {
+        final long field = 1L << index;
+
+        // -- legal move? - we compute the flipped stones only once and use them for the check
+        if (((_black | _white) & field) != 0) {
+            return false;
+        }
+        final long flips = color.isBlack() ? flipMask(_black, _white, index) : flipMask(_white, _black, index);
+        if (flips == 0L) {
+            return false;
+        }
+
+        // -- save undo information --
+        _undoFlips[_undoSize] = flips;
+        _undoLegalMoves[_undoSize] = _legalMoves;
+        _undoNextPlayerColor[_undoSize] = _nextPlayerColor;
+        _undoHasPass[_undoSize] = _hasPass;
+        _undoZobristKey[_undoSize] = _zobristKey;
+        _undoSize++;
+
+        // -- save last move ---
+        _moveHistory[_moveHistorySize] = PackedMove.create(index, color);
+        _moveHistoryMoves[_moveHistorySize] = move;
+        _moveHistorySize++;
+
+        // -- set field and turn stones ---
+        if (color.isBlack()) {
+            _black |= flips | field;
+            _white &= ~flips;
+        } else {
+            _white |= flips | field;
+            _black &= ~flips;
+        }
+        _zobristKey ^= Zobrist.field(index, color);
+        for (long f = flips; f != 0; f &= f - 1) {
+            _zobristKey ^= Zobrist.flip(Long.numberOfTrailingZeros(f));
+        }
+
+        // -- increase lastMoveNumber counter --
+        _lastMoveNumber++;
+
+        // -- determine next player --
+        _nextPlayerColor = color;
+        setNextPlayer();
+        return true;
+    }
+
+    /**
+     * Takes back the last move made with makeMove() and restores the board to exactly the state
+     * before this move. Only moves made on this board can be taken back - not the moves made
+     * on a board this board has been copied from.
+     *
+     * @throws IllegalStateException when there is no move to take back
+     */
+    public void undoMove() {
+        if (_undoSize == 0) {
+            throw new IllegalStateException("Error: BitBoardImpl.undoMove() There is no move to take back");
+        }
+        _undoSize--;
+
+        _moveHistorySize--;
+        final int move = _moveHistory[_moveHistorySize];
+        _moveHistoryMoves[_moveHistorySize] = null;
+        if (_sharedHistorySize > _moveHistorySize) {
+            _sharedHistory = _sharedHistory.getParent();
+            _sharedHistorySize--;
+        }
+        final long flips = _undoFlips[_undoSize];
+        final long field = 1L << PackedMove.getIndex(move);
+
+        // -- remove stone and turn stones back --
+        if (PackedMove.isBlack(move)) {
+            _black &= ~(flips | field);
+            _white |= flips;
+        } else {
+            _white &= ~(flips | field);
+            _black |= flips;
+        }
+
+        _nextPlayerColor = _undoNextPlayerColor[_undoSize];
+        _hasPass = _undoHasPass[_undoSize];
+        _legalMoves = _undoLegalMoves[_undoSize];
+        _zobristKey = _undoZobristKey[_undoSize];
+        _lastMoveNumber--;
+    }
+
+    /**
+     * Determines the next player. This method assumes that the current player has just made a move.
+     * It starts with switch the players and checking for possible moves.
+     */
+    private void setNextPlayer() {
+        // First switch the player and check if we have a legal move
+        _nextPlayerColor = _nextPlayerColor.getInverseColor();
+        updateLegalMoves();
+        if (_legalMoves == 0) {
+            // we don't have a legal move so we switch back and check if we have a pass
+            _nextPlayerColor = _nextPlayerColor.getInverseColor();
+            updateLegalMoves();
+            if (_legalMoves != 0) {
+                // We have a move so we have a pass - keep the next player
+                _hasPass = true;
+            } else {
+                // We don't have a move at all --> no more moves --> game over
+                _hasPass = false;
+                _nextPlayerColor = ReversiColor.NONE;
+            }
+        } else {
+            _hasPass = false;
+        }
+    }
+
+    /**
+     * Recalculates the bitboard of legal moves for the next player.
+     */
+    private void updateLegalMoves() {
+        if (_nextPlayerColor.isBlack()) {
+            _legalMoves = generateMoves(_black, _white);
+        } else if (_nextPlayerColor.isWhite()) {
+            _legalMoves = generateMoves(_white, _black);
+        } else {
+            _legalMoves = 0L;
+        }
+    }
+
+    /**
+     * Generates a bitboard of all legal moves for the player owning the stones in <code>own</code>.<br/>
+     * All 8 directions are checked in parallel for all fields by shifting the own stones over
+     * the opponent's stones (6 times at most as there cannot be a longer line of opponent's stones).
+     *
+     * @param own bitboard of the stones of the player to move
+     * @param opp bitboard of the stones of the opponent
+     * @return bitboard of all legal moves
+     */
+    public static long generateMoves(final long own, final long opp) {
+        final long empty = ~(own | opp);
+        final long inner = opp & INNER_FILES;
+        long moves;
+        long t;
+
+        // -- left / right --
+        t = inner & (own << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1); t |= inner & (t << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1);
+        moves = t << 1;
+        t = inner & (own >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        moves |= t >>> 1;
+
+        // -- up / down --
+        t = opp & (own << 8);
+        t |= opp & (t << 8); t |= opp & (t << 8); t |= opp & (t << 8);
+        t |= opp & (t << 8); t |= opp & (t << 8);
+        moves |= t << 8;
+        t = opp & (own >>> 8);
+        t |= opp & (t >>> 8); t |= opp & (t >>> 8); t |= opp & (t >>> 8);
+        t |= opp & (t >>> 8); t |= opp & (t >>> 8);
+        moves |= t >>> 8;
+
+        // -- diagonals --
+        t = inner & (own << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7); t |= inner & (t << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7);
+        moves |= t << 7;
+        t = inner & (own >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        moves |= t >>> 7;
+        t = inner & (own << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9); t |= inner & (t << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9);
+        moves |= t << 9;
+        t = inner & (own >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        moves |= t >>> 9;
+
+        return moves & empty;
+    }
+
+    /**
+     * Returns the bitboard of all opponent's stones which would be flipped when the player owning
+     * <code>own</code> places a stone on the given field. The field itself is not checked for being empty.
+     *
+     * @param own bitboard of the stones of the player to move
+     * @param opp bitboard of the stones of the opponent
+     * @param index index of the field (row * 8 + col)
+     * @return bitboard of the flipped stones - 0 if the move is not legal
+     */
+    public static long flipMask(final long own, final long opp, final int index) {
+        final long move = 1L << index;
+        final long inner = opp & INNER_FILES;
+        long flips = 0L;
+        long t;
+
+        // for each direction collect the line of opponent's stones next to the move
+        // and keep it if it is closed by an own stone
+        t = inner & (move << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1); t |= inner & (t << 1);
+        t |= inner & (t << 1); t |= inner & (t << 1);
+        if (((t << 1) & own) != 0) { flips |= t; }
+        t = inner & (move >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        t |= inner & (t >>> 1); t |= inner & (t >>> 1);
+        if (((t >>> 1) & own) != 0) { flips |= t; }
+        t = opp & (move << 8);
+        t |= opp & (t << 8); t |= opp & (t << 8); t |= opp & (t << 8);
+        t |= opp & (t << 8); t |= opp & (t << 8);
+        if (((t << 8) & own) != 0) { flips |= t; }
+        t = opp & (move >>> 8);
+        t |= opp & (t >>> 8); t |= opp & (t >>> 8); t |= opp & (t >>> 8);
+        t |= opp & (t >>> 8); t |= opp & (t >>> 8);
+        if (((t >>> 8) & own) != 0) { flips |= t; }
+        t = inner & (move << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7); t |= inner & (t << 7);
+        t |= inner & (t << 7); t |= inner & (t << 7);
+        if (((t << 7) & own) != 0) { flips |= t; }
+        t = inner & (move >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        t |= inner & (t >>> 7); t |= inner & (t >>> 7);
+        if (((t >>> 7) & own) != 0) { flips |= t; }
+        t = inner & (move << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9); t |= inner & (t << 9);
+        t |= inner & (t << 9); t |= inner & (t << 9);
+        if (((t << 9) & own) != 0) { flips |= t; }
+        t = inner & (move >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        t |= inner & (t >>> 9); t |= inner & (t >>> 9);
+        if (((t >>> 9) & own) != 0) { flips |= t; }
+
+        return flips;
+    }
+
+    /**
+     * Returns a bitboard approximating the stable stones of the given bitboard. A stone is regarded as
+     * stable when on each of the 4 lines through it at least one neighbour is either outside of the board
+     * or itself a stable stone of the same color. Starting from the corners this is repeated until no
+     * more stable stones are found. Does not find all possible stable stones.
+     *
+     * @param stones bitboard of the stones of one color
+     * @return bitboard of the stable stones
+     */
+    public static long stableStones(final long stones) {
+        long stable = 0L;
+        long last;
+        do {
+            last = stable;
+            final long horizontal = ((stable << 1) & NOT_A_FILE) | A_FILE | ((stable >>> 1) & NOT_H_FILE) | H_FILE;
+            final long vertical   = (stable << 8) | RANK_1 | (stable >>> 8) | RANK_8;
+            final long diagonal1  = ((stable << 9) & NOT_A_FILE) | A_FILE | RANK_1
+                                  | ((stable >>> 9) & NOT_H_FILE) | H_FILE | RANK_8;
+            final long diagonal2  = ((stable << 7) & NOT_H_FILE) | H_FILE | RANK_1
+                                  | ((stable >>> 7) & NOT_A_FILE) | A_FILE | RANK_8;
+            stable = stones & horizontal & vertical & diagonal1 & diagonal2;
+        } while (stable != last);
+        return stable;
+    }
+
+    /**
+     * Returns true if the last player is the next player --> pass
+     *
+     * @return true - if last player is next player
+     */
+    public boolean hasPass() {
+        return _hasPass;
+    }
+
+    /**
+     * Return color of next player or ReversiColor.NONE if there are no more moves.
+     * @return color of player for next move or none when there are no more moves.
+     */
+    public ReversiColor getNextPlayerColor() {
+        return _nextPlayerColor;
+    }
+
+    /**
+     * Return color of last player
+     * @return color of player from last move (-1,0,1 -- BLACK, EMPTY, WHITE)
+     */
+    public ReversiColor getLastPlayerColor() {
+        if (_moveHistorySize > 0) {
+            return PackedMove.getColor(_moveHistory[_moveHistorySize - 1]);
+        } else if (_sharedHistory.size() > 0) {
+            return PackedMove.getColor(_sharedHistory.getPackedMove());
+        } else {
+            return ReversiColor.EMPTY;
+        }
+    }
+
+    /**
+     * Return dimension of board
+     * @return returns the dimension (number of rows/columns) of the board
+     */
+    public int getDim() {
+        return DIM;
+    }
+
+    /**
+     * Checks if col, row is still within the board.<br/>
+     * <b>This is starting from 0 to dim-1 and not from 1 to dim!</b>
+     *
+     * @param col
+     * @param row
+     * @return returns true if coordinates are valid for the current board
+     */
+    public boolean isWithinBoard(int col, int row) {
+        // stay within board
+        return !(col < 0 || col >= DIM || row < 0 || row >= DIM);
+    }
+
+    /**
+     * Return color of field row, col
+     * @param col
+     * @param row
+     * @return color of given field (-1,0,1 -- BLACK, EMPTY, WHITE)
+     */
+    public ReversiColor getField(int col, int row) {
+        final long b = bit(col - 1, row - 1);
+        if ((_black & b) != 0) {
+            return ReversiColor.BLACK;
+        } else if ((_white & b) != 0) {
+            return ReversiColor.WHITE;
+        }
+        return ReversiColor.EMPTY;
+    }
+
+    /**
+     * Getter for lastMove
+     * @return returns the last move mode on this board
+     */
+    public Move getLastMove() {
+        if (_moveHistorySize == 0) {
+            return _sharedHistory.getMove(DIM);
+        }
+        return historyMove(_moveHistorySize - 1);
+    }
+
+    /**
+     * Returns the last move as a packed move (see PackedMove) without creating any objects
+     * @return the last move or PackedMove.NONE if there has been no move yet
+     */
+    public int getLastPackedMove() {
+        if (_moveHistorySize == 0) {
+            return _sharedHistory.getPackedMove();
+        }
+        return _moveHistory[_moveHistorySize - 1];
+    }
+
+    /**
+     * Getter for lastMoves
+     * @return returns the move path for this board as an unmodifiable list which is built on first access
+     */
+    public List<Move> getMoveHistory() {
+        return sharedHistory().asList(DIM);
+    }
+
+    /**
+     * Returns the persistent history of all moves on this board. The moves made on this board since the last
+     * call are appended to the shared history first. Does not change anything if no move has been made
+     * on this board since the last call.
+     */
+    private MoveHistory sharedHistory() {
+        while (_sharedHistorySize < _moveHistorySize) {
+            //noinspection ObjectAllocationInLoop
+            _sharedHistory = _sharedHistory.add(_moveHistory[_sharedHistorySize], _moveHistoryMoves[_sharedHistorySize]);
+            _sharedHistorySize++;
+        }
+        return _sharedHistory;
+    }
+
+    /**
+     * Returns the Move object of a move in the move history and creates it if the move
+     * has been made as a packed move.
+     */
+    private Move historyMove(int i) {
+        if (_moveHistoryMoves[i] == null) {
+            _moveHistoryMoves[i] = PackedMove.toMove(_moveHistory[i], DIM);
+        }
+        return _moveHistoryMoves[i];
+    }
+
+    /**
+     * Getter for the maximal possible number of moves
+     * @return returns the maximal number of move on this board
+     */
+    public int getMaxMoveNumber() {
+        return MAX_MOVE_NUMBER;
+    }
+
+    /**
+     * Returns the number of the next move
+     * @return returns the number of the next move
+     */
+    public int getNextMoveNumber() {
+        return _lastMoveNumber + 1;
+    }
+
+    /**
+     * Returns the number of move made so far
+     * @return returns the number of moves made so far
+     */
+    public int getLastMoveNumber() {
+        return _lastMoveNumber;
+    }
+
+    /**
+     * Returns number of black stones
+     * @return number of black stone
+     */
+    public int getPiecesBlack() {
+        return Long.bitCount(_black);
+    }
+
+    /**
+     * Returns number of white stones
+     * @return number of white stones
+     */
+    public int getPiecesWhite() {
+        return Long.bitCount(_white);
+    }
+
+    /**
+     * Returns the differential of number of pieces
+     * @param color
+     * @return returns the differential of number of pieces
+     */
+    public int getPiecesDiff(ReversiColor color) {
+        return color.toInt() * (Long.bitCount(_white) - Long.bitCount(_black));
+    }
+
+    /**
+     * Returns the differential of corners for a given color
+     * @param color
+     * @return returns the differential of corners for a given color
+     */
+    public int getCornerDiff(ReversiColor color) {
+        return color.toInt() * (Long.bitCount(_white & CORNERS) - Long.bitCount(_black & CORNERS));
+    }
+
+    /**
+     * Returns the differential of X-squares
+     * @param color
+     * @return returns the differential of X-squares
+     */
+    public int getXsquaresDiff(ReversiColor color) {
+        return color.toInt() * (Long.bitCount(_white & X_SQUARES) - Long.bitCount(_black & X_SQUARES));
+    }
+
+    /**
+     * Returns the differential of C-squares
+     * @param color
+     * @return returns the differential of C-squares
+     */
+    public int getCsquaresDiff(ReversiColor color) {
+        return color.toInt() * (Long.bitCount(_white & C_SQUARES) - Long.bitCount(_black & C_SQUARES));
+    }
+
+    /**
+     * Returns the difference in the mobility for the current player
+     *
+     * @return int - difference of the mobility for the next player
+     */
+    public int getMobilityDiff() {
+        if (_nextPlayerColor.isBlack()) {
+            return Long.bitCount(_legalMoves) - Long.bitCount(generateMoves(_white, _black));
+        } else if (_nextPlayerColor.isWhite()) {
+            return Long.bitCount(_legalMoves) - Long.bitCount(generateMoves(_black, _white));
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of legal moves the given color would have if it had the next move.
+     * No objects are created.
+     * @param color BLACK or WHITE
+     * @return number of legal moves for the given color (0 for NONE or EMPTY)
+     */
+    public int countMoves(ReversiColor color) {
+        if (color == _nextPlayerColor) {
+            return Long.bitCount(_legalMoves);
+        } else if (color.isBlack()) {
+            return Long.bitCount(generateMoves(_black, _white));
+        } else if (color.isWhite()) {
+            return Long.bitCount(generateMoves(_white, _black));
+        }
+        return 0;
+    }
+
+    /**
+     * Getter for a hash key for the board. The hash key is calculated based on the fields of the board
+     * and the next player. It is identical to toString().
+     *
+     * @return returns a hash key for this board
+     */
+    public String getHashKey() {
+        return toString();
+    }
+
+    /**
+     * Returns a 64-bit Zobrist key for this board based on the fields and the next player.
+     * The key for the fields is updated incrementally with each move.
+     *
+     * @return returns the Zobrist key for this board
+     */
+    public long getZobristKey() {
+        return _zobristKey ^ Zobrist.nextPlayer(_nextPlayerColor);
+    }
+
+    /**
+     * Returns the number of empty fiels next to the field (liberty).
+     * @param col
+     * @param row
+     */
+    public int getLiberties(int col, int row) {
+        // !! internally we use 0 to dim-1
+        return Long.bitCount(NEIGHBOURS[index(col - 1, row - 1)] & ~(_black | _white));
+    }
+
+    /**
+     * Returns a unique hash code for this board computed in the base of the field occupation
+     * and the next player color.
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        final long h = _black * 31 + _white;
+        return (int) (h ^ (h >>> 32)) * 3 + _nextPlayerColor.toInt();
+    }
+
+    /**
+     * Checks if two boards are equal by comparing their fields, the next player and the move history.
+     * @param o - the board to check for equality
+     * @return true - if boards have the same field occupation and have the same move history.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SynchronizedBoard || o instanceof BoardSnapshot) {
+            return o.equals(this); // compares with the wrapped board
+        }
+        if (o == null || !(o instanceof BitBoardImpl)) {
+            return false;
+        }
+        if (!toString().equals(o.toString())) {
+            return false;
+        }
+        return getMoveHistory().equals(((Board) o).getMoveHistory());
+    }
+
+    /**
+     * Creates a string representation of the board.
+     * The string will have dim*dim +2 characters (On a standard 8x8 board this would be 66)
+     * An empty field will be represented by a "-", black as "X", white as "O".
+     * The last character will determine who has the next move preceeded by a space
+     *
+     * @return returns a string representing the current board
+     */
+    @Override
+    public String toString() {
+        final char[] s = new char[NUMBER_OF_FIELDS + 2];
+        for (int i = 0; i < NUMBER_OF_FIELDS; i++) {
+            final long b = 1L << i;
+            s[i] = (_black & b) != 0 ? 'X' : (_white & b) != 0 ? 'O' : '-';
+        }
+        s[NUMBER_OF_FIELDS] = ' ';
+        s[NUMBER_OF_FIELDS + 1] = _nextPlayerColor.toCharSymbol();
+        return new String(s);
+    }
+
+    /**
+     * Returns the index of a field within the bitboards
+     * @param col 0 to dim-1
+     * @param row 0 to dim-1
+     * @return row * 8 + col
+     */
+    protected static int index(int col, int row) {
+        return (row << 3) + col;
+    }
+
+    /**
+     * Returns the bit of a field within the bitboards
+     * @param col 0 to dim-1
+     * @param row 0 to dim-1
+     * @return bitboard with only the bit of the given field set
+     */
+    protected static long bit(int col, int row) {
+        return 1L << ((row << 3) + col);
+    }
+}
@@ -0,0 +1,1193 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Reversi board for non-standard dimensions which stores the position as two multi-word bitsets
+ * (<code>long[]</code>), one for black and one for white stones. A 16x16 board needs four longs per color.<br/>
+ * Legal moves are computed for all 8 directions at once by shifting and masking the bitsets in the same
+ * way <code>BitBoardImpl</code> does it for the standard 8x8 board.
+ * <p/>
+ * Bit <code>n</code> of a bitset represents the field <code>col = n % dim, row = n / dim</code> with 0,0 as
+ * bottom left corner. This is the same order as the characters in the string representation of the board.
+ * <p/>
+ * Outside this class fields are addressed starting from 1 to board dimension<br/>
+ * Within this class fields are addressed starting with 0 to board dimension -1<br/>
+ * <p/>
+ * This board is not thread safe! It does not use any monitors so that a search thread can use it without
+ * locking. Boards which are shared between threads have to be wrapped in a <code>SynchronizedBoard</code>
+ * (see <code>BoardFactory</code>).
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public class BitSetBoardImpl implements Board {
+
+    /**
+     * To support a clockwise lookup around a field
+     */
+    private static final int[][] clockwiseLookup = {
+        {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}
+    };
+
+    /**
+     * board dimension (dim * dim)
+     */
+    private final int _dim;
+    private final int _numberOfFields;
+    private final int _maxMoveNumber;
+    private final int _words;
+
+    // -- masks for the board - these are never changed and therefore shared between copies --
+    private final long[] _boardMask;   // all fields of the board
+    private final long[] _innerFiles;  // all fields but the first and the last column
+    private final int[] _lineShifts;    // shifts to a neighbour on the 4 lines (horizontal, vertical, diagonals)
+    private final long[][] _lowBorder;  // fields without a neighbour at a lower index on the line
+    private final long[][] _highBorder; // fields without a neighbour at a higher index on the line
+
+    /**
+     * Bitsets of the black and white stones.<br/>
+     * Due to performance reasons, subclasses are allowed to use this directly!<br/>
+     * <b>Use carefully!</b>
+     */
+    protected final long[] _black;
+    protected final long[] _white;
+
+    /**
+     * Memorizes the moves made on this board as packed moves (see PackedMove) --
+     * Move objects are kept for moves made with makeMove(Move) and otherwise only created on demand.
+     */
+    private final int[] _moveHistory;
+    private final Move[] _moveHistoryMoves;
+    private int _moveHistorySize = 0;
+
+    /**
+     * Persistent history of the moves made before this board has been copied followed by the first
+     * <code>_sharedHistorySize</code> moves made on this board. It is shared with the boards copied from
+     * this board and only extended when this board is copied.
+     */
+    private MoveHistory _sharedHistory = MoveHistory.EMPTY;
+    private int _sharedHistorySize = 0;
+
+    /**
+     * ReversiColor of the next player to move
+     */
+    private ReversiColor _nextPlayerColor;
+
+    /**
+     * is true when the last and the next player are the same
+     */
+    private boolean _hasPass = false;
+
+    /**
+     * How many moves has there been so far
+     */
+    private int _lastMoveNumber = 0;
+
+    /**
+     * Bitset of the legal moves of the next player (always up to date)
+     */
+    private final long[] _legalMoves;
+    private int _legalMovesCount;
+
+    /**
+     * Incrementally updated Zobrist key of the stones on the board (without the next player)
+     */
+    private long _zobristKey = 0L;
+
+    /**
+     * Undo stack with one entry for each move made on this board since it has been created.
+     * The bitsets of an entry are allocated when the stack reaches this size for the first time
+     * and reused afterwards so that makeMove/undoMove do not create any objects in a search.
+     */
+    private final long[][] _undoFlips;
+    private final long[][] _undoLegalMoves;
+    private final int[] _undoLegalMovesCount;
+    private final ReversiColor[] _undoNextPlayerColor;
+    private final boolean[] _undoHasPass;
+    private final long[] _undoZobristKey;
+    private int _undoSize = 0;
+
+    // -- scratch bitsets to avoid allocations --
+    private final long[] _t;
+    private final long[] _s;
+    private final long[] _u;
+    private final long[] _v;
+
+    /**
+     * Creates a Reversi board with the given dimension.
+     * @param initialDimension
+     */
+    public BitSetBoardImpl(int initialDimension) {
+        if (initialDimension < 4 || initialDimension > MAX_DIM || initialDimension % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "Parameter newBoardDimension must be >= 4, <= " + MAX_DIM + " and a multiple of 2. Was "
+                    + initialDimension);
+        }
+        _dim = initialDimension;
+        _numberOfFields = _dim * _dim;
+        _maxMoveNumber = _numberOfFields - 4;
+        _words = (_numberOfFields + 63) >>> 6;
+
+        _boardMask = new long[_words];
+        _innerFiles = new long[_words];
+        _lineShifts = new int[]{1, _dim, _dim + 1, _dim - 1};
+        _lowBorder = new long[4][_words];
+        _highBorder = new long[4][_words];
+        for (int col = 0; col < _dim; col++) {
+            for (int row = 0; row < _dim; row++) {
+                final int i = index(col, row);
+                set(_boardMask, i);
+                if (col > 0 && col < _dim - 1) {
+                    set(_innerFiles, i);
+                }
+                // -- horizontal: left / right
+                if (col == 0) set(_lowBorder[0], i);
+                if (col == _dim - 1) set(_highBorder[0], i);
+                // -- vertical: down / up
+                if (row == 0) set(_lowBorder[1], i);
+                if (row == _dim - 1) set(_highBorder[1], i);
+                // -- diagonal: down left / up right
+                if (col == 0 || row == 0) set(_lowBorder[2], i);
+                if (col == _dim - 1 || row == _dim - 1) set(_highBorder[2], i);
+                // -- diagonal: down right / up left
+                if (col == _dim - 1 || row == 0) set(_lowBorder[3], i);
+                if (col == 0 || row == _dim - 1) set(_highBorder[3], i);
+            }
+        }
+
+        _black = new long[_words];
+        _white = new long[_words];
+        _legalMoves = new long[_words];
+        _undoFlips = new long[_maxMoveNumber][];
+        _undoLegalMoves = new long[_maxMoveNumber][];
+        _undoLegalMovesCount = new int[_maxMoveNumber];
+        _undoNextPlayerColor = new ReversiColor[_maxMoveNumber];
+        _undoHasPass = new boolean[_maxMoveNumber];
+        _moveHistory = new int[_maxMoveNumber];
+        _moveHistoryMoves = new Move[_maxMoveNumber];
+        _undoZobristKey = new long[_maxMoveNumber];
+        _t = new long[_words];
+        _s = new long[_words];
+        _u = new long[_words];
+        _v = new long[_words];
+
+        _nextPlayerColor = ReversiColor.BLACK;
+        _hasPass = false;
+        initBoard();
+    }
+
+    /**
+     * Creates a new Reversi board as a exact deep copy of the given BitSetBoardImpl board
+     * @param oldBoard
+     */
+    public BitSetBoardImpl(BitSetBoardImpl oldBoard) {
+        _dim = oldBoard._dim;
+        _numberOfFields = oldBoard._numberOfFields;
+        _maxMoveNumber = oldBoard._maxMoveNumber;
+        _words = oldBoard._words;
+
+        // -- masks are immutable and can be shared
+        _boardMask = oldBoard._boardMask;
+        _innerFiles = oldBoard._innerFiles;
+        _lineShifts = oldBoard._lineShifts;
+        _lowBorder = oldBoard._lowBorder;
+        _highBorder = oldBoard._highBorder;
+
+        _black = oldBoard._black.clone();
+        _white = oldBoard._white.clone();
+        _legalMoves = oldBoard._legalMoves.clone();
+        _legalMovesCount = oldBoard._legalMovesCount;
+        _zobristKey = oldBoard._zobristKey;
+        _undoFlips = new long[_maxMoveNumber][];
+        _undoLegalMoves = new long[_maxMoveNumber][];
+        _undoLegalMovesCount = new int[_maxMoveNumber];
+        _undoNextPlayerColor = new ReversiColor[_maxMoveNumber];
+        _undoHasPass = new boolean[_maxMoveNumber];
+        _moveHistory = new int[_maxMoveNumber];
+        _moveHistoryMoves = new Move[_maxMoveNumber];
+        _undoZobristKey = new long[_maxMoveNumber];
+        _t = new long[_words];
+        _s = new long[_words];
+        _u = new long[_words];
+        _v = new long[_words];
+
+        _nextPlayerColor = oldBoard._nextPlayerColor;
+        // -- share lastMoves --
+        _sharedHistory = oldBoard.sharedHistory();
+        _lastMoveNumber = oldBoard._lastMoveNumber;
+        _hasPass = oldBoard._hasPass;
+    }
+
+    /**
+     * Creates a new Reversi board as a exact deep copy of the given Board board.
+     * @param oldBoard
+     */
+    public BitSetBoardImpl(Board oldBoard) {
+        this(oldBoard.getDim());
+
+        // -- copy fields --
+        clear(_black);
+        clear(_white);
+        for (int col = 0; col < _dim; col++) {
+            for (int row = 0; row < _dim; row++) {
+                // we can't copy the bitsets here as we do not know the implementation of the old board
+                final ReversiColor color = oldBoard.getField(col + 1, row + 1);
+                if (color.isBlack()) {
+                    set(_black, index(col, row));
+                } else if (color.isWhite()) {
+                    set(_white, index(col, row));
+                }
+            }
+        }
+
+        _nextPlayerColor = oldBoard.getNextPlayerColor();
+
+        // -- copy lastMoves --
+        _sharedHistory = MoveHistory.create(oldBoard.getMoveHistory(), _dim);
+        _lastMoveNumber = oldBoard.getLastMoveNumber();
+        _hasPass = oldBoard.hasPass();
+        updateLegalMoves();
+        initZobristKey();
+    }
+
+    /**
+     * Create start setup of game board
+     */
+    private void initBoard() {
+        final int h = _dim >> 1; // >> equals division by 2
+        set(_black, index(h - 1, h - 1));
+        set(_white, index(h - 1, h));
+        set(_white, index(h, h - 1));
+        set(_black, index(h, h));
+        updateLegalMoves();
+        initZobristKey();
+    }
+
+    /**
+     * Computes the Zobrist key of the stones on the board from scratch
+     */
+    private void initZobristKey() {
+        _zobristKey = 0L;
+        for (int i = 0; i < _numberOfFields; i++) {
+            if (get(_black, i)) {
+                _zobristKey ^= Zobrist.field(i, ReversiColor.BLACK);
+            } else if (get(_white, i)) {
+                _zobristKey ^= Zobrist.field(i, ReversiColor.WHITE);
+            }
+        }
+    }
+
+    /**
+     * Returns all legal moves for the next player.<br>
+     * The legal moves are kept as a bitset so the list is created new for every call.
+     *
+     * @return returns an unordered ArrayList of possible moves
+     */
+    public List<Move> getMoves() {
+        // If we already know that there are no more legal moves then return an empty list.
+        if (_nextPlayerColor.isNone()) {
+            return Collections.emptyList();
+        }
+        List<Move> result = new ArrayList<Move>(_legalMovesCount);
+        for (int w = 0; w < _words; w++) {
+            long moves = _legalMoves[w];
+            while (moves != 0) {
+                final int i = (w << 6) + Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                //noinspection ObjectAllocationInLoop
+                result.add(new MoveImpl(i % _dim + 1, i / _dim + 1, _nextPlayerColor));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes all legal moves for the next player as packed moves (see PackedMove) into the given array.
+     * No objects are created.
+     *
+     * @param moves array to store the moves - the number of fields of the board is always enough
+     * @return number of moves
+     */
+    public int getMoves(int[] moves) {
+        if (_nextPlayerColor.isNone()) {
+            return 0;
+        }
+        int count = 0;
+        for (int w = 0; w < _words; w++) {
+            for (long m = _legalMoves[w]; m != 0; m &= m - 1) {
+                moves[count++] = PackedMove.create((w << 6) + Long.numberOfTrailingZeros(m), _nextPlayerColor);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if next player has a legal move
+     * @return returns true when the next player has a legal move
+     */
+    public boolean hasLegalMoves() {
+        return !_nextPlayerColor.isNone() && _legalMovesCount > 0;
+    }
+
+    /**
+     * Checks for legal move
+     * @param move
+     * @return returns true if the given move is legal on this board
+     */
+    public boolean isLegalMove(Move move) {
+        if (move == null) {
+            return false;
+        }
+
+        final int col = move.getCol() - 1;
+        final int row = move.getRow() - 1;
+        final ReversiColor color = move.getColor();
+
+        // -- stay within board
+        if (!isWithinBoard(col, row) || color.isNone()) {
+            return false;
+        }
+
+        // -- the common case - use the precomputed legal moves
+        if (color == _nextPlayerColor) {
+            return get(_legalMoves, index(col, row));
+        }
+
+        // -- only valid move if field is empty and we flip at least one stone
+        // -- a local buffer as a BoardSnapshot may call this from several threads
+        if (get(_black, index(col, row)) || get(_white, index(col, row))) {
+            return false;
+        }
+        final long[] flips = new long[_words];
+        return color.isBlack() ? flipMask(_black, _white, col, row, flips) : flipMask(_white, _black, col, row, flips);
+    }
+
+    /**
+     * Returns the number of stones the given move would flip on this board.
+     * @param move
+     * @return number of flipped stones - 0 if the move is not legal on this board
+     */
+    public int flipCount(Move move) {
+        // -- a local buffer as a BoardSnapshot may call this from several threads - the search uses flipCount(int)
+        final long[] flips = new long[_words];
+        return flips(move, flips) ? count(flips) : 0;
+    }
+
+    /**
+     * Returns the stones the given move would flip on this board as a bitset.
+     * @param move
+     * @return bitset of the flipped stones - no bit is set if the move is not legal on this board
+     */
+    public long[] flipMask(Move move) {
+        final long[] mask = new long[_words];
+        flips(move, mask);
+        return mask;
+    }
+
+    /**
+     * Returns the number of stones the given packed move (see PackedMove) would flip on this board.
+     * No objects are created.
+     * @param move packed move
+     * @return number of flipped stones - 0 if the move is not legal on this board
+     */
+    public int flipCount(int move) {
+        final int index = PackedMove.getIndex(move);
+        if (index >= _numberOfFields || get(_black, index) || get(_white, index)) {
+            return 0;
+        }
+        final int col = index % _dim;
+        final int row = index / _dim;
+        if (PackedMove.isBlack(move)) {
+            return flipMask(_black, _white, col, row, _t) ? count(_t) : 0;
+        } else if (PackedMove.getColor(move).isWhite()) {
+            return flipMask(_white, _black, col, row, _t) ? count(_t) : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * Computes the stones the given move would flip on this board.
+     * @param move
+     * @param flips bitset to store the flipped stones in - cleared if the move is not legal
+     * @return true if the move is legal on this board
+     */
+    private boolean flips(Move move, long[] flips) {
+        clear(flips);
+        if (move == null) {
+            return false;
+        }
+        final int col = move.getCol() - 1;
+        final int row = move.getRow() - 1;
+        final ReversiColor color = move.getColor();
+        if (!isWithinBoard(col, row) || get(_black, index(col, row)) || get(_white, index(col, row))) {
+            return false;
+        }
+        if (color.isBlack()) {
+            return flipMask(_black, _white, col, row, flips);
+        } else if (color.isWhite()) {
+            return flipMask(_white, _black, col, row, flips);
+        }
+        return false;
+    }
+
+    /**
+     * Makes move on board according to rules. It determines the next player at the end.
+     * @param move
+     */
+    public void makeMove(Move move) throws IllegalMoveException {
+        // -- assert ---
+        if (move == null) {
+            throw new NullPointerException("Error: Parameter move in BitSetBoardImpl.makeMove() may not be null");
+        }
+
+        final int col = move.getCol() - 1;
+        final int row = move.getRow() - 1;
+        final ReversiColor color = move.getColor();
+
+        if (!isWithinBoard(col, row) || color.isNone() || !doMove(col, row, color, move)) {
+            throw new IllegalMoveException("Error: BitSetBoardImpl.makeMove() Tried to make illegal move: " + move);
+        }
+    }
+
+    /**
+     * Makes a packed move (see PackedMove) on board according to rules. It determines the next player at the end.
+     * No objects are created.
+     * @param move packed move
+     */
+    public void makeMove(int move) throws IllegalMoveException {
+        final int index = PackedMove.getIndex(move);
+        final ReversiColor color = PackedMove.getColor(move);
+
+        if (index >= _numberOfFields || color.isNone() || !doMove(index % _dim, index / _dim, color, null)) {
+            throw new IllegalMoveException("Error: BitSetBoardImpl.makeMove() Tried to make illegal move: "
+                    + PackedMove.toMove(move, _dim));
+        }
+    }
+
+    /**
+     * Makes the move if it is legal.
+     * @param col 0 to dim-1
+     * @param row 0 to dim-1
+     * @param color color of the move
+     * @param move the Move object for the move history or null if the move was given as a packed move
+     * @return false if the move is not legal - the board is unchanged then
+     */
+    private boolean doMove(int col, int row, ReversiColor color, Move move) {
+        final int index = index(col, row);
+
+        // -- legal move? - we compute the flipped stones only once and use them for the check
+        if (get(_black, index) || get(_white, index)) {
+            return false;
+        }
+        final boolean legal = color.isBlack() ? flipMask(_black, _white, col, row, _t)
+                                              : flipMask(_white, _black, col, row, _t);
+        if (!legal) {
+            return false;
+        }
+
+        // -- save undo information --
+        if (_undoFlips[_undoSize] == null) {
+            _undoFlips[_undoSize] = new long[_words];
+            _undoLegalMoves[_undoSize] = new long[_words];
+        }
+        System.arraycopy(_t, 0, _undoFlips[_undoSize], 0, _words);
+        System.arraycopy(_legalMoves, 0, _undoLegalMoves[_undoSize], 0, _words);
+        _undoLegalMovesCount[_undoSize] = _legalMovesCount;
+        _undoNextPlayerColor[_undoSize] = _nextPlayerColor;
+        _undoHasPass[_undoSize] = _hasPass;
+        _undoZobristKey[_undoSize] = _zobristKey;
+        _undoSize++;
+
+        // -- save last move ---
+        _moveHistory[_moveHistorySize] = PackedMove.create(index, color);
+        _moveHistoryMoves[_moveHistorySize] = move;
+        _moveHistorySize++;
+
+        // -- set field and turn stones ---
+        final long[] own = color.isBlack() ? _black : _white;
+        final long[] opp = color.isBlack() ? _white : _black;
+        for (int w = 0; w < _words; w++) {
+            own[w] |= _t[w];
+            opp[w] &= ~_t[w];
+            for (long f = _t[w]; f != 0; f &= f - 1) {
+                _zobristKey ^= Zobrist.flip((w << 6) + Long.numberOfTrailingZeros(f));
+            }
+        }
+        set(own, index);
+        _zobristKey ^= Zobrist.field(index, color);
+
+        // -- increase lastMoveNumber counter --
+        _lastMoveNumber++;
+
+        // -- determine next player --
+        _nextPlayerColor = color;
+        setNextPlayer();
+        return true;
+    }
+
+    /**
+     * Takes back the last move made with makeMove() and restores the board to exactly the state
+     * before this move. Only moves made on this board can be taken back - not the moves made
+     * on a board this board has been copied from.
+     *
+     * @throws IllegalStateException when there is no move to take back
+     */
+    public void undoMove() {
+        if (_undoSize == 0) {
+            throw new IllegalStateException("Error: BitSetBoardImpl.undoMove() There is no move to take back");
+        }
+        _undoSize--;
+
+        _moveHistorySize--;
+        final int move = _moveHistory[_moveHistorySize];
+        _moveHistoryMoves[_moveHistorySize] = null;
+        if (_sharedHistorySize > _moveHistorySize) {
+            _sharedHistory = _sharedHistory.getParent();
+            _sharedHistorySize--;
+        }
+        final long[] flips = _undoFlips[_undoSize];
+
+        // -- remove stone and turn stones back --
+        final long[] own = PackedMove.isBlack(move) ? _black : _white;
+        final long[] opp = PackedMove.isBlack(move) ? _white : _black;
+        for (int w = 0; w < _words; w++) {
+            own[w] &= ~flips[w];
+            opp[w] |= flips[w];
+        }
+        final int i = PackedMove.getIndex(move);
+        own[i >>> 6] &= ~(1L << i);
+
+        _nextPlayerColor = _undoNextPlayerColor[_undoSize];
+        _hasPass = _undoHasPass[_undoSize];
+        System.arraycopy(_undoLegalMoves[_undoSize], 0, _legalMoves, 0, _words);
+        _legalMovesCount = _undoLegalMovesCount[_undoSize];
+        _zobristKey = _undoZobristKey[_undoSize];
+        _lastMoveNumber--;
+    }
+
+    /**
+     * Determines the next player. This method assumes that the current player has just made a move.
+     * It starts with switch the players and checking for possible moves.
+     */
+    private void setNextPlayer() {
+        // First switch the player and check if we have a legal move
+        _nextPlayerColor = _nextPlayerColor.getInverseColor();
+        updateLegalMoves();
+        if (_legalMovesCount == 0) {
+            // we don't have a legal move so we switch back and check if we have a pass
+            _nextPlayerColor = _nextPlayerColor.getInverseColor();
+            updateLegalMoves();
+            if (_legalMovesCount > 0) {
+                // We have a move so we have a pass - keep the next player
+                _hasPass = true;
+            } else {
+                // We don't have a move at all --> no more moves --> game over
+                _hasPass = false;
+                _nextPlayerColor = ReversiColor.NONE;
+            }
+        } else {
+            _hasPass = false;
+        }
+    }
+
+    /**
+     * Recalculates the bitset of legal moves for the next player.
+     */
+    private void updateLegalMoves() {
+        if (_nextPlayerColor.isBlack()) {
+            _legalMovesCount = generateMoves(_black, _white, _legalMoves);
+        } else if (_nextPlayerColor.isWhite()) {
+            _legalMovesCount = generateMoves(_white, _black, _legalMoves);
+        } else {
+            clear(_legalMoves);
+            _legalMovesCount = 0;
+        }
+    }
+
+    /**
+     * Generates a bitset of all legal moves for the player owning the stones in <code>own</code>.<br/>
+     * All 8 directions are checked in parallel for all fields by shifting the own stones over
+     * the opponent's stones (dim-2 times at most as there cannot be a longer line of opponent's stones).
+     *
+     * @param own bitset of the stones of the player to move
+     * @param opp bitset of the stones of the opponent
+     * @param moves bitset to store the legal moves in
+     * @return number of legal moves
+     */
+    protected final int generateMoves(final long[] own, final long[] opp, final long[] moves) {
+        clear(moves);
+        // -- left / right --
+        fill(own, opp, 1, true, _innerFiles, moves);
+        fill(own, opp, 1, false, _innerFiles, moves);
+        // -- up / down --
+        fill(own, opp, _dim, true, _boardMask, moves);
+        fill(own, opp, _dim, false, _boardMask, moves);
+        // -- diagonals --
+        fill(own, opp, _dim - 1, true, _innerFiles, moves);
+        fill(own, opp, _dim - 1, false, _innerFiles, moves);
+        fill(own, opp, _dim + 1, true, _innerFiles, moves);
+        fill(own, opp, _dim + 1, false, _innerFiles, moves);
+        // -- only empty fields --
+        int count = 0;
+        for (int w = 0; w < _words; w++) {
+            moves[w] &= ~(own[w] | opp[w]) & _boardMask[w];
+            count += Long.bitCount(moves[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Shifts the own stones over lines of opponent's stones in one direction and adds all fields
+     * directly behind such lines to <code>moves</code>.
+     */
+    private void fill(long[] own, long[] opp, int shift, boolean up, long[] mask, long[] moves) {
+        final long[] t = _s;
+        final long[] s = _u;
+        // t = opp & mask & shift(own)
+        shift(own, shift, up, t);
+        for (int w = 0; w < _words; w++) {
+            t[w] &= opp[w] & mask[w];
+        }
+        for (int i = 0; i < _dim - 3; i++) {
+            // t |= opp & mask & shift(t)
+            shift(t, shift, up, s);
+            for (int w = 0; w < _words; w++) {
+                t[w] |= s[w] & opp[w] & mask[w];
+            }
+        }
+        shift(t, shift, up, s);
+        for (int w = 0; w < _words; w++) {
+            moves[w] |= s[w];
+        }
+    }
+
+    /**
+     * Shifts a bitset by the given number of bits towards higher (up) or lower indices.<br/>
+     * The shift is split into whole words and the remaining bits as Java only uses the lowest 6 bits of the
+     * shift count of a long (<code>x << 64 == x</code>). Source and destination may be the same array.
+     */
+    private static void shift(long[] src, int shift, boolean up, long[] dst) {
+        final int n = src.length;
+        final int words = shift >>> 6;
+        final int bits = shift & 63;
+        if (up) {
+            for (int w = n - 1; w >= 0; w--) {
+                final int from = w - words;
+                long value = 0L;
+                if (from >= 0) {
+                    value = src[from] << bits;
+                    if (bits != 0 && from > 0) {
+                        value |= src[from - 1] >>> (64 - bits);
+                    }
+                }
+                dst[w] = value;
+            }
+        } else {
+            for (int w = 0; w < n; w++) {
+                final int from = w + words;
+                long value = 0L;
+                if (from < n) {
+                    value = src[from] >>> bits;
+                    if (bits != 0 && from < n - 1) {
+                        value |= src[from + 1] << (64 - bits);
+                    }
+                }
+                dst[w] = value;
+            }
+        }
+    }
+
+    /**
+     * Computes the bitset of all opponent's stones which would be flipped when the player owning
+     * <code>own</code> places a stone on the given field. The field itself is not checked for being empty.
+     *
+     * @param own bitset of the stones of the player to move
+     * @param opp bitset of the stones of the opponent
+     * @param col 0 to dim-1
+     * @param row 0 to dim-1
+     * @param flips bitset to store the flipped stones in
+     * @return true if at least one stone would be flipped
+     */
+    protected final boolean flipMask(long[] own, long[] opp, int col, int row, long[] flips) {
+        clear(flips);
+        boolean found = false;
+        for (int i = 0; i < 8; i++) {
+            final int colInc = clockwiseLookup[i][0];
+            final int rowInc = clockwiseLookup[i][1];
+            int c = col + colInc;
+            int r = row + rowInc;
+            int count = 0;
+            while (isWithinBoard(c, r) && get(opp, index(c, r))) {
+                c += colInc;
+                r += rowInc;
+                count++;
+            }
+            if (count > 0 && isWithinBoard(c, r) && get(own, index(c, r))) {
+                found = true;
+                while (count-- > 0) {
+                    c -= colInc;
+                    r -= rowInc;
+                    set(flips, index(c, r));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the number of stable stones of the given bitset. A stone is regarded as
+     * stable when on each of the 4 lines through it at least one neighbour is either outside of the board
+     * or itself a stable stone of the same color. Starting from the corners this is repeated until no
+     * more stable stones are found. Does not find all possible stable stones.
+     *
+     * @param stones bitset of the stones of one color
+     * @return number of the stable stones
+     */
+    protected final int countStableStones(final long[] stones) {
+        final long[] stable = _t;
+        final long[] low = _s;
+        final long[] high = _u;
+        final long[] candidates = _v;
+        clear(stable);
+        boolean changed;
+        do {
+            changed = false;
+            System.arraycopy(stones, 0, candidates, 0, _words);
+            for (int line = 0; line < 4; line++) {
+                // bits wrapping around the board edges only reach border fields which are ok anyway
+                shift(stable, _lineShifts[line], true, low);
+                shift(stable, _lineShifts[line], false, high);
+                for (int w = 0; w < _words; w++) {
+                    candidates[w] &= low[w] | _lowBorder[line][w] | high[w] | _highBorder[line][w];
+                }
+            }
+            for (int w = 0; w < _words; w++) {
+                if (candidates[w] != stable[w]) {
+                    changed = true;
+                    stable[w] = candidates[w];
+                }
+            }
+        } while (changed);
+        return count(stable);
+    }
+
+    /**
+     * Returns true if the last player is the next player --> pass
+     *
+     * @return true - if last player is next player
+     */
+    public boolean hasPass() {
+        return _hasPass;
+    }
+
+    /**
+     * Return color of next player or ReversiColor.NONE if there are no more moves.
+     * @return color of player for next move or none when there are no more moves.
+     */
+    public ReversiColor getNextPlayerColor() {
+        return _nextPlayerColor;
+    }
+
+    /**
+     * Return color of last player
+     * @return color of player from last move (-1,0,1 -- BLACK, EMPTY, WHITE)
+     */
+    public ReversiColor getLastPlayerColor() {
+        if (_moveHistorySize > 0) {
+            return PackedMove.getColor(_moveHistory[_moveHistorySize - 1]);
+        } else if (_sharedHistory.size() > 0) {
+            return PackedMove.getColor(_sharedHistory.getPackedMove());
+        } else {
+            return ReversiColor.EMPTY;
+        }
+    }
+
+    /**
+     * Return dimension of board
+     * @return returns the dimension (number of rows/columns) of the board
+     */
+    public int getDim() {
+        return _dim;
+    }
+
+    /**
+     * Checks if col, row is still within the board.<br/>
+     * <b>This is starting from 0 to dim-1 and not from 1 to dim!</b>
+     *
+     * @param col
+     * @param row
+     * @return returns true if coordinates are valid for the current board
+     */
+    public boolean isWithinBoard(int col, int row) {
+        // stay within board
+        return !(col < 0 || col >= _dim || row < 0 || row >= _dim);
+    }
+
+    /**
+     * Return color of field row, col
+     * @param col
+     * @param row
+     * @return color of given field (-1,0,1 -- BLACK, EMPTY, WHITE)
+     */
+    public ReversiColor getField(int col, int row) {
+        return field(col - 1, row - 1);
+    }
+
+    /**
+     * Returns the color of a field - 0 to dim-1
+     */
+    private ReversiColor field(int col, int row) {
+        final int i = index(col, row);
+        if (get(_black, i)) {
+            return ReversiColor.BLACK;
+        } else if (get(_white, i)) {
+            return ReversiColor.WHITE;
+        }
+        return ReversiColor.EMPTY;
+    }
+
+    /**
+     * Getter for lastMove
+     * @return returns the last move mode on this board
+     */
+    public Move getLastMove() {
+        if (_moveHistorySize == 0) {
+            return _sharedHistory.getMove(_dim);
+        }
+        return historyMove(_moveHistorySize - 1);
+    }
+
+    /**
+     * Returns the last move as a packed move (see PackedMove) without creating any objects
+     * @return the last move or PackedMove.NONE if there has been no move yet
+     */
+    public int getLastPackedMove() {
+        if (_moveHistorySize == 0) {
+            return _sharedHistory.getPackedMove();
+        }
+        return _moveHistory[_moveHistorySize - 1];
+    }
+
+    /**
+     * Getter for lastMoves
+     * @return returns the move path for this board as an unmodifiable list which is built on first access
+     */
+    public List<Move> getMoveHistory() {
+        return sharedHistory().asList(_dim);
+    }
+
+    /**
+     * Returns the persistent history of all moves on this board. The moves made on this board since the last
+     * call are appended to the shared history first. Does not change anything if no move has been made
+     * on this board since the last call.
+     */
+    private MoveHistory sharedHistory() {
+        while (_sharedHistorySize < _moveHistorySize) {
+            //noinspection ObjectAllocationInLoop
+            _sharedHistory = _sharedHistory.add(_moveHistory[_sharedHistorySize], _moveHistoryMoves[_sharedHistorySize]);
+            _sharedHistorySize++;
+        }
+        return _sharedHistory;
+    }
+
+    /**
+     * Returns the Move object of a move in the move history and creates it if the move
+     * has been made as a packed move.
+     */
+    private Move historyMove(int i) {
+        if (_moveHistoryMoves[i] == null) {
+            _moveHistoryMoves[i] = PackedMove.toMove(_moveHistory[i], _dim);
+        }
+        return _moveHistoryMoves[i];
+    }
+
+    /**
+     * Getter for the maximal possible number of moves
+     * @return returns the maximal number of move on this board
+     */
+    public int getMaxMoveNumber() {
+        return _maxMoveNumber;
+    }
+
+    /**
+     * Returns the number of the next move
+     * @return returns the number of the next move
+     */
+    public int getNextMoveNumber() {
+        return _lastMoveNumber + 1;
+    }
+
+    /**
+     * Returns the number of move made so far
+     * @return returns the number of moves made so far
+     */
+    public int getLastMoveNumber() {
+        return _lastMoveNumber;
+    }
+
+    /**
+     * Returns number of black stones
+     * @return number of black stone
+     */
+    public int getPiecesBlack() {
+        return count(_black);
+    }
+
+    /**
+     * Returns number of white stones
+     * @return number of white stones
+     */
+    public int getPiecesWhite() {
+        return count(_white);
+    }
+
+    /**
+     * Returns the differential of number of pieces
+     * @param color
+     * @return returns the differential of number of pieces
+     */
+    public int getPiecesDiff(ReversiColor color) {
+        return color.toInt() * (count(_white) - count(_black));
+    }
+
+    /**
+     * Returns the differential of corners for a given color
+     * @param color
+     * @return returns the differential of corners for a given color
+     */
+    public int getCornerDiff(ReversiColor color) {
+        final int m = _dim - 1;
+        return color.toInt() * (
+            field(0, 0).toInt() +
+            field(0, m).toInt() +
+            field(m, 0).toInt() +
+            field(m, m).toInt()
+            );
+    }
+
+    /**
+     * Returns the differential of X-squares
+     * @param color
+     * @return returns the differential of X-squares
+     */
+    public int getXsquaresDiff(ReversiColor color) {
+        final int m = _dim - 1;
+        return color.toInt() * (
+            field(1, 1).toInt() +
+            field(1, m - 1).toInt() +
+            field(m - 1, 1).toInt() +
+            field(m - 1, m - 1).toInt()
+            );
+    }
+
+    /**
+     * Returns the differential of C-squares
+     * @param color
+     * @return returns the differential of C-squares
+     */
+    public int getCsquaresDiff(ReversiColor color) {
+        final int m = _dim - 1;
+        //noinspection OverlyComplexArithmeticExpression
+        return color.toInt() * (
+            field(0, 1).toInt() + field(1, 0).toInt() +
+            field(0, m - 1).toInt() + field(1, m).toInt() +
+            field(m - 1, m).toInt() + field(m, m - 1).toInt() +
+            field(m, 1).toInt() + field(m - 1, 0).toInt()
+            );
+    }
+
+    /**
+     * Returns the difference in the mobility for the current player
+     *
+     * @return int - difference of the mobility for the next player
+     */
+    public int getMobilityDiff() {
+        if (_nextPlayerColor.isBlack()) {
+            return _legalMovesCount - generateMoves(_white, _black, _t);
+        } else if (_nextPlayerColor.isWhite()) {
+            return _legalMovesCount - generateMoves(_black, _white, _t);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of legal moves the given color would have if it had the next move.
+     * No objects are created.
+     * @param color BLACK or WHITE
+     * @return number of legal moves for the given color (0 for NONE or EMPTY)
+     */
+    public int countMoves(ReversiColor color) {
+        if (color == _nextPlayerColor) {
+            return _legalMovesCount;
+        } else if (color.isBlack()) {
+            return generateMoves(_black, _white, _t);
+        } else if (color.isWhite()) {
+            return generateMoves(_white, _black, _t);
+        }
+        return 0;
+    }
+
+    /**
+     * Getter for a hash key for the board. The hash key is calculated based on the fields of the board
+     * and the next player. It is identical to toString().
+     *
+     * @return returns a hash key for this board
+     */
+    public String getHashKey() {
+        return toString();
+    }
+
+    /**
+     * Returns a 64-bit Zobrist key for this board based on the fields and the next player.
+     * The key for the fields is updated incrementally with each move.
+     *
+     * @return returns the Zobrist key for this board
+     */
+    public long getZobristKey() {
+        return _zobristKey ^ Zobrist.nextPlayer(_nextPlayerColor);
+    }
+
+    /**
+     * Returns the number of empty fiels next to the field (liberty).
+     * @param col
+     * @param row
+     */
+    public int getLiberties(int col, int row) {
+        // !! internally we use 0 to dim-1
+        int c = 0;
+        for (int i = 0; i < 8; i++) {
+            final int x = col - 1 + clockwiseLookup[i][0];
+            final int y = row - 1 + clockwiseLookup[i][1];
+            if (isWithinBoard(x, y) && !get(_black, index(x, y)) && !get(_white, index(x, y))) {
+                c++;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Returns a unique hash code for this board computed in the base of the field occupation
+     * and the next player color.
+     * @return hash code
+     */
+    @Override
+    public int hashCode() {
+        long h = _nextPlayerColor.toInt();
+        for (int w = 0; w < _words; w++) {
+            h = h * 31 + _black[w];
+            h = h * 31 + _white[w];
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Checks if two boards are equal by comparing their fields, the next player and the move history.
+     * @param o - the board to check for equality
+     * @return true - if boards have the same field occupation and have the same move history.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SynchronizedBoard || o instanceof BoardSnapshot) {
+            return o.equals(this); // compares with the wrapped board
+        }
+        if (o == null || !(o instanceof BitSetBoardImpl)) {
+            return false;
+        }
+        if (!toString().equals(o.toString())) {
+            return false;
+        }
+        return getMoveHistory().equals(((Board) o).getMoveHistory());
+    }
+
+    /**
+     * Creates a string representation of the board.
+     * The string will have dim*dim +2 characters (On a standard 8x8 board this would be 66)
+     * An empty field will be represented by a "-", black as "X", white as "O".
+     * The last character will determine who has the next move preceeded by a space
+     *
+     * @return returns a string representing the current board
+     */
+    @Override
+    public String toString() {
+        final char[] s = new char[_numberOfFields + 2];
+        for (int i = 0; i < _numberOfFields; i++) {
+            s[i] = get(_black, i) ? 'X' : get(_white, i) ? 'O' : '-';
+        }
+        s[_numberOfFields] = ' ';
+        s[_numberOfFields + 1] = _nextPlayerColor.toCharSymbol();
+        return new String(s);
+    }
+
+    /**
+     * Returns the index of a field within the bitsets
+     * @param col 0 to dim-1
+     * @param row 0 to dim-1
+     * @return row * dim + col
+     */
+    protected final int index(int col, int row) {
+        return row * _dim + col;
+    }
+
+    /**
+     * Returns true if the bit with the given index is set
+     */
+    protected static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the bit with the given index
+     */
+    protected static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Clears all bits
+     */
+    protected static void clear(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] = 0L;
+        }
+    }
+
+    /**
+     * Returns the number of bits set
+     */
+    protected static int count(long[] bits) {
+        int c = 0;
+        for (long w : bits) {
+            c += Long.bitCount(w);
+        }
+        return c;
+    }
+}
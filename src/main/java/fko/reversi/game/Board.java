@@ -41,6 +41,12 @@ public interface Board {
      */
     int DEFAULT_DIM = 8;
 
+    /**
+     * A constant defining the maximum size of a board (128x128) - a <code>PackedMove</code> can address
+     * at most <code>PackedMove.MAX_FIELDS</code> fields
+     */
+    int MAX_DIM = 128;
+
     /**
      * Returns true if the last player is the next player --> pass
      * @return true - if last player is next player
@@ -66,6 +72,21 @@ public interface Board {
      */
     boolean isLegalMove(Move move);
 
+    /**
+     * Returns the number of stones the given move would flip on this board.
+     * @param move
+     * @return number of flipped stones - 0 if the move is not legal on this board
+     */
+    int flipCount(Move move);
+
+    /**
+     * Returns the stones the given move would flip on this board as a bitset.<br/>
+     * Field col, row (1 to dim) is bit <code>(row-1) * dim + (col-1)</code>, 64 fields per array element.
+     * @param move
+     * @return bitset of the flipped stones - no bit is set if the move is not legal on this board
+     */
+    long[] flipMask(Move move);
+
     /**
      * Makes move on board according to rules
      * @param move Move to make on the board
@@ -193,6 +214,14 @@ public interface Board {
      */
     int getMobilityDiff();
 
+    /**
+     * Returns the number of legal moves the given color would have if it had the next move.<br/>
+     * Only counts the moves - no move list is created.
+     * @param color BLACK or WHITE
+     * @return number of legal moves for the given color (0 for NONE or EMPTY)
+     */
+    int countMoves(ReversiColor color);
+
     /**
     * getter for hashKey
     *
@@ -200,6 +229,14 @@ public interface Board {
     */
     String getHashKey();
 
+    /**
+     * Returns a 64-bit Zobrist key for this board based on the fields and the next player.<br/>
+     * Boards with identical fields and next player have the same key regardless of their implementation.
+     *
+     * @return returns the Zobrist key for this board
+     */
+    long getZobristKey();
+
     /**
      * Returns the number of empty fiels next to the field (liberty).
      * @param col Column 1 to dim
@@ -0,0 +1,98 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+/**
+ * A factory for boards.<br>
+ * It chooses the fastest board implementation for a given board dimension:<br>
+ * <code>BitBoardImpl</code> for the standard 8x8 board (one long per color) and <code>BitSetBoardImpl</code>
+ * for all other dimensions (multi-word bitsets).<br>
+ * These boards do not use any monitors. <code>createBoard</code> and <code>copyBoard</code> wrap them in a
+ * <code>SynchronizedBoard</code> for boards which are shared between threads.
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public class BoardFactory {
+
+    // -- Factories should not be instantiated --
+    private BoardFactory() {}
+
+    /**
+     * Creates a new thread safe board with the start setup for the given dimension.
+     * @param dim
+     * @return new board
+     */
+    public static Board createBoard(int dim) {
+        return new SynchronizedBoard(createUnsynchronizedBoard(dim));
+    }
+
+    /**
+     * Creates a new board with the start setup for the given dimension which is not thread safe.<br/>
+     * It must only be used by the thread which created it (see <code>SynchronizedBoard</code>).
+     * @param dim
+     * @return new board
+     */
+    public static Board createUnsynchronizedBoard(int dim) {
+        if (dim == Board.DEFAULT_DIM) {
+            return new BitBoardImpl();
+        }
+        return new BitSetBoardImpl(dim);
+    }
+
+    /**
+     * Creates a thread safe deep copy of the given board using the implementation for its dimension.
+     * @param board
+     * @return copy of the board
+     */
+    public static Board copyBoard(Board board) {
+        return new SynchronizedBoard(createUnsynchronizedCopy(board));
+    }
+
+    /**
+     * Creates a deep copy of the given board which is not thread safe.<br/>
+     * A <code>SynchronizedBoard</code> is copied while holding its lock, a <code>BoardSnapshot</code> without
+     * any lock. The copy must only be used by the thread which created it (see <code>SynchronizedBoard</code>).
+     * @param board
+     * @return copy of the board
+     */
+    public static Board createUnsynchronizedCopy(Board board) {
+        if (board instanceof SynchronizedBoard) {
+            return ((SynchronizedBoard) board).unsynchronizedCopy();
+        } else if (board instanceof BoardSnapshot) {
+            return ((BoardSnapshot) board).unsynchronizedCopy();
+        } else if (board instanceof BitBoardImpl) {
+            return new BitBoardImpl((BitBoardImpl) board);
+        } else if (board instanceof BitSetBoardImpl) {
+            return new BitSetBoardImpl((BitSetBoardImpl) board);
+        } else if (board.getDim() == Board.DEFAULT_DIM) {
+            return new BitBoardImpl(board);
+        }
+        return new BitSetBoardImpl(board);
+    }
+
+}
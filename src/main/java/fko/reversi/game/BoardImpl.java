@@ -65,9 +65,14 @@ public class BoardImpl implements Board {
     private Move _lastMove = null;
 
     /**
-     * Memorizes the move path --
+     * Memorizes the move path -- persistent and shared with the boards copied from this board
      */
-    private List<Move> _moveHistory = null;
+    private MoveHistory _moveHistory = MoveHistory.EMPTY;
+
+    /**
+     * Number of stones flipped in each direction (see clockwiseLookup) by the move in makeMove()
+     */
+    private final int[] _flipCounts = new int[8];
 
     /**
      * ReversiColor of the next player to move
@@ -131,6 +136,11 @@ public class BoardImpl implements Board {
      */
     private volatile StringBuilder _stringBoard = null;
 
+    /**
+     * Incrementally updated Zobrist key of the stones on the board (without the next player)
+     */
+    private long _zobristKey = 0L;
+
     // field liberties
     private int[][] _liberties = null;
 
@@ -141,7 +151,6 @@ public class BoardImpl implements Board {
         _dim = DEFAULT_DIM;
         _numberOfFields= _dim * _dim;
         _fields = new ReversiColor[_dim][_dim];
-        _moveHistory = new ArrayList<Move>(_numberOfFields);
         _maxMoveNumber = _numberOfFields - 4;
         _nextPlayerColor = ReversiColor.BLACK;
         _hasPass=false;
@@ -162,7 +171,6 @@ public class BoardImpl implements Board {
         _dim = initialDimension;
         _numberOfFields = _dim * _dim;
         _fields = new ReversiColor[_dim][_dim];
-        _moveHistory = new ArrayList<Move>(_numberOfFields);
         _maxMoveNumber = _numberOfFields - 4;
         _nextPlayerColor = ReversiColor.BLACK;
         _hasPass=false;
@@ -194,18 +202,14 @@ public class BoardImpl implements Board {
         }
 
         _nextPlayerColor = oldBoard._nextPlayerColor;
-        if (oldBoard._lastMove != null) {
-            _lastMove = new MoveImpl(oldBoard._lastMove);
-        }
+        _lastMove = oldBoard._lastMove;
 
         // -- copy stringBoard --
         _stringBoard = new StringBuilder(oldBoard._stringBoard);
+        _zobristKey = oldBoard._zobristKey;
 
-        // -- copy lastMoves --
-        _moveHistory = new ArrayList<Move>(_numberOfFields);
-        for (Move a_moveHistory : oldBoard._moveHistory) {
-            _moveHistory.add(new MoveImpl(a_moveHistory));
-        }
+        // -- share lastMoves --
+        _moveHistory = oldBoard._moveHistory;
         _lastMoveNumber = oldBoard._lastMoveNumber;
         _maxMoveNumber = oldBoard._maxMoveNumber;
         _piecesBlack = oldBoard._piecesBlack;
@@ -223,6 +227,35 @@ public class BoardImpl implements Board {
 
     }
 
+    /**
+     * Sets this board back to the state of the given copy of this board (see <code>BoardImpl(BoardImpl)</code>).
+     * Used by boards which take back moves with a stack of saved states.
+     * @param savedBoard copy of this board with the same dimension
+     */
+    protected synchronized void restore(BoardImpl savedBoard) {
+        if (savedBoard._dim != _dim) {
+            throw new IllegalArgumentException("Parameter savedBoard must have the same dimension");
+        }
+        for (int col = 0; col < _dim; col++) {
+            System.arraycopy(savedBoard._fields[col], 0, _fields[col], 0, _dim);
+            System.arraycopy(savedBoard._liberties[col], 0, _liberties[col], 0, _dim);
+        }
+        _nextPlayerColor = savedBoard._nextPlayerColor;
+        _lastMove = savedBoard._lastMove;
+        _stringBoard = new StringBuilder(savedBoard._stringBoard);
+        _zobristKey = savedBoard._zobristKey;
+        _moveHistory = savedBoard._moveHistory;
+        _lastMoveNumber = savedBoard._lastMoveNumber;
+        _maxMoveNumber = savedBoard._maxMoveNumber;
+        _piecesBlack = savedBoard._piecesBlack;
+        _piecesWhite = savedBoard._piecesWhite;
+        _hasPass = savedBoard._hasPass;
+        synchronized (_cachedMoveListLock) {
+            _cachedMoveListValid = false;
+            _cachedMoveList = null;
+        }
+    }
+
     /**
      * Creates a new Reversi board as a exact deep copy of the given Board board.
      * @param oldBoard
@@ -254,11 +287,7 @@ public class BoardImpl implements Board {
         _stringBoard = new StringBuilder(oldBoard.toString());
 
         // -- copy lastMoves --
-        _moveHistory = new ArrayList<Move>(_numberOfFields);
-        for (Move move : oldBoard.getMoveHistory()) {
-            //noinspection ObjectAllocationInLoop
-            _moveHistory.add(new MoveImpl(move));
-        }
+        _moveHistory = MoveHistory.create(oldBoard.getMoveHistory(), _dim);
         _lastMoveNumber = oldBoard.getLastMoveNumber();
         _maxMoveNumber = oldBoard.getMaxMoveNumber();
         _piecesBlack = oldBoard.getPiecesBlack();
@@ -270,6 +299,7 @@ public class BoardImpl implements Board {
 
         // this is as fast as copying
         initLiberties();
+        initZobristKey();
     }
 
     /**
@@ -384,8 +414,8 @@ public class BoardImpl implements Board {
             throw new NullPointerException("Error: Parameter move in BoardImpl.makeMove() may not be null");
         }
 
-        // -- legal move? ---
-        if (!isLegalMove(move)) {
+        // -- legal move? - the flips are counted only once and only these directions are turned later ---
+        if (countFlips(move, _flipCounts) == 0) {
             throw new IllegalMoveException("Error: BoardImpl.makeMove() Tried to make illegal move: " + move);
         }
 
@@ -397,10 +427,11 @@ public class BoardImpl implements Board {
 
         // -- save last move ---
         this._lastMove = move;
-        this._moveHistory.add(_lastMove);
+        this._moveHistory = _moveHistory.add(PackedMove.create(move, _dim), move);
 
         // -- set fields ---
         _fields[col][row] = color;
+        _zobristKey ^= Zobrist.field(row * _dim + col, color);
 
         // -- update piece counters --
         if      (color.isBlack()) {
@@ -414,7 +445,11 @@ public class BoardImpl implements Board {
         updateStringBoard(col, row);
 
         // -- turn stones ---
-        turn(move, true);
+        for (int i = 0; i < 8; i++) {
+            if (_flipCounts[i] > 0) {
+                flip(color, col, row, clockwiseLookup[i][0], clockwiseLookup[i][1], true);
+            }
+        }
 
         // -- increase lastMoveNumber counter --
         _lastMoveNumber++;
@@ -489,27 +524,59 @@ public class BoardImpl implements Board {
     }
 
     /**
-     * Turns all stones according to rules for a given move.
-     * If "commit=true" the board will be changed.
-     * If "commit=false" the board will NOT be changed.
-     * The number of turned stones is returned
+     * Returns the number of stones the given move would flip on this board.
      * @param move
-     * @param commit
-     * @return number of stones flipped
+     * @return number of flipped stones - 0 if the move is not legal on this board
      */
-    private int turn(Move move, boolean commit) {
-        assert move != null : "Parameter move may not be null";
+    public synchronized int flipCount(Move move) {
+        return countFlips(move, _flipCounts);
+    }
+
+    /**
+     * Returns the stones the given move would flip on this board as a bitset.
+     * @param move
+     * @return bitset of the flipped stones - no bit is set if the move is not legal on this board
+     */
+    public synchronized long[] flipMask(Move move) {
+        final long[] mask = new long[(_numberOfFields + 63) >>> 6];
+        if (countFlips(move, _flipCounts) == 0) {
+            return mask;
+        }
+        for (int i = 0; i < 8; i++) {
+            int col = move.getCol() - 1;
+            int row = move.getRow() - 1;
+            for (int n = 0; n < _flipCounts[i]; n++) {
+                col += clockwiseLookup[i][0];
+                row += clockwiseLookup[i][1];
+                mask[(row * _dim + col) >>> 6] |= 1L << (row * _dim + col);
+            }
+        }
+        return mask;
+    }
 
+    /**
+     * Counts the stones the given move would flip in each direction without changing the board.
+     * @param move
+     * @param counts receives the number of flipped stones for each direction of clockwiseLookup
+     * @return total number of flipped stones - 0 if the move is not legal on this board
+     */
+    private int countFlips(Move move, int[] counts) {
+        if (move == null) {
+            return 0;
+        }
         final int          col   = move.getCol() - 1;
         final int          row   = move.getRow() - 1;
         final ReversiColor color = move.getColor();
-
-        int tmpCount = 0;
-        // place stone clockwise around current field and flip fields if fields can be flipped
+        if (!isWithinBoard(col, row) || _fields[col][row] != ReversiColor.EMPTY
+                || !(color.isBlack() || color.isWhite())) {
+            return 0;
+        }
+        int total = 0;
         for (int i = 0; i < 8; i++) {
-            tmpCount += flip(color, col, row, clockwiseLookup[i][0], clockwiseLookup[i][1], commit);
+            counts[i] = flip(color, col, row, clockwiseLookup[i][0], clockwiseLookup[i][1], false);
+            total += counts[i];
         }
-        return tmpCount;
+        return total;
     }
 
     /**
@@ -570,6 +637,7 @@ public class BoardImpl implements Board {
                 if (!(col == orgcol && row == orgrow)) {
                     // inlined: updateStringBoard(col, row);
                     _stringBoard.setCharAt(row * _dim +col, _fields[col][row].toCharSymbol());
+                    _zobristKey ^= Zobrist.flip(row * _dim + col);
                     if (color == ReversiColor.BLACK) {
                         this._piecesBlack++;
                         this._piecesWhite--;
@@ -606,6 +674,8 @@ public class BoardImpl implements Board {
         _fields[(_dim >> 1)][(_dim >> 1)] = ReversiColor.BLACK; // >> equals division by 2
         // also initialize the StringBoard
         initStringBoard();
+        // also initialize the Zobrist key
+        initZobristKey();
         // also initialize the liberties
         initLiberties();
     }
@@ -709,17 +779,17 @@ public class BoardImpl implements Board {
 
     /**
      * Getter for lastMoves
-     * @return returns the move path for this board
+     * @return returns the move path for this board as an unmodifiable list which is built on first access
      */
     public synchronized List<Move> getMoveHistory() {
-        return Collections.unmodifiableList(_moveHistory);
+        return _moveHistory.asList(_dim);
     }
 
     /**
      * Is used by subclasses to add a move to the move history
      */
     protected synchronized void addToMoveHistory(Move m) {
-        _moveHistory.add(m);
+        _moveHistory = _moveHistory.add(PackedMove.create(m, _dim), m);
     }
 
     /**
@@ -852,16 +922,47 @@ public class BoardImpl implements Board {
      * @return int - difference of the mobility for the next player
      */
     public final synchronized int getMobilityDiff() {
-        // -- first get mobility for nextPlayer
-        int temp = getMoves().size();
-        // -- switch player ...
-        _nextPlayerColor = _nextPlayerColor.getInverseColor();
-        // --- and get potential mobility for other player
-        temp -= generateMoves().size(); // we cannot use getMoves as this is cached and we just switched color
-        // -- now switch back ..
-        _nextPlayerColor = _nextPlayerColor.getInverseColor();
-        // return the result
-        return temp;
+        if (_nextPlayerColor.isNone()) {
+            return 0;
+        }
+        // -- only count the moves for both players - no move lists and no switching of the next player
+        return countMoves(_nextPlayerColor) - countMoves(_nextPlayerColor.getInverseColor());
+    }
+
+    /**
+     * Returns the number of legal moves the given color would have if it had the next move.<br/>
+     * Uses the cached move list for the next player if it is valid and otherwise only counts the moves.
+     * @param color BLACK or WHITE
+     * @return number of legal moves for the given color (0 for NONE or EMPTY)
+     */
+    public synchronized int countMoves(ReversiColor color) {
+        if (!color.isBlack() && !color.isWhite()) {
+            return 0;
+        }
+        if (color == _nextPlayerColor) {
+            synchronized (_cachedMoveListLock) {
+                if (_cachedMoveListValid) {
+                    return _cachedMoveList.size();
+                }
+            }
+        }
+        int count = 0;
+        for (int col = 0; col < _dim; col++) {
+            outer_loop:
+            for (int row = 0; row < _dim; row++) {
+                if (_fields[col][row] != ReversiColor.EMPTY) {
+                    continue;
+                }
+                // place stone clockwise around current field and check if stones can be flipped
+                for (int i = 0; i < 8; i++) {
+                    if (flip(color, col, row, clockwiseLookup[i][0], clockwiseLookup[i][1], false) > 0) {
+                        count++;
+                        continue outer_loop;
+                    }
+                }
+            }
+        }
+        return count;
     }
 
     /**
@@ -880,6 +981,16 @@ public class BoardImpl implements Board {
         return _stringBoard.toString();
     }
 
+    /**
+     * Returns a 64-bit Zobrist key for this board based on the fields and the next player.
+     * The key for the fields is updated incrementally with each move.
+     *
+     * @return returns the Zobrist key for this board
+     */
+    public synchronized long getZobristKey() {
+        return _zobristKey ^ Zobrist.nextPlayer(_nextPlayerColor);
+    }
+
     /**
      * Returns a unique hash code for this board computed in the base of the field occupation
      * and the next player color.<br/>
@@ -928,6 +1039,18 @@ public class BoardImpl implements Board {
         _stringBoard.setCharAt(row* _dim +col, _fields[col][row].toCharSymbol());
      }
 
+    /**
+     * initialize the Zobrist key of the stones on the board
+     */
+    private void initZobristKey() {
+        _zobristKey = 0L;
+        for (int col = 0; col < _dim; col++) {
+            for (int row = 0; row < _dim; row++) {
+                _zobristKey ^= Zobrist.field(row * _dim + col, _fields[col][row]);
+            }
+        }
+    }
+
     /**
      * initialize the string representation of the board
      */
@@ -0,0 +1,232 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of a board.<br/>
+ * The <code>Game</code> creates one snapshot per ply and hands the same instance to the players, the UI and the
+ * remote connections. As the snapshot never changes it can be read by any number of threads without copying
+ * and without locking.
+ * <p/>
+ * The snapshot keeps a private copy of the board which is never changed and never handed out. The move history,
+ * the last move and the mobility are materialized when the snapshot is created so that reading them does not
+ * write to the copy later on - a <code>BitSetBoardImpl</code> counts the moves of the other player in scratch
+ * bitsets which must not be shared between threads. <code>makeMove()</code> throws an <code>UnsupportedOperationException</code>.<br/>
+ * To search on a snapshot create a board owned by the searching thread with <code>unsynchronizedCopy()</code>
+ * (see <code>BoardFactory.createUnsynchronizedCopy()</code>).
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class BoardSnapshot implements Board {
+
+    // -- the board copy - never changed after construction --
+    private final Board _board;
+
+    // -- materialized on creation --
+    private final List<Move> _moveHistory;
+    private final Move       _lastMove;
+    private final String     _string;
+    private final int        _movesBlack;
+    private final int        _movesWhite;
+    private final int        _mobilityDiff;
+
+    /**
+     * Creates a snapshot of the current state of the given board.<br/>
+     * A <code>SynchronizedBoard</code> is copied while holding its lock.
+     * @param board
+     */
+    public BoardSnapshot(Board board) {
+        if (board == null) {
+            throw new NullPointerException("Parameter board may not be null");
+        }
+        this._board = BoardFactory.createUnsynchronizedCopy(board);
+        // -- the history list of a board is built lazily - so we copy it here --
+        this._moveHistory = Collections.unmodifiableList(new ArrayList<Move>(_board.getMoveHistory()));
+        this._lastMove = _board.getLastMove();
+        this._string = _board.toString();
+        this._movesBlack = _board.countMoves(ReversiColor.BLACK);
+        this._movesWhite = _board.countMoves(ReversiColor.WHITE);
+        this._mobilityDiff = _board.getMobilityDiff();
+    }
+
+    /**
+     * Creates a deep copy of the board of this snapshot which is not thread safe.<br/>
+     * The copy is owned by the calling thread (see <code>SynchronizedBoard</code>).
+     * @return a copy of the board which is not thread safe
+     */
+    public Board unsynchronizedCopy() {
+        return BoardFactory.createUnsynchronizedCopy(_board);
+    }
+
+    public boolean hasPass() {
+        return _board.hasPass();
+    }
+
+    public boolean hasLegalMoves() {
+        return _board.hasLegalMoves();
+    }
+
+    public List<Move> getMoves() {
+        return _board.getMoves();
+    }
+
+    public boolean isLegalMove(Move move) {
+        return _board.isLegalMove(move);
+    }
+
+    public int flipCount(Move move) {
+        return _board.flipCount(move);
+    }
+
+    public long[] flipMask(Move move) {
+        return _board.flipMask(move);
+    }
+
+    /**
+     * A snapshot can't be changed.
+     * @throws UnsupportedOperationException always
+     */
+    public void makeMove(Move move) throws IllegalMoveException {
+        throw new UnsupportedOperationException("Error: BoardSnapshot.makeMove() A board snapshot can't be changed");
+    }
+
+    public int getDim() {
+        return _board.getDim();
+    }
+
+    public boolean isWithinBoard(int col, int row) {
+        return _board.isWithinBoard(col, row);
+    }
+
+    public int getMaxMoveNumber() {
+        return _board.getMaxMoveNumber();
+    }
+
+    public ReversiColor getField(int col, int row) {
+        return _board.getField(col, row);
+    }
+
+    public ReversiColor getNextPlayerColor() {
+        return _board.getNextPlayerColor();
+    }
+
+    public ReversiColor getLastPlayerColor() {
+        return _board.getLastPlayerColor();
+    }
+
+    public Move getLastMove() {
+        return _lastMove;
+    }
+
+    public List<Move> getMoveHistory() {
+        return _moveHistory;
+    }
+
+    public int getPiecesBlack() {
+        return _board.getPiecesBlack();
+    }
+
+    public int getPiecesWhite() {
+        return _board.getPiecesWhite();
+    }
+
+    public int getLastMoveNumber() {
+        return _board.getLastMoveNumber();
+    }
+
+    public int getNextMoveNumber() {
+        return _board.getNextMoveNumber();
+    }
+
+    public int getPiecesDiff(ReversiColor color) {
+        return _board.getPiecesDiff(color);
+    }
+
+    public int getCornerDiff(ReversiColor color) {
+        return _board.getCornerDiff(color);
+    }
+
+    public int getXsquaresDiff(ReversiColor color) {
+        return _board.getXsquaresDiff(color);
+    }
+
+    public int getCsquaresDiff(ReversiColor color) {
+        return _board.getCsquaresDiff(color);
+    }
+
+    public int getMobilityDiff() {
+        return _mobilityDiff;
+    }
+
+    public int countMoves(ReversiColor color) {
+        if (color.isBlack()) {
+            return _movesBlack;
+        } else if (color.isWhite()) {
+            return _movesWhite;
+        }
+        return 0;
+    }
+
+    public String getHashKey() {
+        return _string;
+    }
+
+    public long getZobristKey() {
+        return _board.getZobristKey();
+    }
+
+    public int getLiberties(int col, int row) {
+        return _board.getLiberties(col, row);
+    }
+
+    @Override
+    public int hashCode() {
+        return _board.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof BoardSnapshot) {
+            return _board.equals(((BoardSnapshot) o)._board);
+        }
+        return _board.equals(o);
+    }
+
+    @Override
+    public String toString() {
+        return _string;
+    }
+
+}
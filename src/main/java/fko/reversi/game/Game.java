@@ -80,6 +80,7 @@ public class Game extends ModelObservable implements Runnable, Observer {
 
     // Fields
     private          Board   _curBoard;
+    private volatile BoardSnapshot _boardSnapshot;
     private          Player  _playerBlack;
     private          Player  _playerWhite;
     private          Clock   _blackClock;
@@ -112,9 +113,10 @@ public class Game extends ModelObservable implements Runnable, Observer {
         if ( blackPlayer==null || whitePlayer == null) {
             throw new NullPointerException("Paramter blackPlayer and whitePlayer must not be null.");
         }
-        if ( boardDimension<4 || boardDimension%2!=0) {
+        if ( boardDimension<4 || boardDimension>Board.MAX_DIM || boardDimension%2!=0) {
             throw new IllegalArgumentException(
-                    "Parameter newBoardDimension must be >= 4 and a multiple of 2. Was " + boardDimension);
+                    "Parameter newBoardDimension must be >= 4, <= " + Board.MAX_DIM
+                    + " and a multiple of 2. Was " + boardDimension);
         }
         if ( timeBlack<1 || timeWhite<1) {
             throw new IllegalArgumentException(
@@ -132,7 +134,8 @@ public class Game extends ModelObservable implements Runnable, Observer {
             _blackClock.setAlarm(_blackTime,this);
             _whiteClock.setAlarm(_whiteTime,this);
         }
-        _curBoard = new BoardImpl(boardDimension);
+        _curBoard = BoardFactory.createBoard(boardDimension);
+        _boardSnapshot = new BoardSnapshot(_curBoard);
     } // end constructor
 
     /**
@@ -268,10 +271,11 @@ public class Game extends ModelObservable implements Runnable, Observer {
         Move nextMove = null;
 
         // Get the next move
+        // -- moves are validated on the snapshot without locking - makeMove() computes the flips only once --
         if (_curBoard.getNextPlayerColor().isBlack()) {
             // -- black has next move, ask player for move ---
             _blackClock.startClock();
-            while (!_curBoard.isLegalMove(nextMove = _playerBlack.getNextMove(new BoardImpl(_curBoard)))) {
+            while (!_boardSnapshot.isLegalMove(nextMove = _playerBlack.getNextMove(_boardSnapshot))) {
                 // Check if player has been stopped
                 if (_playerBlack.isStopped() && isRunningOrPaused()) {
                     stopRunningGame();
@@ -296,7 +300,7 @@ public class Game extends ModelObservable implements Runnable, Observer {
         } else if (_curBoard.getNextPlayerColor().isWhite()) {
             // -- white has next move, ask player for move ---
             _whiteClock.startClock();
-            while (!_curBoard.isLegalMove(nextMove = _playerWhite.getNextMove(new BoardImpl(_curBoard)))) {
+            while (!_boardSnapshot.isLegalMove(nextMove = _playerWhite.getNextMove(_boardSnapshot))) {
                 // Check if player has been stopped
                 if (_playerWhite.isStopped() && isRunningOrPaused()) {
                     stopRunningGame();
@@ -367,6 +371,8 @@ public class Game extends ModelObservable implements Runnable, Observer {
             if (isRunningOrPaused()) {
                 // -- here we actually commit the move to the game's board --
                 _curBoard.makeMove(nextMove);
+                // -- publish the new position once for all players and observers --
+                _boardSnapshot = new BoardSnapshot(_curBoard);
                 // -- tell the views that model has changed --
                 setChanged();
                 // -- check for any more legal moves --> next player not NONE---
@@ -721,6 +727,15 @@ public class Game extends ModelObservable implements Runnable, Observer {
         return this._curBoard;
     }
 
+    /**
+     * Returns an immutable snapshot of the current board.<br/>
+     * The snapshot is created once per ply and can be read by any thread without copying or locking.
+     * @return snapshot of the current board
+     */
+    public BoardSnapshot getBoardSnapshot() {
+        return this._boardSnapshot;
+    }
+
     /**
      * Returns the player who has the next move
      * @return Player - the player who has the next move
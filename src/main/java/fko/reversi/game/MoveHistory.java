@@ -0,0 +1,173 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A persistent (immutable) move history.<br/>
+ * Each entry points to the history before its move (parent pointer), so a board and all boards copied from it
+ * share the same entries and copying a board does not copy its history.
+ * <p/>
+ * An entry holds the move as a packed move (see PackedMove) and the <code>Move</code> object if the move was
+ * made with one. <code>Move</code> objects for packed moves are only created when the history is read
+ * as a list.
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+final class MoveHistory {
+
+    /**
+     * The empty history
+     */
+    static final MoveHistory EMPTY = new MoveHistory();
+
+    private final MoveHistory _parent;
+    private final int         _move;
+    private final Move        _moveObject;
+    private final int         _size;
+
+    // -- the empty history --
+    private MoveHistory() {
+        _parent = null;
+        _move = PackedMove.NONE;
+        _moveObject = null;
+        _size = 0;
+    }
+
+    private MoveHistory(MoveHistory parent, int move, Move moveObject) {
+        _parent = parent;
+        _move = PackedMove.clearScore(move);
+        _moveObject = moveObject;
+        _size = parent._size + 1;
+    }
+
+    /**
+     * Creates a history from a list of moves. The moves are copied.
+     * @param moves
+     * @param dim dimension of the board
+     * @return history with the given moves
+     */
+    static MoveHistory create(List<Move> moves, int dim) {
+        MoveHistory history = EMPTY;
+        for (Move move : moves) {
+            //noinspection ObjectAllocationInLoop
+            history = history.add(PackedMove.create(move, dim), new MoveImpl(move));
+        }
+        return history;
+    }
+
+    /**
+     * Returns a new history with the given move appended. This history is not changed.
+     * @param move packed move
+     * @param moveObject the Move object of the move or null if the move was made as a packed move
+     * @return new history
+     */
+    MoveHistory add(int move, Move moveObject) {
+        return new MoveHistory(this, move, moveObject);
+    }
+
+    /**
+     * @return the history before the last move - null for the empty history
+     */
+    MoveHistory getParent() {
+        return _parent;
+    }
+
+    /**
+     * @return number of moves in this history
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * @return the last move as a packed move or PackedMove.NONE for the empty history
+     */
+    int getPackedMove() {
+        return _move;
+    }
+
+    /**
+     * Returns the last move as a <code>Move</code> object. If the move has been made as a packed move
+     * a new <code>MoveImpl</code> is created.
+     * @param dim dimension of the board
+     * @return the last move or null for the empty history
+     */
+    Move getMove(int dim) {
+        if (_size == 0) {
+            return null;
+        }
+        return _moveObject != null ? _moveObject : PackedMove.toMove(_move, dim);
+    }
+
+    /**
+     * Returns an unmodifiable list view of this history - first move first.<br/>
+     * The moves are collected when the list is accessed the first time.
+     * @param dim dimension of the board
+     * @return list of moves
+     */
+    List<Move> asList(int dim) {
+        return new HistoryList(this, dim);
+    }
+
+    /**
+     * Unmodifiable list view of a history which is built on first access.
+     */
+    private static final class HistoryList extends AbstractList<Move> implements RandomAccess {
+
+        private final MoveHistory _history;
+        private final int         _dim;
+        private       Move[]      _moves = null;
+
+        private HistoryList(MoveHistory history, int dim) {
+            _history = history;
+            _dim = dim;
+        }
+
+        @Override
+        public Move get(int index) {
+            if (_moves == null) {
+                final Move[] moves = new Move[_history._size];
+                for (MoveHistory h = _history; h._size > 0; h = h._parent) {
+                    moves[h._size - 1] = h.getMove(_dim);
+                }
+                _moves = moves;
+            }
+            return _moves[index];
+        }
+
+        @Override
+        public int size() {
+            return _history._size;
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+/**
+ * Encodes a move as a primitive <code>int</code> to avoid creating <code>Move</code> objects during a search.<br/>
+ * <pre>
+ *   bits  0-13 : field index (row * dim + col with 0 to dim-1) - boards up to 128x128
+ *   bits 14-15 : color (1 = black, 2 = white)
+ *   bits 16-31 : score (signed) - e.g. used for sorting moves
+ * </pre>
+ * A packed move is never 0 so 0 can be used as "no move".<br/>
+ * <code>Move</code>/<code>MoveImpl</code> are still used outside of the search, e.g. between
+ * <code>Game</code> and <code>Player</code>.
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class PackedMove {
+
+    /**
+     * Represents no move
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Maximum number of fields a packed move can address
+     */
+    public static final int MAX_FIELDS = 1 << 14;
+
+    private static final int INDEX_MASK = MAX_FIELDS - 1;
+    private static final int COLOR_SHIFT = 14;
+    private static final int COLOR_BLACK = 1 << COLOR_SHIFT;
+    private static final int COLOR_WHITE = 2 << COLOR_SHIFT;
+    private static final int COLOR_MASK = 3 << COLOR_SHIFT;
+    private static final int SCORE_SHIFT = 16;
+    private static final int MOVE_MASK = INDEX_MASK | COLOR_MASK;
+
+    // -- Utility class should not be instantiated --
+    private PackedMove() {}
+
+    /**
+     * Creates a packed move with a score of 0.
+     * @param index row * dim + col (0 to dim-1)
+     * @param color BLACK or WHITE
+     * @return packed move
+     */
+    public static int create(int index, ReversiColor color) {
+        return index | (color.isBlack() ? COLOR_BLACK : COLOR_WHITE);
+    }
+
+    /**
+     * Creates a packed move from a move.
+     * @param move
+     * @param dim dimension of the board
+     * @return packed move
+     */
+    public static int create(Move move, int dim) {
+        return create((move.getRow() - 1) * dim + move.getCol() - 1, move.getColor());
+    }
+
+    /**
+     * Creates a new <code>MoveImpl</code> from a packed move. The score is not copied.
+     * @param move packed move
+     * @param dim dimension of the board
+     * @return new MoveImpl
+     */
+    public static Move toMove(int move, int dim) {
+        final int index = getIndex(move);
+        return new MoveImpl(index % dim + 1, index / dim + 1, getColor(move));
+    }
+
+    /**
+     * @param move packed move
+     * @return field index (row * dim + col)
+     */
+    public static int getIndex(int move) {
+        return move & INDEX_MASK;
+    }
+
+    /**
+     * @param move packed move
+     * @return color of the move
+     */
+    public static ReversiColor getColor(int move) {
+        switch (move & COLOR_MASK) {
+            case COLOR_BLACK: return ReversiColor.BLACK;
+            case COLOR_WHITE: return ReversiColor.WHITE;
+            default: return ReversiColor.NONE;
+        }
+    }
+
+    /**
+     * @param move packed move
+     * @return true if the move is a black move
+     */
+    public static boolean isBlack(int move) {
+        return (move & COLOR_MASK) == COLOR_BLACK;
+    }
+
+    /**
+     * @param move packed move
+     * @return score of the move
+     */
+    public static int getScore(int move) {
+        return move >> SCORE_SHIFT;
+    }
+
+    /**
+     * Returns the packed move with the given score.
+     * @param move packed move
+     * @param score between Short.MIN_VALUE and Short.MAX_VALUE
+     * @return packed move with the new score
+     */
+    public static int setScore(int move, int score) {
+        return (move & MOVE_MASK) | (score << SCORE_SHIFT);
+    }
+
+    /**
+     * Returns the packed move without a score. Use this to compare moves.
+     * @param move packed move
+     * @return packed move with a score of 0
+     */
+    public static int clearScore(int move) {
+        return move & MOVE_MASK;
+    }
+
+    /**
+     * Sorts the first <code>count</code> moves by their score - highest score first.<br/>
+     * Moves with the same score keep their order. Insertion sort is used as move lists are short.
+     * @param moves
+     * @param count
+     */
+    public static void sortByScore(int[] moves, int count) {
+        for (int i = 1; i < count; i++) {
+            final int move = moves[i];
+            final int score = move >> SCORE_SHIFT;
+            int j = i - 1;
+            while (j >= 0 && (moves[j] >> SCORE_SHIFT) < score) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+import java.util.List;
+
+/**
+ * A thread safe board which wraps a board that is not thread safe.<br/>
+ * All calls are synchronized on this object and delegated to the wrapped board.
+ * <p/>
+ * The board implementations (<code>BitBoardImpl</code>, <code>BitSetBoardImpl</code> and the TreeSearch boards)
+ * do not use any monitors so that a search can use them without locking. The rule for handing over a board
+ * from one thread to another is:
+ * <ul>
+ * <li>A board which is read or changed by more than one thread (e.g. the board of the <code>Game</code> which is
+ * also read by the UI) has to be a <code>SynchronizedBoard</code>.</li>
+ * <li>A board without monitors is owned by the thread which created it and must not be published to other
+ * threads. To create such a board from a shared board copy it with
+ * <code>BoardFactory.createUnsynchronizedCopy()</code> which copies the wrapped board while holding the
+ * lock.</li>
+ * </ul>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class SynchronizedBoard implements Board {
+
+    // -- the wrapped board - only accessed while holding the lock of this object --
+    private final Board _board;
+
+    /**
+     * Wraps the given board. The given board must not be used directly afterwards.
+     * @param board
+     */
+    public SynchronizedBoard(Board board) {
+        if (board == null) {
+            throw new NullPointerException("Parameter board may not be null");
+        }
+        if (board instanceof SynchronizedBoard) {
+            throw new IllegalArgumentException("Board is already synchronized");
+        }
+        this._board = board;
+    }
+
+    /**
+     * Creates a deep copy of the wrapped board without synchronization.<br/>
+     * The copy is owned by the calling thread (see class description).
+     * @return a copy of the wrapped board which is not thread safe
+     */
+    public synchronized Board unsynchronizedCopy() {
+        return BoardFactory.createUnsynchronizedCopy(_board);
+    }
+
+    public synchronized boolean hasPass() {
+        return _board.hasPass();
+    }
+
+    public synchronized boolean hasLegalMoves() {
+        return _board.hasLegalMoves();
+    }
+
+    public synchronized List<Move> getMoves() {
+        return _board.getMoves();
+    }
+
+    public synchronized boolean isLegalMove(Move move) {
+        return _board.isLegalMove(move);
+    }
+
+    public synchronized int flipCount(Move move) {
+        return _board.flipCount(move);
+    }
+
+    public synchronized long[] flipMask(Move move) {
+        return _board.flipMask(move);
+    }
+
+    public synchronized void makeMove(Move move) throws IllegalMoveException {
+        _board.makeMove(move);
+    }
+
+    public int getDim() {
+        return _board.getDim();
+    }
+
+    public boolean isWithinBoard(int col, int row) {
+        return _board.isWithinBoard(col, row);
+    }
+
+    public int getMaxMoveNumber() {
+        return _board.getMaxMoveNumber();
+    }
+
+    public synchronized ReversiColor getField(int col, int row) {
+        return _board.getField(col, row);
+    }
+
+    public synchronized ReversiColor getNextPlayerColor() {
+        return _board.getNextPlayerColor();
+    }
+
+    public synchronized ReversiColor getLastPlayerColor() {
+        return _board.getLastPlayerColor();
+    }
+
+    public synchronized Move getLastMove() {
+        return _board.getLastMove();
+    }
+
+    public synchronized List<Move> getMoveHistory() {
+        return _board.getMoveHistory();
+    }
+
+    public synchronized int getPiecesBlack() {
+        return _board.getPiecesBlack();
+    }
+
+    public synchronized int getPiecesWhite() {
+        return _board.getPiecesWhite();
+    }
+
+    public synchronized int getLastMoveNumber() {
+        return _board.getLastMoveNumber();
+    }
+
+    public synchronized int getNextMoveNumber() {
+        return _board.getNextMoveNumber();
+    }
+
+    public synchronized int getPiecesDiff(ReversiColor color) {
+        return _board.getPiecesDiff(color);
+    }
+
+    public synchronized int getCornerDiff(ReversiColor color) {
+        return _board.getCornerDiff(color);
+    }
+
+    public synchronized int getXsquaresDiff(ReversiColor color) {
+        return _board.getXsquaresDiff(color);
+    }
+
+    public synchronized int getCsquaresDiff(ReversiColor color) {
+        return _board.getCsquaresDiff(color);
+    }
+
+    public synchronized int getMobilityDiff() {
+        return _board.getMobilityDiff();
+    }
+
+    public synchronized int countMoves(ReversiColor color) {
+        return _board.countMoves(color);
+    }
+
+    public synchronized String getHashKey() {
+        return _board.getHashKey();
+    }
+
+    public synchronized long getZobristKey() {
+        return _board.getZobristKey();
+    }
+
+    public synchronized int getLiberties(int col, int row) {
+        return _board.getLiberties(col, row);
+    }
+
+    @Override
+    public synchronized int hashCode() {
+        return _board.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        // -- never hold both locks at the same time --
+        final Object other = o instanceof SynchronizedBoard ? ((SynchronizedBoard) o).unsynchronizedCopy() : o;
+        synchronized (this) {
+            return _board.equals(other);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return _board.toString();
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.game;
+
+/**
+ * Random keys for Zobrist hashing of boards.<br/>
+ * The Zobrist key of a board is the XOR of the keys of all occupied fields (field index and color)
+ * and the key for the next player. It can be updated incrementally when a stone is set or flipped
+ * by XOR-ing the key of the field for the old and the new color.
+ * <p/>
+ * Fields are indexed with <code>row * dim + col</code> (0 to dim-1) like in the string representation
+ * of a board. The keys are the same for all board implementations so boards with identical fields and
+ * next player have identical Zobrist keys.
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class Zobrist {
+
+    // keys are precomputed for boards up to 32x32 - larger boards compute the keys on the fly
+    private static final int TABLE_SIZE = 32 * 32;
+
+    private static final long[] BLACK_KEYS = new long[TABLE_SIZE];
+    private static final long[] WHITE_KEYS = new long[TABLE_SIZE];
+    private static final long[] FLIP_KEYS = new long[TABLE_SIZE];
+
+    private static final long NEXT_PLAYER_WHITE = mix(1);
+    private static final long NEXT_PLAYER_NONE = mix(2);
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            BLACK_KEYS[i] = blackKey(i);
+            WHITE_KEYS[i] = whiteKey(i);
+            FLIP_KEYS[i] = BLACK_KEYS[i] ^ WHITE_KEYS[i];
+        }
+    }
+
+    // -- Utility class should not be instantiated --
+    private Zobrist() {}
+
+    /**
+     * Returns the key for a stone of the given color on the field with the given index.
+     * @param index row * dim + col
+     * @param color
+     * @return key of the stone or 0 for an empty field
+     */
+    public static long field(int index, ReversiColor color) {
+        if (color.isBlack()) {
+            return index < TABLE_SIZE ? BLACK_KEYS[index] : blackKey(index);
+        } else if (color.isWhite()) {
+            return index < TABLE_SIZE ? WHITE_KEYS[index] : whiteKey(index);
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the value to XOR to a key when the stone on the field with the given index is flipped.
+     * @param index row * dim + col
+     * @return key for flipping the stone
+     */
+    public static long flip(int index) {
+        return index < TABLE_SIZE ? FLIP_KEYS[index] : blackKey(index) ^ whiteKey(index);
+    }
+
+    /**
+     * Returns the key for the next player.
+     * @param color
+     * @return key for the next player
+     */
+    public static long nextPlayer(ReversiColor color) {
+        if (color.isWhite()) {
+            return NEXT_PLAYER_WHITE;
+        } else if (color.isNone()) {
+            return NEXT_PLAYER_NONE;
+        }
+        return 0L;
+    }
+
+    /**
+     * Computes the Zobrist key of a board from scratch. Boards should update their key incrementally and
+     * use this only when created from another board implementation.
+     * @param board
+     * @return the Zobrist key of the board
+     */
+    public static long key(Board board) {
+        final int dim = board.getDim();
+        long key = nextPlayer(board.getNextPlayerColor());
+        for (int col = 0; col < dim; col++) {
+            for (int row = 0; row < dim; row++) {
+                key ^= field(row * dim + col, board.getField(col + 1, row + 1));
+            }
+        }
+        return key;
+    }
+
+    private static long blackKey(int index) {
+        return mix(((long) index << 1) + 3);
+    }
+
+    private static long whiteKey(int index) {
+        return mix(((long) index << 1) + 4);
+    }
+
+    /**
+     * SplitMix64 - creates well distributed pseudo random numbers from a counter
+     */
+    private static long mix(long x) {
+        long z = x * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -69,7 +69,7 @@ public interface Player extends Runnable {
 
     /**
      * return next move
-     * @param board
+     * @param board the board to find a move for - the Game passes an immutable BoardSnapshot
      * @return Move
      */
     Move getNextMove(Board board);
@@ -0,0 +1,473 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.Game;
+import fko.reversi.game.IllegalMoveException;
+import fko.reversi.game.PackedMove;
+import fko.reversi.game.ReversiColor;
+
+/**
+ * <p>
+ * A perfect play endgame solver.<br/>
+ * The solver searches to the end of the game and returns the exact final disc difference. The empty fields go to
+ * the winner. It uses its own lean negamax alpha-beta search on a <code>TreeSearchBoard</code> (make/undo):
+ * <ul>
+ * <li>moves are generated from a list of the empty fields - no move lists are created by the board</li>
+ * <li>with many empties the moves are ordered fastest-first (least moves for the opponent) and by parity</li>
+ * <li>with few empties the moves are only ordered by parity - moves into a quadrant with an odd number of empty
+ * fields first</li>
+ * <li>the last two and the last empty field have their own routines - the last move is not even made</li>
+ * <li>the cache is only used with more than <code>NO_CACHE_EMPTIES</code> empty fields</li>
+ * </ul>
+ * The cache is an <code>EndgameTable</code> of its own - the exact bounds never mix with the heuristic values of
+ * the search engines.
+ * </p>
+ * <p>
+ * An instance is used by one thread. <code>stop()</code> may be called by any thread - the result of a stopped
+ * search is not valid.<br/>
+ * If a game is set the solver waits while the game is paused and stops itself when the game has been stopped.
+ * The game status is locked so it is only checked every <code>GAME_CHECK_NODES</code> nodes.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class EndgameSolver {
+
+    // Below this number of empty fields the cache is not used
+    private static final int NO_CACHE_EMPTIES = 8;
+
+    // Above this number of empty fields the moves are sorted fastest-first
+    private static final int FASTEST_FIRST_EMPTIES = 6;
+
+    // The status of the game is checked every this many nodes (a power of 2)
+    private static final int GAME_CHECK_NODES = 1 << 14;
+
+    // The cache - may be null
+    private final EndgameTable _cache;
+
+    // The board of the current search
+    private TreeSearchBoard _board = null;
+    private int             _dim   = 0;
+    private int             _infinity;
+
+    // Doubly linked list of the empty fields - _head is the list head
+    private int[] _next;
+    private int[] _prev;
+    private int   _head;
+
+    // Quadrant of each field and a bit for each quadrant with an odd number of empty fields
+    private int[] _region;
+    private int   _parity;
+
+    // Move buffers for the fastest-first ordering - one per number of empty fields
+    private int[][] _moveBuffers;
+
+    // Statistics
+    private long _nodes = 0;
+
+    private volatile boolean _stopped = false;
+
+    // The game of the search - may be null
+    private Game _game = null;
+
+    /**
+     * Creates a solver.
+     * @param cache the cache to use or null
+     */
+    public EndgameSolver(EndgameTable cache) {
+        _cache = cache;
+    }
+
+    /**
+     * Solves the given board.<br/>
+     * The board may have any player as next player and may also be a finished game. The board is unchanged
+     * after the call.<br/>
+     * The search uses a fail-soft alpha-beta window: a result <= alpha is an upper bound, a result >= beta a
+     * lower bound of the exact value.
+     * @param board
+     * @param color the value is returned from the view of this color
+     * @param alpha
+     * @param beta
+     * @return the final disc difference from the view of color with perfect play of both players
+     */
+    public int solve(TreeSearchBoard board, ReversiColor color, int alpha, int beta) {
+        init(board);
+        final int empties = countEmpties();
+        final ReversiColor next = _board.getNextPlayerColor();
+        if (next.isNone()) {
+            return finalScore(color, empties);
+        } else if (next == color) {
+            return search(next, alpha, beta, empties);
+        } else {
+            return -search(next, -beta, -alpha, empties);
+        }
+    }
+
+    /**
+     * Stops the current search. The result of the search is not valid.
+     */
+    public void stop() {
+        _stopped = true;
+    }
+
+    /**
+     * Sets the game whose pause and stop the search follows.
+     * @param game the game or null
+     */
+    public void setGame(Game game) {
+        _game = game;
+    }
+
+    /**
+     * @return true if the search has been stopped
+     */
+    public boolean isStopped() {
+        return _stopped;
+    }
+
+    /**
+     * Allows the next search after a stop and resets the node counter.
+     */
+    public void reset() {
+        _stopped = false;
+        _nodes = 0;
+    }
+
+    /**
+     * @return the number of nodes searched since the last reset
+     */
+    public long getNodes() {
+        return _nodes;
+    }
+
+    /**
+     * Negamax search for the next player of the board.
+     * @param color the next player of the board
+     * @param alpha
+     * @param beta
+     * @param empties number of empty fields
+     * @return value from the view of color
+     */
+    private int search(ReversiColor color, int alpha, int beta, int empties) {
+        _nodes++;
+
+        // the last fields
+        if (empties == 1) {
+            return lastMove(color, _next[_head]);
+        }
+        if (empties == 2) {
+            return lastTwoMoves(color, alpha, beta);
+        }
+
+        // check the game only every few thousand nodes as the game status is locked
+        if (_game != null && (_nodes & (GAME_CHECK_NODES - 1)) == 0) {
+            _game.waitWhileGamePaused();
+            if (_game.isOverOrStopped()) {
+                _stopped = true;
+            }
+        }
+
+        // the result is not used anyway
+        if (_stopped) {
+            return alpha;
+        }
+
+        // cache lookup
+        final boolean useCache = _cache != null && empties > NO_CACHE_EMPTIES;
+        final long key = useCache ? _board.getZobristKey() : 0L;
+        final long cached = useCache ? _cache.probe(key, empties) : 0L;
+        int lowerbound = -_infinity;
+        int upperbound = _infinity;
+        if (cached != 0L) {
+            lowerbound = EndgameTable.getLowerbound(cached);
+            upperbound = EndgameTable.getUpperbound(cached);
+            if (upperbound <= alpha || upperbound == lowerbound) {
+                return upperbound;
+            }
+            if (lowerbound >= beta) {
+                return lowerbound;
+            }
+            alpha = Math.max(alpha, lowerbound);
+            beta  = Math.min(beta, upperbound);
+        }
+
+        final int bestValue = empties > FASTEST_FIRST_EMPTIES
+                ? searchFastestFirst(color, alpha, beta, empties)
+                : searchParity(color, alpha, beta, empties);
+
+        // cache update
+        if (useCache && !_stopped) {
+            if (bestValue <= alpha) {
+                upperbound = bestValue;
+            } else if (bestValue >= beta) {
+                lowerbound = bestValue;
+            } else {
+                lowerbound = bestValue;
+                upperbound = bestValue;
+            }
+            _cache.store(key, empties, lowerbound, upperbound);
+        }
+
+        return bestValue;
+    }
+
+    /**
+     * Searches the moves into quadrants with an odd number of empty fields first, then the others.
+     */
+    private int searchParity(ReversiColor color, int alpha, int beta, int empties) {
+        int bestValue = -_infinity;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int field = _next[_head]; field != _head; field = _next[field]) {
+                final boolean odd = (_parity & (1 << _region[field])) != 0;
+                if (odd != (pass == 0)) {
+                    continue;
+                }
+                final int move = PackedMove.create(field, color);
+                if (_board.flipCount(move) == 0) {
+                    continue;
+                }
+                final int value = searchChild(color, move, alpha, beta, empties);
+                if (value > bestValue) {
+                    bestValue = value;
+                    if (value > alpha) {
+                        alpha = value;
+                        if (alpha >= beta) {
+                            return bestValue;
+                        }
+                    }
+                }
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Searches the moves with the least moves for the opponent first. Parity breaks ties.
+     */
+    private int searchFastestFirst(ReversiColor color, int alpha, int beta, int empties) {
+        final ReversiColor opponent = color.getInverseColor();
+        final int[] moves = _moveBuffers[empties];
+        int count = 0;
+        for (int field = _next[_head]; field != _head; field = _next[field]) {
+            final int move = PackedMove.create(field, color);
+            if (_board.flipCount(move) == 0) {
+                continue;
+            }
+            makeMove(move);
+            final int mobility = _board.countMoves(opponent);
+            _board.undoMove();
+            final int odd = (_parity & (1 << _region[field])) != 0 ? 1 : 0;
+            moves[count++] = PackedMove.setScore(move, odd - 2 * mobility);
+        }
+        PackedMove.sortByScore(moves, count);
+
+        int bestValue = -_infinity;
+        for (int i = 0; i < count; i++) {
+            final int value = searchChild(color, PackedMove.clearScore(moves[i]), alpha, beta, empties);
+            if (value > bestValue) {
+                bestValue = value;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Makes the move, searches the child and takes the move back.
+     * @return value of the child from the view of color
+     */
+    private int searchChild(ReversiColor color, int move, int alpha, int beta, int empties) {
+        final int field = PackedMove.getIndex(move);
+        makeMove(move);
+        removeEmpty(field);
+        final ReversiColor next = _board.getNextPlayerColor();
+        final int value;
+        if (next.isNone()) {
+            value = finalScore(color, empties - 1);
+        } else if (next == color) { // the opponent has to pass
+            value = search(color, alpha, beta, empties - 1);
+        } else {
+            value = -search(next, -beta, -alpha, empties - 1);
+        }
+        restoreEmpty(field);
+        _board.undoMove();
+        return value;
+    }
+
+    /**
+     * Two empty fields left - tries both with the last move for the remaining field.
+     */
+    private int lastTwoMoves(ReversiColor color, int alpha, int beta) {
+        final int first = _next[_head];
+        final int second = _next[first];
+        int bestValue = -_infinity;
+        for (int i = 0; i < 2; i++) {
+            final int field = i == 0 ? first : second;
+            final int other = i == 0 ? second : first;
+            final int move = PackedMove.create(field, color);
+            if (_board.flipCount(move) == 0) {
+                continue;
+            }
+            makeMove(move);
+            final ReversiColor next = _board.getNextPlayerColor();
+            final int value;
+            if (next.isNone()) {
+                value = finalScore(color, 1);
+            } else if (next == color) {
+                value = lastMove(color, other);
+            } else {
+                value = -lastMove(next, other);
+            }
+            _board.undoMove();
+            if (value > bestValue) {
+                bestValue = value;
+                if (bestValue >= beta) {
+                    break;
+                }
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * One empty field left and color is the next player - so color can move there.<br/>
+     * The move is not made: the disc difference changes by the flipped stones twice plus the new stone.
+     */
+    private int lastMove(ReversiColor color, int field) {
+        _nodes++;
+        final int flips = _board.flipCount(PackedMove.create(field, color));
+        return _board.getPiecesDiff(color) + 2 * flips + 1;
+    }
+
+    /**
+     * The final disc difference - the empty fields go to the winner.
+     */
+    private int finalScore(ReversiColor color, int empties) {
+        final int diff = _board.getPiecesDiff(color);
+        if (diff > 0) {
+            return diff + empties;
+        } else if (diff < 0) {
+            return diff - empties;
+        }
+        return 0;
+    }
+
+    private void makeMove(int move) {
+        try {
+            _board.makeMove(move);
+        } catch (IllegalMoveException e) {
+            throw new RuntimeException("Illegal Move should not happen here", e);
+        }
+    }
+
+    private void removeEmpty(int field) {
+        _next[_prev[field]] = _next[field];
+        _prev[_next[field]] = _prev[field];
+        _parity ^= 1 << _region[field];
+    }
+
+    private void restoreEmpty(int field) {
+        _next[_prev[field]] = field;
+        _prev[_next[field]] = field;
+        _parity ^= 1 << _region[field];
+    }
+
+    private int countEmpties() {
+        int count = 0;
+        for (int field = _next[_head]; field != _head; field = _next[field]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Builds the list of empty fields of the board - corners first, the fields next to the corners last.
+     */
+    private void init(TreeSearchBoard board) {
+        _board = board;
+        if (_dim != board.getDim()) {
+            _dim = board.getDim();
+            final int fields = _dim * _dim;
+            _infinity = fields + 1;
+            _head = fields;
+            _next = new int[fields + 1];
+            _prev = new int[fields + 1];
+            _region = new int[fields];
+            for (int field = 0; field < fields; field++) {
+                final int col = field % _dim;
+                final int row = field / _dim;
+                _region[field] = (col < _dim / 2 ? 0 : 1) + (row < _dim / 2 ? 0 : 2);
+            }
+            _moveBuffers = new int[fields + 1][fields];
+        }
+
+        // -- append the empty fields ordered by their type --
+        _next[_head] = _head;
+        _prev[_head] = _head;
+        _parity = 0;
+        for (int type = 0; type < 4; type++) {
+            for (int field = 0; field < _dim * _dim; field++) {
+                if (fieldType(field) == type && board.getField(field % _dim + 1, field / _dim + 1).isNone()) {
+                    _prev[field] = _prev[_head];
+                    _next[field] = _head;
+                    _next[_prev[_head]] = field;
+                    _prev[_head] = field;
+                    _parity ^= 1 << _region[field];
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 0 for corners, 1 for edges, 2 for inner fields and 3 for the fields next to a corner
+     */
+    private int fieldType(int field) {
+        final int m = _dim - 1;
+        final int col = field % _dim;
+        final int row = field / _dim;
+        final int colDist = Math.min(col, m - col);
+        final int rowDist = Math.min(row, m - row);
+        if (colDist == 0 && rowDist == 0) {
+            return 0;
+        }
+        if (colDist <= 1 && rowDist <= 1) {
+            return 3;
+        }
+        if (colDist == 0 || rowDist == 0) {
+            return 1;
+        }
+        return 2;
+    }
+
+}
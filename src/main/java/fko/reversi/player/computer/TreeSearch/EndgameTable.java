@@ -0,0 +1,160 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The table of the <code>EndgameSolver</code> - exact bounds of the final disc difference.<br/>
+ * The solver has its own table so its bounds never mix with the heuristic values of the search engines. An entry
+ * is only found for the same full 64 bit Zobrist key and the same number of empty fields.
+ * </p>
+ * <p>
+ * The table is a single <code>long[]</code> with a power of two number of buckets, each bucket has two entries:
+ * <ul>
+ * <li>slot 0 - depth-preferred: only replaced by the same board or by a board with more (or equal) empty fields</li>
+ * <li>slot 1 - always-replace: takes everything slot 0 refuses</li>
+ * </ul>
+ * An entry are two longs:
+ * <pre>
+ *  value word:  bits  0-15 lowerbound, bits 16-31 upperbound, bits 32-39 empty fields, bit 40 used flag
+ *  key word:    Zobrist key XOR value word
+ * </pre>
+ * The table does not use locks. If a reader sees the two words of different writes the key does not match and
+ * the entry is treated as a miss.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class EndgameTable {
+
+    // -- longs per entry and per bucket --
+    private static final int ENTRY_SIZE  = 2;
+    private static final int BUCKET_SIZE = 2 * ENTRY_SIZE;
+
+    // -- bytes per bucket --
+    private static final int BUCKET_BYTES = BUCKET_SIZE * 8;
+
+    // -- the largest table we can hold in one array --
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    // -- marks a used entry --
+    private static final long FLAG_USED = 1L << 40;
+
+    // -- the table --
+    private final long[] _table;
+    private final int    _bucketMask;
+
+    /**
+     * Creates a table which uses at most the given memory.<br/>
+     * The number of buckets is rounded down to a power of two.
+     * @param sizeMB size of the table in megabytes
+     */
+    public EndgameTable(int sizeMB) {
+        if (sizeMB < 1) {
+            throw new IllegalArgumentException("Parameter sizeMB must be at least 1. Was " + sizeMB);
+        }
+        final long buckets = Math.min(((long) sizeMB << 20) / BUCKET_BYTES, MAX_BUCKETS);
+        final int size = Integer.highestOneBit((int) buckets);
+        _table = new long[size * BUCKET_SIZE];
+        _bucketMask = size - 1;
+    }
+
+    /**
+     * Looks up the bounds of a board.
+     * @param zobristKey
+     * @param empties number of empty fields of the board
+     * @return the value word of the entry (see <code>getLowerbound()</code> and <code>getUpperbound()</code>)
+     *         or 0 if the board is not in the table
+     */
+    public long probe(long zobristKey, int empties) {
+        final int bucket = bucket(zobristKey);
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i += ENTRY_SIZE) {
+            final long value = _table[i];
+            if ((value & FLAG_USED) != 0 && (_table[i + 1] ^ value) == zobristKey && empties(value) == empties) {
+                return value;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores the bounds of a board.
+     * @param zobristKey
+     * @param empties number of empty fields of the board
+     * @param lowerbound
+     * @param upperbound
+     */
+    public void store(long zobristKey, int empties, int lowerbound, int upperbound) {
+        final int bucket = bucket(zobristKey);
+        int slot = bucket + ENTRY_SIZE; // always-replace
+        final long value0 = _table[bucket];
+        if ((value0 & FLAG_USED) == 0 || (_table[bucket + 1] ^ value0) == zobristKey || empties(value0) <= empties) {
+            slot = bucket; // depth-preferred
+        }
+        final long value = FLAG_USED
+                | ((long) (empties & 0xFF) << 32)
+                | ((upperbound & 0xFFFFL) << 16)
+                | (lowerbound & 0xFFFFL);
+        _table[slot] = value;
+        _table[slot + 1] = zobristKey ^ value;
+    }
+
+    /**
+     * @param value value word returned by <code>probe()</code>
+     * @return the lowerbound of the entry
+     */
+    public static int getLowerbound(long value) {
+        return (short) value;
+    }
+
+    /**
+     * @param value value word returned by <code>probe()</code>
+     * @return the upperbound of the entry
+     */
+    public static int getUpperbound(long value) {
+        return (short) (value >>> 16);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(_table, 0L);
+    }
+
+    private static int empties(long value) {
+        return (int) ((value >>> 32) & 0xFFL);
+    }
+
+    private int bucket(long zobristKey) {
+        return ((int) zobristKey & _bucketMask) * BUCKET_SIZE;
+    }
+
+}
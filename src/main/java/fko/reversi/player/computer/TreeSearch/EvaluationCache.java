@@ -0,0 +1,133 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A small direct-mapped cache for the static evaluations of the leaf nodes.<br/>
+ * The evaluation of a board does not depend on the search depth. It is kept apart from the
+ * <code>TranspositionTable</code> so the many leaf evaluations do not replace the bounds of the inner nodes and
+ * can be found again in the next MTD(f) pass or iteration.
+ * </p>
+ * <p>
+ * The table is a single <code>long[]</code> with a power of two number of entries. An entry are two longs:
+ * <pre>
+ *  value word:  bit 32 used flag, bits 0-31 value
+ *  key word:    Zobrist key XOR value word
+ * </pre>
+ * The lower bits of the Zobrist key select the entry, a new board always replaces the old one.
+ * </p>
+ * <p>
+ * The cache does not use locks. If a reader sees the two words of different writes the key does not match and
+ * the entry is treated as a miss.<br/>
+ * Statistics like hits and misses are counted by the engine.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class EvaluationCache {
+
+    // -- longs per entry --
+    private static final int ENTRY_SIZE  = 2;
+
+    // -- bytes per entry --
+    private static final int ENTRY_BYTES = ENTRY_SIZE * 8;
+
+    // -- the largest table we can hold in one array --
+    private static final int MAX_ENTRIES = 1 << 29;
+
+    // -- marks a used entry --
+    private static final long FLAG_USED = 1L << 32;
+
+    // -- the table --
+    private final long[] _table;
+    private final int    _entryMask;
+
+    /**
+     * Creates an evaluation cache which uses at most the given memory.<br/>
+     * The number of entries is rounded down to a power of two.
+     * @param sizeMB size of the cache in megabytes
+     */
+    public EvaluationCache(int sizeMB) {
+        if (sizeMB < 1) {
+            throw new IllegalArgumentException("Parameter sizeMB must be at least 1. Was " + sizeMB);
+        }
+        final long entries = Math.min(((long) sizeMB << 20) / ENTRY_BYTES, MAX_ENTRIES);
+        final int size = Integer.highestOneBit((int) entries);
+        _table = new long[size * ENTRY_SIZE];
+        _entryMask = size - 1;
+    }
+
+    /**
+     * Looks up the evaluation of the board with the given Zobrist key.
+     * @param zobristKey
+     * @param missing returned if the board is not in the cache
+     * @return the evaluation or <code>missing</code>
+     */
+    public int probe(long zobristKey, int missing) {
+        final int i = index(zobristKey);
+        final long value = _table[i];
+        if ((value & FLAG_USED) != 0 && (_table[i + 1] ^ value) == zobristKey) {
+            return (int) value;
+        }
+        return missing;
+    }
+
+    /**
+     * Stores the evaluation of a board - the entry of any other board at the same place is replaced.
+     * @param zobristKey
+     * @param value
+     */
+    public void store(long zobristKey, int value) {
+        final int i = index(zobristKey);
+        final long word = FLAG_USED | (value & 0xFFFFFFFFL);
+        _table[i] = word;
+        _table[i + 1] = zobristKey ^ word;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(_table, 0L);
+    }
+
+    /**
+     * @return the number of entries the cache can hold
+     */
+    public int getCapacity() {
+        return _table.length / ENTRY_SIZE;
+    }
+
+    private int index(long zobristKey) {
+        return ((int) zobristKey & _entryMask) * ENTRY_SIZE;
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Dynamic move ordering for the tree search engines - killer moves and the history heuristic.<br/>
+ * The engines report every move which produced a cut off with <code>addCutoff()</code>. This updates
+ * <ul>
+ * <li>two killer slots per move number - the last two different cut off moves of that move number</li>
+ * <li>a history table per field and color - cut offs add depth*depth so cut offs high in the tree count more</li>
+ * </ul>
+ * <code>order()</code> blends both into the static score the BoardAnalyser has given the moves.
+ * </p>
+ * <p>
+ * Killers are kept per move number of the game and not per ply of the search. So the killers of the last search
+ * are still at the right place when the next search starts two moves later. <code>newSearch()</code> halves the
+ * history so old cut offs fade out.
+ * </p>
+ * <p>
+ * The tables can be shared by several search threads without locks. A lost or mixed update only changes the order
+ * of the moves, never the result of the search.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class MoveOrdering {
+
+    // -- one step of the static field value of the BoardAnalyser --
+    private static final int FIELD_WEIGHT = 64;
+
+    // -- bonus for the killer moves - field values range from -10 to 20 so killers are nearly always first --
+    private static final int KILLER_1_BONUS = 64 * FIELD_WEIGHT;
+    private static final int KILLER_2_BONUS = 48 * FIELD_WEIGHT;
+
+    // -- the best history score is worth that many field value steps - the field value mostly breaks ties --
+    private static final int HISTORY_WEIGHT = 128 * FIELD_WEIGHT;
+
+    // -- history values are halved when one of them reaches this --
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    // -- killers per move number --
+    private final int[] _killers1;
+    private final int[] _killers2;
+
+    // -- history per color (0 = black, 1 = white) and field index --
+    private final int[][] _history;
+    private int _historyMax = 1;
+
+    /**
+     * Creates empty tables for a board.
+     * @param dim dimension of the board
+     */
+    public MoveOrdering(int dim) {
+        final int fields = dim * dim;
+        // -- the move numbers of a game go from 1 to fields-4 but passes may be counted as well --
+        _killers1 = new int[2 * fields + 1];
+        _killers2 = new int[2 * fields + 1];
+        _history = new int[2][fields];
+    }
+
+    /**
+     * Starts a new search - the history is decayed, the killers stay.
+     */
+    public void newSearch() {
+        decayHistory();
+    }
+
+    /**
+     * Removes all killers and history.
+     */
+    public void clear() {
+        Arrays.fill(_killers1, PackedMove.NONE);
+        Arrays.fill(_killers2, PackedMove.NONE);
+        Arrays.fill(_history[0], 0);
+        Arrays.fill(_history[1], 0);
+        _historyMax = 1;
+    }
+
+    /**
+     * Records a move which produced a cut off.
+     * @param moveNumber last move number of the board the move was made on
+     * @param move packed move
+     * @param depth remaining search depth of the node
+     */
+    public void addCutoff(int moveNumber, int move, int depth) {
+        move = PackedMove.clearScore(move);
+        if (moveNumber < _killers1.length && _killers1[moveNumber] != move) {
+            _killers2[moveNumber] = _killers1[moveNumber];
+            _killers1[moveNumber] = move;
+        }
+        if (depth > 0) {
+            final int[] history = _history[PackedMove.isBlack(move) ? 0 : 1];
+            final int index = PackedMove.getIndex(move);
+            final int value = history[index] + depth * depth;
+            history[index] = value;
+            if (value > _historyMax) {
+                _historyMax = value;
+                if (value >= HISTORY_LIMIT) {
+                    decayHistory();
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-sorts the moves of a node which have been scored by <code>TreeSearchBoardAnalyser.sortMoves()</code>.<br/>
+     * The killers and the history are added to the score of the moves.
+     * @param moveNumber last move number of the board
+     * @param moves packed moves with their static score
+     * @param count number of moves in the array
+     */
+    public void order(int moveNumber, int[] moves, int count) {
+        final int killer1 = moveNumber < _killers1.length ? _killers1[moveNumber] : PackedMove.NONE;
+        final int killer2 = moveNumber < _killers2.length ? _killers2[moveNumber] : PackedMove.NONE;
+        final int historyMax = _historyMax;
+        for (int i = 0; i < count; i++) {
+            final int move = PackedMove.clearScore(moves[i]);
+            int score = PackedMove.getScore(moves[i]) * FIELD_WEIGHT;
+            if (move == killer1) {
+                score += KILLER_1_BONUS;
+            } else if (move == killer2) {
+                score += KILLER_2_BONUS;
+            }
+            final int history = _history[PackedMove.isBlack(move) ? 0 : 1][PackedMove.getIndex(move)];
+            score += (int) ((long) history * HISTORY_WEIGHT / historyMax);
+            moves[i] = PackedMove.setScore(move, Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+        }
+        PackedMove.sortByScore(moves, count);
+    }
+
+    /**
+     * Halves all history values.
+     */
+    private void decayHistory() {
+        for (int[] history : _history) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+        _historyMax = Math.max(_historyMax >> 1, 1);
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * <p>
+ * The parameters for Multi-ProbCut (Michael Buro).<br/>
+ * The value of a deep search is predicted by the value of a shallow search:
+ * <pre>
+ *   v(deep) = a * v(shallow) + b + e      with e normal distributed with a standard deviation of sigma
+ * </pre>
+ * If the shallow search shows that the deep search would be outside of the window with a probability given by the
+ * threshold the deep search is not needed. All values are from the view of the player to move.
+ * </p>
+ * <p>
+ * The parameters depend on the stage of the game (the number of discs played) and on the depth of the deep search.
+ * Every deep depth has one or more checks with a different shallow depth - the cheapest check comes first.<br/>
+ * The parameters are only valid for the board dimension they were calibrated for.<br/>
+ * They are read from a properties file which is created by <code>ProbCutCalibration</code>:
+ * <pre>
+ *   probcut.dim = 8
+ *   probcut.stageMoves = 6
+ *   probcut.&lt;stage&gt;.&lt;deep depth&gt; = &lt;shallow depth&gt; &lt;a&gt; &lt;b&gt; &lt;sigma&gt; [; &lt;shallow depth&gt; ...]
+ * </pre>
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class ProbCut {
+
+    // -- keys of the parameter file --
+    private static final String KEY_PREFIX      = "probcut.";
+    private static final String KEY_DIM         = KEY_PREFIX + "dim";
+    private static final String KEY_STAGE_MOVES = KEY_PREFIX + "stageMoves";
+
+    // -- the deepest search we have parameters for --
+    public static final int MAX_DEPTH = 32;
+
+    // -- the board dimension the parameters were calibrated for --
+    private final int _dim;
+
+    // -- number of discs played per stage --
+    private final int _stageMoves;
+
+    // -- the checks per stage and deep depth - null if there are none --
+    private final Check[][][] _checks;
+
+    /**
+     * Creates an empty set of parameters.
+     * @param dim board dimension the parameters are calibrated for
+     * @param stageMoves number of discs played per stage
+     * @param stages number of stages
+     */
+    public ProbCut(int dim, int stageMoves, int stages) {
+        if (dim < 4) {
+            throw new IllegalArgumentException("Parameter dim must be at least 4. Was " + dim);
+        }
+        if (stageMoves < 1) {
+            throw new IllegalArgumentException("Parameter stageMoves must be at least 1. Was " + stageMoves);
+        }
+        _dim = dim;
+        _stageMoves = stageMoves;
+        _checks = new Check[stages][MAX_DEPTH + 1][];
+    }
+
+    /**
+     * Reads the parameters from a properties file.
+     * @param fileName
+     * @return the parameters
+     * @throws IOException if the file can not be read
+     * @throws IllegalArgumentException if the file has invalid entries
+     */
+    public static ProbCut load(String fileName) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(fileName);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        if (properties.getProperty(KEY_DIM) == null) {
+            throw new IllegalArgumentException("ProbCut file has no board dimension: " + KEY_DIM);
+        }
+        final int dim = Integer.parseInt(properties.getProperty(KEY_DIM).trim());
+        final int stageMoves = Integer.parseInt(properties.getProperty(KEY_STAGE_MOVES, "0").trim());
+        int stages = 0;
+        for (String key : properties.stringPropertyNames()) {
+            if (isCheckKey(key)) {
+                stages = Math.max(stages, parseKey(key)[0] + 1);
+            }
+        }
+
+        final ProbCut probCut = new ProbCut(dim, stageMoves, stages);
+        for (String key : properties.stringPropertyNames()) {
+            if (isCheckKey(key)) {
+                final int[] stageAndDepth = parseKey(key);
+                final String[] checks = properties.getProperty(key).split(";");
+                final Check[] parsed = new Check[checks.length];
+                for (int i = 0; i < checks.length; i++) {
+                    final String[] values = checks[i].trim().split("\\s+");
+                    if (values.length != 4) {
+                        throw new IllegalArgumentException("Invalid ProbCut check in " + key + ": " + checks[i]);
+                    }
+                    parsed[i] = new Check(Integer.parseInt(values[0]), Float.parseFloat(values[1]),
+                            Float.parseFloat(values[2]), Float.parseFloat(values[3]));
+                }
+                probCut.setChecks(stageAndDepth[0], stageAndDepth[1], parsed);
+            }
+        }
+        probCut.extrapolate();
+        return probCut;
+    }
+
+    /**
+     * Deep searches are too expensive for the calibration. For depths beyond the deepest calibrated depth the
+     * checks of the deepest calibrated depth with the same parity are used with their shallow depths moved by
+     * the same number of plies. The error of a prediction mainly depends on the difference of the depths.
+     */
+    private void extrapolate() {
+        for (Check[][] checksOfStage : _checks) {
+            int deepest = 0;
+            for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+                if (checksOfStage[depth] != null) {
+                    deepest = depth;
+                }
+            }
+            for (int depth = deepest + 1; deepest > 0 && depth <= MAX_DEPTH; depth++) {
+                final int base = deepest - (depth - deepest) % 2;
+                if (checksOfStage[base] == null) {
+                    continue;
+                }
+                final Check[] checks = new Check[checksOfStage[base].length];
+                for (int i = 0; i < checks.length; i++) {
+                    final Check check = checksOfStage[base][i];
+                    checks[i] = new Check(check._shallowDepth + depth - base, check._a, check._b, check._sigma);
+                }
+                checksOfStage[depth] = checks;
+            }
+        }
+    }
+
+    /**
+     * Writes the parameters as properties file.
+     * @param out
+     * @param comment written as comment at the top of the file
+     */
+    public void store(PrintWriter out, String comment) {
+        for (String line : comment.split("\n")) {
+            out.println("# " + line);
+        }
+        out.println(KEY_DIM + " = " + _dim);
+        out.println(KEY_STAGE_MOVES + " = " + _stageMoves);
+        for (int stage = 0; stage < _checks.length; stage++) {
+            for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+                final Check[] checks = _checks[stage][depth];
+                if (checks == null) {
+                    continue;
+                }
+                final StringBuilder line = new StringBuilder(KEY_PREFIX + stage + '.' + depth + " =");
+                for (int i = 0; i < checks.length; i++) {
+                    line.append(i == 0 ? " " : " ; ").append(String.format(Locale.US, "%d %.4f %.2f %.2f",
+                            checks[i]._shallowDepth, checks[i]._a, checks[i]._b, checks[i]._sigma));
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    /**
+     * @return the board dimension the parameters are calibrated for
+     */
+    public int getDim() {
+        return _dim;
+    }
+
+    /**
+     * @param moveNumber number of discs played
+     * @return the stage of the game
+     */
+    public int getStage(int moveNumber) {
+        return Math.max(moveNumber, 0) / _stageMoves;
+    }
+
+    /**
+     * @param moveNumber number of discs played
+     * @param depth depth of the deep search
+     * @return the checks for a deep search - cheapest first - or null if there are none
+     */
+    public Check[] getChecks(int moveNumber, int depth) {
+        final int stage = getStage(moveNumber);
+        if (stage >= _checks.length || depth > MAX_DEPTH) {
+            return null;
+        }
+        return _checks[stage][depth];
+    }
+
+    /**
+     * Sets the checks for a stage and a deep depth.
+     * @param stage
+     * @param depth depth of the deep search
+     * @param checks the checks - cheapest first - or null
+     */
+    public void setChecks(int stage, int depth, Check[] checks) {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Invalid depth for ProbCut: " + depth);
+        }
+        for (int i = 0; checks != null && i < checks.length; i++) {
+            if (checks[i]._shallowDepth < 0 || checks[i]._shallowDepth >= depth || checks[i]._a <= 0f) {
+                throw new IllegalArgumentException("Invalid ProbCut check for depth " + depth + ": " + checks[i]);
+            }
+        }
+        _checks[stage][depth] = checks;
+    }
+
+    private static boolean isCheckKey(String key) {
+        return key.startsWith(KEY_PREFIX) && !key.equals(KEY_DIM) && !key.equals(KEY_STAGE_MOVES);
+    }
+
+    private static int[] parseKey(String key) {
+        final String[] parts = key.substring(KEY_PREFIX.length()).split("\\.");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid ProbCut key: " + key);
+        }
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * One check - the regression of the deep search on a shallow search.
+     */
+    public static final class Check {
+        private final int   _shallowDepth;
+        private final float _a;
+        private final float _b;
+        private final float _sigma;
+
+        public Check(int shallowDepth, float a, float b, float sigma) {
+            _shallowDepth = shallowDepth;
+            _a = a;
+            _b = b;
+            _sigma = sigma;
+        }
+
+        public int   getShallowDepth() {return _shallowDepth; }
+        public float getA           () {return _a; }
+        public float getB           () {return _b; }
+        public float getSigma       () {return _sigma; }
+
+        /**
+         * The shallow search has to reach this value to predict that the deep search reaches beta.
+         * @param beta
+         * @param threshold number of standard deviations for the prediction
+         * @return bound for the shallow search
+         */
+        public int getUpperBound(int beta, float threshold) {
+            return (int) Math.ceil((beta + threshold * _sigma - _b) / _a);
+        }
+
+        /**
+         * The shallow search has to stay at this value to predict that the deep search stays at alpha.
+         * @param alpha
+         * @param threshold number of standard deviations for the prediction
+         * @return bound for the shallow search
+         */
+        public int getLowerBound(int alpha, float threshold) {
+            return (int) Math.floor((alpha - threshold * _sigma - _b) / _a);
+        }
+
+        @Override
+        public String toString() {
+            return _shallowDepth + " " + _a + " " + _b + " " + _sigma;
+        }
+    }
+
+}
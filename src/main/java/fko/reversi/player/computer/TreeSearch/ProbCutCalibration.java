@@ -0,0 +1,363 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.Board;
+import fko.reversi.game.BoardFactory;
+import fko.reversi.game.IllegalMoveException;
+import fko.reversi.game.Move;
+import fko.reversi.game.ReversiColor;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Creates the parameter file for <code>ProbCut</code>.<br/>
+ * The tool searches a set of positions from random games with every depth from 1 to the maximum depth. For every
+ * stage and every pair of deep and shallow depth a linear regression of the deep values on the shallow values gives
+ * the parameters a, b and sigma. The positions are searched in parallel on all cores.
+ * </p>
+ * <p>
+ * The searches use the BoardAnalyser and the quiescence extension of the engines so the values match the values of
+ * the engines. The searches use no cache so every value is exact for its depth.
+ * </p>
+ * <pre>
+ *   usage: ProbCutCalibration &lt;parameter file&gt; [positions] [max depth] [stage moves] [seed]
+ * </pre>
+ * Run it from the Reversi directory and point <code>engine.probCutFile</code> to the created file.
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class ProbCutCalibration {
+
+    // -- defaults for the command line --
+    private static final int DEFAULT_POSITIONS   = 1000;
+    private static final int DEFAULT_MAX_DEPTH   = 8;
+    private static final int DEFAULT_STAGE_MOVES = 6;
+    private static final int DEFAULT_SEED        = 1;
+
+    // -- the board we calibrate for --
+    private static final int DIM = 8;
+
+    // -- positions closer to the end are solved by the EndgameSolver --
+    private static final int MIN_EMPTIES = 12;
+
+    // -- ProbCut is used for deep searches of at least this depth --
+    private static final int MIN_DEPTH = 3;
+
+    // -- a regression needs at least this many positions --
+    private static final int MIN_SAMPLES = 30;
+
+    // -- values beyond this are won or lost games and useless for the regression --
+    private static final int MAX_EVAL = 1000000;
+
+    // -- same limit for the quiescence extension as the engines --
+    private static final int MAX_EXTRA = 4;
+
+    private final int _positions;
+    private final int _maxDepth;
+    private final int _stageMoves;
+    private final int _seed;
+
+    // -- every thread searches with its own BoardAnalyser and MoveOrdering --
+    private final ThreadLocal<Searcher> _searchers = new ThreadLocal<Searcher>() {
+        @Override
+        protected Searcher initialValue() {
+            return new Searcher();
+        }
+    };
+
+    private ProbCutCalibration(int positions, int maxDepth, int stageMoves, int seed) {
+        _positions = positions;
+        _maxDepth = maxDepth;
+        _stageMoves = stageMoves;
+        _seed = seed;
+    }
+
+    /**
+     * Creates the parameter file.
+     * @param args &lt;parameter file&gt; [positions] [max depth] [stage moves] [seed]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.err.println("usage: ProbCutCalibration <parameter file> [positions] [max depth] [stage moves] [seed]");
+            System.exit(2);
+        }
+        final int positions  = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_POSITIONS;
+        final int maxDepth   = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_DEPTH;
+        final int stageMoves = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_STAGE_MOVES;
+        final int seed       = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_SEED;
+        if (maxDepth < MIN_DEPTH || maxDepth > ProbCut.MAX_DEPTH) {
+            throw new IllegalArgumentException("max depth must be between " + MIN_DEPTH + " and " + ProbCut.MAX_DEPTH);
+        }
+
+        final ProbCutCalibration calibration = new ProbCutCalibration(positions, maxDepth, stageMoves, seed);
+        final ProbCut probCut = calibration.calibrate();
+
+        final PrintWriter out = new PrintWriter(new FileWriter(args[0]));
+        try {
+            probCut.store(out, "ProbCut parameters for " + DIM + "x" + DIM + " - created by ProbCutCalibration "
+                    + new Date() + "\n" + positions + " positions, max depth " + maxDepth + ", seed " + seed
+                    + "\nprobcut.<stage>.<deep depth> = <shallow depth> <a> <b> <sigma> [; ...]");
+        } finally {
+            out.close();
+        }
+        System.out.println("ProbCut parameters written to " + args[0]);
+    }
+
+    /**
+     * Searches all positions and calculates the regressions.
+     * @return the parameters
+     */
+    private ProbCut calibrate() throws InterruptedException, ExecutionException {
+        final List<Board> boards = createPositions();
+
+        // -- search all positions in parallel --
+        final int threads = Runtime.getRuntime().availableProcessors();
+        System.out.println("Searching " + boards.size() + " positions up to depth " + _maxDepth
+                + " with " + threads + " threads");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<int[]>> results = new ArrayList<Future<int[]>>(boards.size());
+        for (final Board board : boards) {
+            results.add(executor.submit(new Callable<int[]>() {
+                public int[] call() {
+                    return _searchers.get().searchAllDepths(board, _maxDepth);
+                }
+            }));
+        }
+
+        final int stages = (DIM * DIM - 4 + _stageMoves - 1) / _stageMoves;
+        final List<List<int[]>> valuesPerStage = new ArrayList<List<int[]>>(stages);
+        for (int stage = 0; stage < stages; stage++) {
+            valuesPerStage.add(new ArrayList<int[]>());
+        }
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < boards.size(); i++) {
+            final int[] values = results.get(i).get();
+            if (values != null) {
+                valuesPerStage.get(discsPlayed(boards.get(i)) / _stageMoves).add(values);
+            }
+            if ((i + 1) % 50 == 0) {
+                System.out.println((i + 1) + " positions searched in "
+                        + (System.currentTimeMillis() - start) / 1000 + " s");
+            }
+        }
+        executor.shutdown();
+
+        // -- one regression per stage, deep depth and shallow depth --
+        final ProbCut probCut = new ProbCut(DIM, _stageMoves, stages);
+        for (int stage = 0; stage < stages; stage++) {
+            final List<int[]> values = valuesPerStage.get(stage);
+            if (values.size() < MIN_SAMPLES) {
+                continue;
+            }
+            for (int depth = MIN_DEPTH; depth <= _maxDepth; depth++) {
+                final int[] shallowDepths = getShallowDepths(depth);
+                final ProbCut.Check[] checks = new ProbCut.Check[shallowDepths.length];
+                for (int i = 0; i < shallowDepths.length; i++) {
+                    checks[i] = regression(values, shallowDepths[i], depth);
+                }
+                probCut.setChecks(stage, depth, checks);
+                System.out.println("Stage " + stage + " (" + values.size() + " positions) depth " + depth
+                        + ": " + Arrays.toString(checks));
+            }
+        }
+        return probCut;
+    }
+
+    /**
+     * The shallow depths for a deep search - about half the deep depth with the same parity and a second check
+     * two plies deeper if that is still two plies less than the deep search.
+     * @param depth depth of the deep search
+     * @return the shallow depths - cheapest first
+     */
+    static int[] getShallowDepths(int depth) {
+        int shallow = depth / 2;
+        if ((depth - shallow) % 2 != 0) {
+            shallow--;
+        }
+        shallow = Math.max(shallow, 1);
+        return shallow + 2 <= depth - 2 ? new int[]{shallow, shallow + 2} : new int[]{shallow};
+    }
+
+    /**
+     * Least squares fit of the deep values on the shallow values.
+     */
+    private static ProbCut.Check regression(List<int[]> values, int shallowDepth, int deepDepth) {
+        final int n = values.size();
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int[] v : values) {
+            sumX += v[shallowDepth];
+            sumY += v[deepDepth];
+            sumXX += (double) v[shallowDepth] * v[shallowDepth];
+            sumXY += (double) v[shallowDepth] * v[deepDepth];
+        }
+        final double varX = n * sumXX - sumX * sumX;
+        final double a = varX > 0 ? (n * sumXY - sumX * sumY) / varX : 1.0;
+        final double b = (sumY - a * sumX) / n;
+        double sumResiduals = 0;
+        for (int[] v : values) {
+            final double residual = v[deepDepth] - (a * v[shallowDepth] + b);
+            sumResiduals += residual * residual;
+        }
+        final double sigma = Math.sqrt(sumResiduals / Math.max(n - 2, 1));
+        return new ProbCut.Check(shallowDepth, (float) a, (float) b, (float) sigma);
+    }
+
+    /**
+     * Plays random games and takes one position of every game. The number of discs of the positions is evenly
+     * distributed over the game.
+     */
+    private List<Board> createPositions() {
+        final Random random = new Random(_seed);
+        final List<Board> boards = new ArrayList<Board>(_positions);
+        final int maxDiscs = DIM * DIM - MIN_EMPTIES;
+        while (boards.size() < _positions) {
+            final int discs = 5 + random.nextInt(maxDiscs - 4);
+            final Board board = BoardFactory.createUnsynchronizedBoard(DIM);
+            try {
+                while (board.hasLegalMoves() && board.getPiecesBlack() + board.getPiecesWhite() < discs) {
+                    final List<Move> moves = board.getMoves();
+                    board.makeMove(moves.get(random.nextInt(moves.size())));
+                }
+            } catch (IllegalMoveException e) {
+                throw new RuntimeException(e);
+            }
+            if (board.hasLegalMoves()) {
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+
+    private static int discsPlayed(Board board) {
+        return board.getPiecesBlack() + board.getPiecesWhite() - 4;
+    }
+
+    /**
+     * Fixed depth alpha-beta search of one thread.
+     */
+    private static final class Searcher {
+        private TreeSearchBoardAnalyser _analyser     = null;
+        private MoveOrdering            _moveOrdering = null;
+        private int[][]                 _moveBuffers  = null;
+
+        /**
+         * Searches a board with all depths from 0 to maxDepth.
+         * @return the values from the view of the player to move or null if the game is decided in the search
+         */
+        private int[] searchAllDepths(Board board, int maxDepth) {
+            final TreeSearchBoard searchBoard = TreeSearchBoardFactory.createBoard(board);
+            if (_analyser == null) {
+                _analyser = new TreeSearchBoardAnalyserImpl_v15(searchBoard, ReversiColor.BLACK);
+                _moveOrdering = new MoveOrdering(searchBoard.getDim());
+                _moveBuffers = new int[maxDepth + MAX_EXTRA + 1][searchBoard.getDim() * searchBoard.getDim()];
+            }
+            final int[] values = new int[maxDepth + 1];
+            for (int depth = 0; depth <= maxDepth; depth++) {
+                _moveOrdering.newSearch();
+                values[depth] = search(searchBoard, searchBoard.getNextPlayerColor(), -MAX_EVAL, MAX_EVAL, depth, 0, 0);
+                if (Math.abs(values[depth]) >= MAX_EVAL) {
+                    return null;
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Negamax alpha-beta search.
+         * @param color the player to move - the board has no player to move if the game is over
+         * @return the value from the view of color
+         */
+        private int search(TreeSearchBoard board, ReversiColor color, int alpha, int beta, int d, int extra, int ply) {
+            if (board.getNextPlayerColor().isNone()) {
+                return evaluate(board, color);
+            }
+            // -- the same quiescence extension as the engines --
+            if (d == 0 && extra < MAX_EXTRA && _analyser.notQuiet(board)) {
+                d++;
+                extra++;
+            }
+            if (d == 0) {
+                return evaluate(board, color);
+            }
+            final int[] moves = _moveBuffers[ply];
+            final int count = board.getMoves(moves);
+            _analyser.sortMoves(board, moves, count);
+            _moveOrdering.order(board.getLastMoveNumber(), moves, count);
+            int bestValue = -MAX_EVAL;
+            for (int i = 0; i < count; i++) {
+                try {
+                    board.makeMove(moves[i]);
+                } catch (IllegalMoveException e) {
+                    throw new RuntimeException(e);
+                }
+                // a pass is made by the board - the next player may be the same
+                final int value = board.getNextPlayerColor() == color
+                        ? search(board, color, alpha, beta, d - 1, extra, ply + 1)
+                        : -search(board, color.getInverseColor(), -beta, -alpha, d - 1, extra, ply + 1);
+                board.undoMove();
+                if (value > bestValue) {
+                    bestValue = value;
+                    if (value > alpha) {
+                        alpha = value;
+                        if (alpha >= beta) {
+                            _moveOrdering.addCutoff(board.getLastMoveNumber(), moves[i], d);
+                            break;
+                        }
+                    }
+                }
+            }
+            return bestValue;
+        }
+
+        /**
+         * @return the value of the BoardAnalyser from the view of color - won or lost games are MAX_EVAL
+         */
+        private int evaluate(TreeSearchBoard board, ReversiColor color) {
+            int value = _analyser.analyse(board);
+            if (Math.abs(value) >= MAX_EVAL) {
+                value = value > 0 ? MAX_EVAL : -MAX_EVAL;
+            }
+            return color.isWhite() ? -value : value;
+        }
+    }
+
+}
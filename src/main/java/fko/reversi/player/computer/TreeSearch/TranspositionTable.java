@@ -0,0 +1,227 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A fixed size transposition table for the tree search engines.<br/>
+ * The table is a single <code>long[]</code> which is allocated once. It holds a power of two number of
+ * buckets, each bucket has two entries:
+ * <ul>
+ * <li>slot 0 - depth-preferred: only replaced by a deeper (or equal) search, by the same board or by an
+ * entry of an older search</li>
+ * <li>slot 1 - always-replace: takes everything slot 0 refuses</li>
+ * </ul>
+ * An entry are two longs:
+ * <pre>
+ *  value word:  bits 32-63 lowerbound, bits 0-31 upperbound
+ *  info word:   bits  0-15 key check (the upper 16 bits of the Zobrist key)
+ *               bits 16-31 best move (PackedMove without score)
+ *               bits 32-47 depth (remaining search depth of the entry)
+ *               bits 48-55 age (the search which stored the entry)
+ *               bits 56-63 flags
+ * </pre>
+ * The lower bits of the Zobrist key select the bucket, the key check verifies the rest.
+ * </p>
+ * <p>
+ * The table does not use locks. Several search threads may read and write it at the same time.
+ * The info word is stored XOR'ed with the value word. If a reader sees the two words of different writes the
+ * key check does not match and the entry is treated as a miss.<br/>
+ * Statistics like hits and misses are counted by the engine.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public final class TranspositionTable {
+
+    // -- longs per entry and per bucket --
+    private static final int ENTRY_SIZE  = 2;
+    private static final int BUCKET_SIZE = 2 * ENTRY_SIZE;
+
+    // -- bytes per bucket --
+    private static final int BUCKET_BYTES = BUCKET_SIZE * 8;
+
+    // -- the largest table we can hold in one array --
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    // -- number of buckets to look at for the usage estimation --
+    private static final int USAGE_SAMPLE = 1000;
+
+    // -- flags --
+    private static final long FLAG_USED = 1L;
+
+    // -- the table --
+    private final long[] _table;
+    private final int    _bucketMask;
+
+    // -- the current search - entries of older searches are replaced first --
+    private volatile int _age = 0;
+
+    /**
+     * Creates a transposition table which uses at most the given memory.<br/>
+     * The number of buckets is rounded down to a power of two.
+     * @param sizeMB size of the table in megabytes
+     */
+    public TranspositionTable(int sizeMB) {
+        if (sizeMB < 1) {
+            throw new IllegalArgumentException("Parameter sizeMB must be at least 1. Was " + sizeMB);
+        }
+        final long buckets = Math.min(((long) sizeMB << 20) / BUCKET_BYTES, MAX_BUCKETS);
+        final int size = Integer.highestOneBit((int) buckets);
+        _table = new long[size * BUCKET_SIZE];
+        _bucketMask = size - 1;
+    }
+
+    /**
+     * Looks up the board with the given Zobrist key.<br/>
+     * If found the entry is copied into <code>entry</code>. The entry is owned by the caller and can be
+     * reused for the next probe.
+     * @param zobristKey
+     * @param entry receives the values of the table entry if found
+     * @return true if the board is in the table
+     */
+    public boolean probe(long zobristKey, Entry entry) {
+        final int bucket = bucket(zobristKey);
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i += ENTRY_SIZE) {
+            final long value = _table[i];
+            final long info = _table[i + 1] ^ value;
+            if ((info & (FLAG_USED << 56)) != 0 && (info & 0xFFFFL) == keyCheck(zobristKey)) {
+                entry._lowerbound = (int) (value >> 32);
+                entry._upperbound = (int) value;
+                entry._move = (int) ((info >>> 16) & 0xFFFFL);
+                entry._depth = (int) ((info >>> 32) & 0xFFFFL);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the bounds for a board.<br/>
+     * The entry of the same board is overwritten. Otherwise the depth-preferred slot is used if it is empty,
+     * is from an older search or has a lower depth, if not the always-replace slot is used.
+     * @param zobristKey
+     * @param lowerbound
+     * @param upperbound
+     * @param depth remaining search depth of the bounds
+     * @param move best move as packed move or <code>PackedMove.NONE</code>
+     */
+    public void store(long zobristKey, int lowerbound, int upperbound, int depth, int move) {
+        final int bucket = bucket(zobristKey);
+        final long check = keyCheck(zobristKey);
+        final int age = _age;
+
+        int slot = bucket + ENTRY_SIZE; // always-replace
+        final long info0 = _table[bucket + 1] ^ _table[bucket];
+        final long info1 = _table[bucket + ENTRY_SIZE + 1] ^ _table[bucket + ENTRY_SIZE];
+        if (!isSameBoard(info1, check)
+                && (isSameBoard(info0, check)
+                    || (info0 & (FLAG_USED << 56)) == 0
+                    || ((info0 >>> 48) & 0xFFL) != age
+                    || ((info0 >>> 32) & 0xFFFFL) <= depth)) {
+            slot = bucket; // depth-preferred
+        }
+
+        final long value = ((long) lowerbound << 32) | (upperbound & 0xFFFFFFFFL);
+        final long info = check
+                | ((long) (PackedMove.clearScore(move) & 0xFFFF) << 16)
+                | ((long) Math.min(depth, 0xFFFF) << 32)
+                | ((long) age << 48)
+                | (FLAG_USED << 56);
+        _table[slot] = value;
+        _table[slot + 1] = info ^ value;
+    }
+
+    /**
+     * Starts a new search. Entries of older searches stay valid but are replaced first.
+     */
+    public void newSearch() {
+        _age = (_age + 1) & 0xFF;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(_table, 0L);
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int getCapacity() {
+        return _table.length / ENTRY_SIZE;
+    }
+
+    /**
+     * Estimates the number of used entries by looking at the first buckets of the table.
+     * @return approximate number of used entries
+     */
+    public int getUsedEntries() {
+        final int sample = Math.min(USAGE_SAMPLE * BUCKET_SIZE, _table.length);
+        int used = 0;
+        for (int i = 0; i < sample; i += ENTRY_SIZE) {
+            if (((_table[i + 1] ^ _table[i]) & (FLAG_USED << 56)) != 0) {
+                used++;
+            }
+        }
+        return (int) ((long) used * _table.length / sample);
+    }
+
+    private int bucket(long zobristKey) {
+        return ((int) zobristKey & _bucketMask) * BUCKET_SIZE;
+    }
+
+    private static long keyCheck(long zobristKey) {
+        return zobristKey >>> 48;
+    }
+
+    private static boolean isSameBoard(long info, long check) {
+        return (info & (FLAG_USED << 56)) != 0 && (info & 0xFFFFL) == check;
+    }
+
+    /**
+     * The values of a table entry - filled by <code>probe()</code>.
+     */
+    public static final class Entry {
+        private int _lowerbound;
+        private int _upperbound;
+        private int _depth;
+        private int _move;
+
+        public int getLowerbound() {return _lowerbound; }
+        public int getUpperbound() {return _upperbound; }
+        public int getDepth     () {return _depth; }
+        public int getMove      () {return _move; }
+    }
+
+}
@@ -0,0 +1,419 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.*;
+
+import java.util.Arrays;
+
+/**
+ * The TreeSearchBitBoardImpl extends the BitBoardImpl class with an approximation of stable stones
+ * for the standard board dimension (8x8).
+ *
+ * The stable stones of the edges are read from a table with the stable stones of all 3^8 edges. A stone
+ * on an edge can only be flipped along the edge so the table is exact for the edges. Starting with these a
+ * stone is regarded as stable when on each of the 4 lines through it the line is full or one of its
+ * neighbours is outside of the board or a stable stone of the same color.
+ *
+ * The difference of the liberties (empty fields next to the stones) is updated with each move.
+ *
+ * Outside this class fields are adressed starting from 1 to board dimension
+ * Within this class fields are addressed starting with 0 to board dimension -1
+ *
+ * This Board is not thread safe!
+ *
+ */
+public class TreeSearchBitBoardImpl extends BitBoardImpl implements TreeSearchBoard {
+
+    // -- all fields of the four edges - the file and rank masks are the ones of BitBoardImpl --
+    private static final long EDGES = A_FILE | H_FILE | RANK_1 | RANK_8;
+
+    // -- multiplying col 1 with this moves the fields of the column into the highest byte - row 1 first --
+    private static final long FILE_TO_BYTE = 0x0102040810204080L;
+
+    // -- number of fields of an edge --
+    private static final int EDGE = 8;
+
+    /**
+     * Base-3 value of the 8 bits of a byte as digits 1. With the black stones of an edge as digits 1 and the
+     * white stones as digits 2 <code>BASE3[black] + 2 * BASE3[white]</code> is the index of the edge.
+     */
+    static final int[] BASE3 = new int[1 << EDGE];
+
+    // -- for each byte the bits moved to col 1 - bit i to row i --
+    private static final long[] BYTE_TO_FILE = new long[1 << EDGE];
+
+    // -- the stable stones of each edge - black stones in the lower byte and white stones in the upper byte --
+    private static final int[] EDGE_STABILITY = new int[6561];
+
+    // -- the diagonals of the board in both directions --
+    private static final long[] DIAGONALS      = new long[2 * EDGE - 1];
+    private static final long[] ANTI_DIAGONALS = new long[2 * EDGE - 1];
+
+    static {
+        for (int b = 0; b < (1 << EDGE); b++) {
+            int value = 0;
+            for (int i = EDGE - 1; i >= 0; i--) {
+                value = value * 3 + ((b >>> i) & 1);
+                if (((b >>> i) & 1) != 0) {
+                    BYTE_TO_FILE[b] |= 1L << (i << 3);
+                }
+            }
+            BASE3[b] = value;
+        }
+        Arrays.fill(EDGE_STABILITY, -1);
+        for (int index = 0; index < EDGE_STABILITY.length; index++) {
+            edgeStability(index);
+        }
+        for (int col = 0; col < EDGE; col++) {
+            for (int row = 0; row < EDGE; row++) {
+                DIAGONALS[col - row + EDGE - 1] |= bit(col, row);
+                ANTI_DIAGONALS[col + row] |= bit(col, row);
+            }
+        }
+    }
+
+    // stable fields
+    private int _stableFieldsBlack = 0;
+    private int _stableFieldsWhite = 0;
+
+    // flag if the current stable field counters are valid
+    private boolean _valid = false;
+
+    // liberties of the white stones minus the liberties of the black stones - updated with each move
+    private int _libertiesDiff = 0;
+
+    // -- undo stack for the liberties - one entry for each move made on this board --
+    private final int[] _undoLibertiesDiff = new int[EDGE * EDGE - 4];
+    private int         _undoSize          = 0;
+
+    /**
+     * default contructor
+     */
+    public TreeSearchBitBoardImpl() {
+        super();
+        _libertiesDiff = countLibertiesDiff();
+    }
+
+    /**
+     * copy contructor
+     * @param old
+     */
+    public TreeSearchBitBoardImpl(TreeSearchBitBoardImpl old) {
+        super(old);
+        _stableFieldsBlack = old._stableFieldsBlack;
+        _stableFieldsWhite = old._stableFieldsWhite;
+        _valid = old._valid;
+        _libertiesDiff = old._libertiesDiff;
+    }
+
+    /**
+     * copy contructor for a BitBoardImpl board
+     * @param old
+     */
+    public TreeSearchBitBoardImpl(BitBoardImpl old) {
+        super(old);
+        _libertiesDiff = countLibertiesDiff();
+    }
+
+    /**
+     * copy contructor for board
+     * @param old
+     */
+    public TreeSearchBitBoardImpl(Board old) {
+        super(old);
+        _libertiesDiff = countLibertiesDiff();
+    }
+
+    /**
+     * makes move on board according to rules
+     * @param move
+     */
+    @Override
+    public void makeMove(Move move) throws IllegalMoveException {
+        _valid = false;
+        final long black = _black;
+        final long white = _white;
+        super.makeMove(move);
+        updateLiberties(black, white);
+    }
+
+    /**
+     * makes a packed move on board according to rules
+     * @param move packed move (see PackedMove)
+     */
+    @Override
+    public void makeMove(int move) throws IllegalMoveException {
+        _valid = false;
+        final long black = _black;
+        final long white = _white;
+        super.makeMove(move);
+        updateLiberties(black, white);
+    }
+
+    /**
+     * takes back the last move
+     */
+    @Override
+    public void undoMove() {
+        _valid = false;
+        super.undoMove();
+        _libertiesDiff = _undoLibertiesDiff[--_undoSize];
+    }
+
+    /**
+     * Returns the difference of the liberties - the number of empty fields next to each stone.
+     * @param color
+     * @return liberties of the stones of the given color minus the liberties of the stones of the other color
+     */
+    public int getLibertiesDiff(ReversiColor color) {
+        return color.toInt() * _libertiesDiff;
+    }
+
+    /**
+     * Updates the difference of the liberties after a move.
+     * @param black the black stones before the move
+     * @param white the white stones before the move
+     */
+    private void updateLiberties(long black, long white) {
+        _undoLibertiesDiff[_undoSize++] = _libertiesDiff;
+        final long field = (_black | _white) & ~(black | white);
+        final boolean blackMoved = (_black & field) != 0;
+        final long own   = blackMoved ? black : white;   // stones of the mover before the move
+        final long opp   = blackMoved ? _white : _black; // stones of the opponent after the move
+        final long flips = blackMoved ? _black & white : _white & black;
+        final long empty = ~(_black | _white);
+        final long neighbours = NEIGHBOURS[Long.numberOfTrailingZeros(field)];
+
+        // -- the flipped stones change sides with their liberties --
+        int flipped = 0;
+        for (long f = flips; f != 0; f &= f - 1) {
+            flipped += Long.bitCount(NEIGHBOURS[Long.numberOfTrailingZeros(f)] & empty);
+        }
+        // -- the new stone has its own liberties and the stones next to it lose one --
+        final int diff = 2 * flipped + Long.bitCount(neighbours & empty) - Long.bitCount(neighbours & own)
+                + Long.bitCount(neighbours & flips) + Long.bitCount(neighbours & opp);
+        _libertiesDiff += blackMoved ? -diff : diff;
+    }
+
+    /**
+     * @return liberties of the white stones minus the liberties of the black stones
+     */
+    private int countLibertiesDiff() {
+        final long empty = ~(_black | _white);
+        int diff = 0;
+        for (long b = _black; b != 0; b &= b - 1) {
+            diff -= Long.bitCount(NEIGHBOURS[Long.numberOfTrailingZeros(b)] & empty);
+        }
+        for (long w = _white; w != 0; w &= w - 1) {
+            diff += Long.bitCount(NEIGHBOURS[Long.numberOfTrailingZeros(w)] & empty);
+        }
+        return diff;
+    }
+
+    /**
+     * Bitboard of the black stones - bit 0 is col 1/row 1, bit 63 col 8/row 8.
+     * @return bitboard of the black stones
+     */
+    public long getBlackStones() {
+        return _black;
+    }
+
+    /**
+     * Bitboard of the white stones - bit 0 is col 1/row 1, bit 63 col 8/row 8.
+     * @return bitboard of the white stones
+     */
+    public long getWhiteStones() {
+        return _white;
+    }
+
+    /**
+     * Returns an approximation of the difference of number of stable fields
+     * @param color
+     * @return returns the difference of number of stable fields
+     */
+    public int getStableFieldsApproxDiff(ReversiColor color) {
+        if (!_valid) {
+            countStableStones();
+            _valid = true;
+        }
+        return color.toInt() * (_stableFieldsWhite - _stableFieldsBlack);
+    }
+
+    /**
+     * Counts the stable stones of both colors.
+     */
+    private void countStableStones() {
+        // -- the stable stones of the four edges --
+        int edge = EDGE_STABILITY[edgeIndex(_black, _white)];
+        long stableBlack = edge & 0xFF;
+        long stableWhite = (edge >>> EDGE) & 0xFF;
+        edge = EDGE_STABILITY[edgeIndex(_black >>> 56, _white >>> 56)];
+        stableBlack |= (long) (edge & 0xFF) << 56;
+        stableWhite |= (long) ((edge >>> EDGE) & 0xFF) << 56;
+        edge = EDGE_STABILITY[edgeIndex(fileToByte(_black, 0), fileToByte(_white, 0))];
+        stableBlack |= BYTE_TO_FILE[edge & 0xFF];
+        stableWhite |= BYTE_TO_FILE[(edge >>> EDGE) & 0xFF];
+        edge = EDGE_STABILITY[edgeIndex(fileToByte(_black, 7), fileToByte(_white, 7))];
+        stableBlack |= BYTE_TO_FILE[edge & 0xFF] << 7;
+        stableWhite |= BYTE_TO_FILE[(edge >>> EDGE) & 0xFF] << 7;
+
+        // -- full lines - no stone on them can be flipped along the line --
+        final long occupied = _black | _white;
+        long fullRanks = 0L;
+        for (int row = 0; row < EDGE; row++) {
+            if (((occupied >>> (row << 3)) & RANK_1) == RANK_1) {
+                fullRanks |= RANK_1 << (row << 3);
+            }
+        }
+        long files = occupied & (occupied >>> 32);
+        files &= files >>> 16;
+        files &= files >>> 8;
+        final long fullFiles = (files & RANK_1) * A_FILE;
+        long fullDiagonals = 0L;
+        long fullAntiDiagonals = 0L;
+        for (int i = 0; i < DIAGONALS.length; i++) {
+            if ((occupied & DIAGONALS[i]) == DIAGONALS[i]) {
+                fullDiagonals |= DIAGONALS[i];
+            }
+            if ((occupied & ANTI_DIAGONALS[i]) == ANTI_DIAGONALS[i]) {
+                fullAntiDiagonals |= ANTI_DIAGONALS[i];
+            }
+        }
+
+        _stableFieldsBlack = Long.bitCount(
+                stableStones(_black, stableBlack, fullRanks, fullFiles, fullDiagonals, fullAntiDiagonals));
+        _stableFieldsWhite = Long.bitCount(
+                stableStones(_white, stableWhite, fullRanks, fullFiles, fullDiagonals, fullAntiDiagonals));
+    }
+
+    /**
+     * Extends the known stable stones of one color until no more stable stones are found. A stone is stable when
+     * on each of the 4 lines through it the line is full or one neighbour is outside of the board or stable.
+     * @param stones bitboard of the stones of one color
+     * @param stable the stable stones known so far
+     * @param fullRanks
+     * @param fullFiles
+     * @param fullDiagonals
+     * @param fullAntiDiagonals
+     * @return bitboard of the stable stones
+     */
+    private static long stableStones(final long stones, long stable, final long fullRanks, final long fullFiles,
+                                     final long fullDiagonals, final long fullAntiDiagonals) {
+        // -- stones on the edges are only stable if the edge table says so --
+        final long inner = stones & ~EDGES;
+        stable |= inner & fullRanks & fullFiles & fullDiagonals & fullAntiDiagonals;
+        long last;
+        do {
+            last = stable;
+            final long horizontal = ((stable << 1) & NOT_A_FILE) | ((stable >>> 1) & NOT_H_FILE) | fullRanks;
+            final long vertical   = (stable << 8) | (stable >>> 8) | fullFiles;
+            final long diagonal1  = ((stable << 9) & NOT_A_FILE) | ((stable >>> 9) & NOT_H_FILE) | fullDiagonals;
+            final long diagonal2  = ((stable << 7) & NOT_H_FILE) | ((stable >>> 7) & NOT_A_FILE)
+                                  | fullAntiDiagonals;
+            stable |= inner & horizontal & vertical & diagonal1 & diagonal2;
+        } while (stable != last);
+        return stable;
+    }
+
+    /**
+     * @param black the black stones of the edge in the lowest byte
+     * @param white the white stones of the edge in the lowest byte
+     * @return index of the edge for <code>EDGE_STABILITY</code>
+     */
+    private static int edgeIndex(long black, long white) {
+        return BASE3[(int) black & 0xFF] + (BASE3[(int) white & 0xFF] << 1);
+    }
+
+    /**
+     * @param stones bitboard
+     * @param col 0 to 7
+     * @return the fields of the column as byte - row 1 is the lowest bit
+     */
+    static long fileToByte(long stones, int col) {
+        return (((stones >>> col) & A_FILE) * FILE_TO_BYTE) >>> 56;
+    }
+
+    /**
+     * Computes the stable stones of an edge. A stone is stable if it is not flipped by any move on the edge and
+     * stays stable after it. A stone may be placed on any empty field as the move might be legal in another
+     * direction. On a full edge all stones are stable.
+     * @param index base-3 index of the edge - 0 empty, 1 black, 2 white
+     * @return stable black stones in the lower byte and stable white stones in the upper byte
+     */
+    private static int edgeStability(int index) {
+        if (EDGE_STABILITY[index] >= 0) {
+            return EDGE_STABILITY[index];
+        }
+        final int[] edge = new int[EDGE];
+        for (int i = 0, p = index; i < EDGE; i++, p /= 3) {
+            edge[i] = p % 3;
+        }
+        int stable = 0;
+        for (int i = 0; i < EDGE; i++) {
+            if (edge[i] != 0) {
+                stable |= 1 << (i + (edge[i] == 2 ? EDGE : 0));
+            }
+        }
+        for (int i = 0; i < EDGE && stable != 0; i++) {
+            if (edge[i] != 0) {
+                continue;
+            }
+            for (int color = 1; color <= 2; color++) {
+                final int[] next = edge.clone();
+                next[i] = color;
+                flip(next, i, -1);
+                flip(next, i, 1);
+                int nextIndex = 0;
+                for (int j = EDGE - 1; j >= 0; j--) {
+                    nextIndex = nextIndex * 3 + next[j];
+                }
+                stable &= edgeStability(nextIndex);
+            }
+        }
+        EDGE_STABILITY[index] = stable;
+        return stable;
+    }
+
+    /**
+     * Flips the stones of the other color from the placed stone in one direction if they are enclosed.
+     */
+    private static void flip(int[] edge, int from, int direction) {
+        final int color = edge[from];
+        int i = from + direction;
+        while (i >= 0 && i < EDGE && edge[i] == 3 - color) {
+            i += direction;
+        }
+        if (i >= 0 && i < EDGE && edge[i] == color) {
+            for (int j = from + direction; j != i; j += direction) {
+                edge[j] = color;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.*;
+
+/**
+ * The TreeSearchBitSetBoardImpl extends the BitSetBoardImpl class with an approximation of stable stones
+ * for non-standard board dimensions.
+ *
+ * Outside this class fields are adressed starting from 1 to board dimension
+ * Within this class fields are addressed starting with 0 to board dimension -1
+ *
+ * This Board is not thread safe!
+ *
+ */
+public class TreeSearchBitSetBoardImpl extends BitSetBoardImpl implements TreeSearchBoard {
+
+    // stable fields
+    private int _stableFieldsBlack = 0;
+    private int _stableFieldsWhite = 0;
+
+    // flag if the current stable field counters are valid
+    private boolean _valid = false;
+
+    /**
+     * contructor
+     * @param dim
+     */
+    public TreeSearchBitSetBoardImpl(int dim) {
+        super(dim);
+    }
+
+    /**
+     * copy contructor
+     * @param old
+     */
+    public TreeSearchBitSetBoardImpl(TreeSearchBitSetBoardImpl old) {
+        super(old);
+        _stableFieldsBlack = old._stableFieldsBlack;
+        _stableFieldsWhite = old._stableFieldsWhite;
+        _valid = old._valid;
+    }
+
+    /**
+     * copy contructor for a BitSetBoardImpl board
+     * @param old
+     */
+    public TreeSearchBitSetBoardImpl(BitSetBoardImpl old) {
+        super(old);
+    }
+
+    /**
+     * copy contructor for board
+     * @param old
+     */
+    public TreeSearchBitSetBoardImpl(Board old) {
+        super(old);
+    }
+
+    /**
+     * makes move on board according to rules
+     * @param move
+     */
+    @Override
+    public void makeMove(Move move) throws IllegalMoveException {
+        _valid = false;
+        super.makeMove(move);
+    }
+
+    /**
+     * makes a packed move on board according to rules
+     * @param move packed move (see PackedMove)
+     */
+    @Override
+    public void makeMove(int move) throws IllegalMoveException {
+        _valid = false;
+        super.makeMove(move);
+    }
+
+    /**
+     * takes back the last move
+     */
+    @Override
+    public void undoMove() {
+        _valid = false;
+        super.undoMove();
+    }
+
+    /**
+     * Returns an approximation of the difference of number of stable fields
+     * @param color
+     * @return returns the difference of number of stable fields
+     */
+    public int getStableFieldsApproxDiff(ReversiColor color) {
+        if (!_valid) {
+            _stableFieldsBlack = countStableStones(_black);
+            _stableFieldsWhite = countStableStones(_white);
+            _valid = true;
+        }
+        return color.toInt() * (_stableFieldsWhite - _stableFieldsBlack);
+    }
+
+}
@@ -28,10 +28,11 @@
 package fko.reversi.player.computer.TreeSearch;
 
 import fko.reversi.game.Board;
+import fko.reversi.game.IllegalMoveException;
 import fko.reversi.game.ReversiColor;
 
 /**
- * The TreeSearchBoard extends the Board interface with a stableFields array.
+ * The TreeSearchBoard extends the Board interface with a stableFields array, make/undo and packed moves.
  */
 public interface TreeSearchBoard extends Board {
 
@@ -42,4 +43,43 @@ public interface TreeSearchBoard extends Board {
      */
     public int getStableFieldsApproxDiff(ReversiColor color);
 
+    /**
+     * Takes back the last move made with makeMove() on this board and restores the board to exactly
+     * the state before this move. Together with makeMove() this allows a search to use one board for
+     * all nodes instead of creating a copy of the board for each node.
+     * Only moves made on this board can be taken back - not the moves made on a board it has been copied from.
+     *
+     * @throws IllegalStateException when there is no move to take back
+     */
+    public void undoMove();
+
+    /**
+     * Writes all legal moves for the next player as packed moves (see PackedMove) into the given array.
+     * @param moves array to store the moves - the number of fields of the board is always enough
+     * @return number of moves
+     */
+    public int getMoves(int[] moves);
+
+    /**
+     * Makes a packed move (see PackedMove) on board according to rules.
+     * @param move packed move
+     * @throws IllegalMoveException when the move is not legal on this board
+     */
+    public void makeMove(int move) throws IllegalMoveException;
+
+    /**
+     * Returns the number of stones the given packed move (see PackedMove) would flip on this board.
+     * No objects are created and the move is not made - the <code>EndgameSolver</code> uses it to test the
+     * moves of its list of empty fields and to count the last move of the game.
+     * @param move packed move
+     * @return number of flipped stones - 0 if the move is not legal on this board
+     */
+    public int flipCount(int move);
+
+    /**
+     * Returns the last move as a packed move (see PackedMove)
+     * @return the last move or PackedMove.NONE if there has been no move yet
+     */
+    public int getLastPackedMove();
+
 }
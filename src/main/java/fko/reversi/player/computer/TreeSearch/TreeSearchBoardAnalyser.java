@@ -43,13 +43,33 @@ public interface TreeSearchBoardAnalyser {
      */
     int analyse(TreeSearchBoard board);
 
+    /**
+     * Analyses the board like <code>analyse(board)</code> but may stop early (lazy evaluation).<br/>
+     * The terms of the evaluation are summed up cheapest first. As soon as the maximum magnitude of the
+     * remaining terms can no longer bring the value into the window (alpha, beta) the evaluation stops and
+     * returns a bound: a value &lt;= alpha is an upper bound, a value &gt;= beta is a lower bound of the
+     * full evaluation. Values inside the window are always exact.
+     * @param board
+     * @param alpha
+     * @param beta
+     * @return int
+     */
+    int analyse(TreeSearchBoard board, int alpha, int beta);
+
+    /**
+     * returns if the last call of <code>analyse(board, alpha, beta)</code> stopped early so that
+     * its value is only a bound
+     * @return true if the last evaluation was lazy
+     */
+    boolean isLastAnalysisLazy();
+
     /**
      * returns if board is relativly quiet so that we don't have to care
      * about the horizont problem
      * @param board
      * @return true if board is quiet
      */
-    boolean notQuiet(Board board);
+    boolean notQuiet(TreeSearchBoard board);
 
     /**
      * sort a list of moves -- the most promising first
@@ -58,6 +78,14 @@ public interface TreeSearchBoardAnalyser {
      */
     void sortMoves(Board board, List<Move> moves);
 
+    /**
+     * sort an array of packed moves (see PackedMove) -- the most promising first
+     * @param board
+     * @param moves packed moves - the score of the moves is overwritten
+     * @param count number of moves in the array
+     */
+    void sortMoves(Board board, int[] moves, int count);
+
     /**
      * returns string representation of class
      */
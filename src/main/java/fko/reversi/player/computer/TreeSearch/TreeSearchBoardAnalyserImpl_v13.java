@@ -30,6 +30,7 @@ package fko.reversi.player.computer.TreeSearch;
 import fko.reversi.game.Board;
 import fko.reversi.game.ReversiColor;
 import fko.reversi.game.Move;
+import fko.reversi.game.PackedMove;
 
 import java.util.Comparator;
 import java.util.List;
@@ -153,7 +154,7 @@ public class TreeSearchBoardAnalyserImpl_v13 implements TreeSearchBoardAnalyser
         }
 
         // -- forced --
-        if (_weightMatrix[moveNumber][7] > 0 && board.getMoves().size() < 2) {
+        if (_weightMatrix[moveNumber][7] > 0 && board.countMoves(board.getNextPlayerColor()) < 2) {
             // to be forced mean to only have one move or non at all so it is negativ
             value -= board.getNextPlayerColor().toInt() *_maxPlayer.toInt() * _weightMatrix[moveNumber][7];
         }
@@ -204,15 +205,35 @@ public class TreeSearchBoardAnalyserImpl_v13 implements TreeSearchBoardAnalyser
         return value;
     }
 
+    /**
+     * This analyser has no lazy evaluation - the board is always analysed completely.
+     * @param board
+     * @param alpha
+     * @param beta
+     * @return int
+     */
+    public int analyse(TreeSearchBoard board, int alpha, int beta) {
+        return analyse(board);
+    }
+
+    /**
+     * @return always false
+     */
+    public boolean isLastAnalysisLazy() {
+        return false;
+    }
+
     /**
      * returns if board is relativly quiet so that we don't have to care
      * about the horizont problem
      * @param board
      * @return true if board is quiet
      */
-    public boolean notQuiet(Board board) {
+    public boolean notQuiet(TreeSearchBoard board) {
         // -- use fieldValues to determine possible non-quiet moves --
-        return Math.abs(_fieldValues[board.getLastMove().getCol() - 1][board.getLastMove().getRow() - 1]) > 3;
+        final int lastMove = PackedMove.getIndex(board.getLastPackedMove());
+        final int dim = board.getDim();
+        return Math.abs(_fieldValues[lastMove % dim][lastMove / dim]) > 3;
     }
 
     /**
@@ -226,6 +247,22 @@ public class TreeSearchBoardAnalyserImpl_v13 implements TreeSearchBoardAnalyser
         Collections.sort(moves, _moveComparator);
     }
 
+    /**
+     * sort an array of packed moves (see PackedMove) -- the most promising first
+     * @param board
+     * @param moves packed moves - the score of the moves is overwritten
+     * @param count number of moves in the array
+     */
+    public void sortMoves(Board board, int[] moves, int count) {
+        // -- use the field values as score and sort --
+        final int dim = _board.getDim();
+        for (int i = 0; i < count; i++) {
+            final int index = PackedMove.getIndex(moves[i]);
+            moves[i] = PackedMove.setScore(moves[i], _fieldValues[index % dim][index / dim]);
+        }
+        PackedMove.sortByScore(moves, count);
+    }
+
     /**
      * returns string representation of class
      */
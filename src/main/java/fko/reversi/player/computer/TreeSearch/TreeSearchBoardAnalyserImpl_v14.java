@@ -29,6 +29,7 @@ package fko.reversi.player.computer.TreeSearch;
 
 import fko.reversi.game.Board;
 import fko.reversi.game.Move;
+import fko.reversi.game.PackedMove;
 import fko.reversi.game.ReversiColor;
 import fko.reversi.game.BoardImpl;
 
@@ -43,13 +44,22 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 
     private final Board _board;
 
-    private final ReversiColor _maxPlayer;
+    protected final ReversiColor _maxPlayer;
 
     // -- contains value for each field on the board
     private int[][] _fieldValues;
 
+    // -- the initial values for each field - used to reset _fieldValues
+    protected int[][] _initialFieldValues;
+
+    // -- the corners _fieldValues have been set for - base-3 with 0 empty, 1 max player, 2 opponent (-1 = none)
+    private int _fieldValuesCorners = -1;
+
+    // -- true if the last analyse(board, alpha, beta) returned a bound only
+    private boolean _lastAnalysisLazy = false;
+
     // -- contains a tupel for the weighting of different evaluatione regarding the current move number
-    private int[][] _weightMatrix;
+    protected int[][] _weightMatrix;
 
     // -- inner class moveComparator is used to sort moves --
     private final Comparator<Move> _moveComparator = new TreeSearchBoardAnalyserImpl_v14.moveComparator();
@@ -66,6 +76,10 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
         this._board = board;
         this._maxPlayer = maxPlayer;
         initFieldValues();
+        _initialFieldValues = new int[_fieldValues.length][];
+        for (int col = 0; col < _fieldValues.length; col++) {
+            _initialFieldValues[col] = _fieldValues[col].clone();
+        }
         initEvaluationWeights();
     }
 
@@ -129,6 +143,26 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
      * @return int
      */
     public int analyse(TreeSearchBoard board) {
+        return analyse(board, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Analyses the board like <code>analyse(board)</code> but stops early when the result can not get into the
+     * window (alpha, beta) any more. The cheap terms are summed up first. The mobility of the opponent and the
+     * stable stones are expensive - they are only calculated when the maximum magnitude of these terms could
+     * still change the cut off decision:
+     * <ul>
+     * <li>mobility diff: the next player's own moves are known - the opponent has between 0 and #empty moves</li>
+     * <li>stable diff: between -#opponent stones and +#own stones</li>
+     * </ul>
+     * @param board
+     * @param alpha
+     * @param beta
+     * @return int - the exact evaluation or a bound if <code>isLastAnalysisLazy()</code>
+     */
+    public int analyse(TreeSearchBoard board, int alpha, int beta) {
+
+        _lastAnalysisLazy = false;
 
 		if (SHOW_EVAL_FOR_DEBUG) {
 		    System.out.println("MaxPlayer="+_maxPlayer);
@@ -136,7 +170,7 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 		            +"\n NextMove: "+board.getNextMoveNumber()
 		            +" Next: "+board.getNextPlayerColor()
 		            +" Last: "+board.getLastPlayerColor());
-		    System.out.println(((BoardImpl)board).drawBoard());
+		    System.out.println(board instanceof BoardImpl ? ((BoardImpl)board).drawBoard() : board.toString());
 		}
 
         // No more moves! Just count the stones.
@@ -162,19 +196,6 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 
         int value = 0;
 
-        if (_weightMatrix[moveNumber][1] != 0 // field value
-                || _weightMatrix[moveNumber][8] != 0 // x-squares
-                || _weightMatrix[moveNumber][9] != 0) { // c- squares
-            // Set the fieldValues according to the board
-            setFieldValues(board);
-            /*for (int y=board.getDim()-1;y>=0;y--) {
-                for (int x=0;x<board.getDim();x++) {
-                    System.out.print(" "+_fieldValues[x][y]);
-                }
-                System.out.println();
-            }*/
-        }
-
         // -- stonediff --
         if (_weightMatrix[moveNumber][2] != 0) {
             value += board.getPiecesDiff(_maxPlayer) * _weightMatrix[moveNumber][2];
@@ -196,7 +217,7 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
         }
 
         // -- forced --
-        if (_weightMatrix[moveNumber][7] > 0 && board.getMoves().size() < 2) {
+        if (_weightMatrix[moveNumber][7] > 0 && board.countMoves(board.getNextPlayerColor()) < 2) {
             // to be forced mean to only have one move or non at all so it is negativ
             value -= board.getNextPlayerColor().toInt() *_maxPlayer.toInt() * _weightMatrix[moveNumber][7];
 			if (SHOW_EVAL_FOR_DEBUG) {
@@ -205,15 +226,6 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 			}
         }
 
-        // -- stablediff --
-        if (_weightMatrix[moveNumber][3] > 0) {
-            value += (board.getStableFieldsApproxDiff(_maxPlayer) * _weightMatrix[moveNumber][3]);
-			if (SHOW_EVAL_FOR_DEBUG) {
-			    System.out.print("Eval: StableDiff: "+(board.getStableFieldsApproxDiff(_maxPlayer) * _weightMatrix[moveNumber][3]));
-			    System.out.println(" Eval: "+value);
-			}
-        }
-
         // -- corner diff --
         if (_weightMatrix[moveNumber][4] > 0) {
             value += board.getCornerDiff(_maxPlayer) * _weightMatrix[moveNumber][4];
@@ -225,18 +237,9 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 
         // -- mobillity (for opponent) --
         if (_weightMatrix[moveNumber][6] > 0) {
-            value += _maxPlayer.toInt() * board.getNextPlayerColor().toInt() * board.getMoves().size() * _weightMatrix[moveNumber][6];
-			if (SHOW_EVAL_FOR_DEBUG) {
-			    System.out.print("Eval: Mobility: "+ _maxPlayer.toInt() * board.getNextPlayerColor().toInt() * board.getMoves().size() * _weightMatrix[moveNumber][6]);
-			    System.out.println(" Eval: "+value);
-			}
-        }
-
-        // -- mobility diff (is always from the point of view of the next player
-        if (_weightMatrix[moveNumber][10] != 0) {
-            value += _maxPlayer.toInt() * board.getNextPlayerColor().toInt() *  board.getMobilityDiff() * _weightMatrix[moveNumber][10];
+            value += _maxPlayer.toInt() * board.getNextPlayerColor().toInt() * board.countMoves(board.getNextPlayerColor()) * _weightMatrix[moveNumber][6];
 			if (SHOW_EVAL_FOR_DEBUG) {
-			    System.out.print("Eval: Mobility-Diff: "+_maxPlayer.toInt() * board.getNextPlayerColor().toInt() *  board.getMobilityDiff() * _weightMatrix[moveNumber][10]);
+			    System.out.print("Eval: Mobility: "+ _maxPlayer.toInt() * board.getNextPlayerColor().toInt() * board.countMoves(board.getNextPlayerColor()) * _weightMatrix[moveNumber][6]);
 			    System.out.println(" Eval: "+value);
 			}
         }
@@ -259,6 +262,93 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 			}
         }
 
+        // -- field values and liberties --
+        value += analyseFields(board, moveNumber);
+
+        // -- lazy evaluation - the remaining terms have a limited range --
+        final int nextPlayer = _maxPlayer.toInt() * board.getNextPlayerColor().toInt();
+        final int maxPieces  = _maxPlayer.isBlack() ? board.getPiecesBlack() : board.getPiecesWhite();
+        final int minPieces  = _maxPlayer.isBlack() ? board.getPiecesWhite() : board.getPiecesBlack();
+        final int empties    = dim * dim - maxPieces - minPieces;
+
+        // -- mobility diff: own moves minus 0..empties moves of the opponent --
+        int mobilityMin = 0;
+        int mobilityMax = 0;
+        if (_weightMatrix[moveNumber][10] != 0) {
+            final int moves = board.countMoves(board.getNextPlayerColor());
+            final int bestCase  = nextPlayer * moves * _weightMatrix[moveNumber][10];
+            final int worstCase = nextPlayer * (moves - empties) * _weightMatrix[moveNumber][10];
+            mobilityMin = Math.min(bestCase, worstCase);
+            mobilityMax = Math.max(bestCase, worstCase);
+        }
+
+        // -- stable diff: all opponent stones stable to all own stones stable --
+        int stableMin = 0;
+        int stableMax = 0;
+        if (_weightMatrix[moveNumber][3] > 0) {
+            stableMin = -minPieces * _weightMatrix[moveNumber][3];
+            stableMax =  maxPieces * _weightMatrix[moveNumber][3];
+        }
+
+        if (value + mobilityMax + stableMax <= alpha) {
+            _lastAnalysisLazy = true;
+            return value + mobilityMax + stableMax;
+        }
+        if (value + mobilityMin + stableMin >= beta) {
+            _lastAnalysisLazy = true;
+            return value + mobilityMin + stableMin;
+        }
+
+        // -- mobility diff (is always from the point of view of the next player)
+        if (_weightMatrix[moveNumber][10] != 0) {
+            value += _maxPlayer.toInt() * board.getNextPlayerColor().toInt() *  board.getMobilityDiff() * _weightMatrix[moveNumber][10];
+			if (SHOW_EVAL_FOR_DEBUG) {
+			    System.out.print("Eval: Mobility-Diff: "+_maxPlayer.toInt() * board.getNextPlayerColor().toInt() *  board.getMobilityDiff() * _weightMatrix[moveNumber][10]);
+			    System.out.println(" Eval: "+value);
+			}
+        }
+
+        if (value + stableMax <= alpha) {
+            _lastAnalysisLazy = true;
+            return value + stableMax;
+        }
+        if (value + stableMin >= beta) {
+            _lastAnalysisLazy = true;
+            return value + stableMin;
+        }
+
+        // -- stablediff --
+        if (_weightMatrix[moveNumber][3] > 0) {
+            value += (board.getStableFieldsApproxDiff(_maxPlayer) * _weightMatrix[moveNumber][3]);
+			if (SHOW_EVAL_FOR_DEBUG) {
+			    System.out.print("Eval: StableDiff: "+(board.getStableFieldsApproxDiff(_maxPlayer) * _weightMatrix[moveNumber][3]));
+			    System.out.println(" Eval: "+value);
+			}
+        }
+
+		if (SHOW_EVAL_FOR_DEBUG) {
+		    System.out.println("Final Eval: " + value + " \n");
+		}
+
+        // -- evaluation is done from the view of the player to move next --
+        return value;
+    }
+
+    /**
+     * Evaluates the field values and the liberties of all stones on the board.
+     * @param board
+     * @param moveNumber last move number of the board
+     * @return weighted sum of the field values and the liberties
+     */
+    protected int analyseFields(TreeSearchBoard board, int moveNumber) {
+        final int dim = board.getDim();
+
+        if (_weightMatrix[moveNumber][1] != 0) { // field value
+            // Set the fieldValues according to the board
+            setFieldValues(board);
+        }
+
+        int value = 0;
         int fieldValues=0;
         int liberties=0;
 
@@ -313,26 +403,32 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 			}
         }
 
-		if (SHOW_EVAL_FOR_DEBUG) {
-		    System.out.println("Final Eval: " + value + " \n");
-		}
-
-        // -- evaluation is done from the view of the player to move next --
         return value;
     }
 
+    /**
+     * returns if the last call of <code>analyse(board, alpha, beta)</code> stopped early so that
+     * its value is only a bound
+     * @return true if the last evaluation was lazy
+     */
+    public boolean isLastAnalysisLazy() {
+        return _lastAnalysisLazy;
+    }
+
     /**
      * returns if board is relativly quiet so that we don't have to care
      * about the horizont problem
      * @param board
      * @return true if board is quiet
      */
-    public boolean notQuiet(Board board) {
+    public boolean notQuiet(TreeSearchBoard board) {
         setFieldValues(board);
         // -- use forced moves, fieldValues to determine possible non-quiet moves --
-        return Math.abs(_fieldValues[board.getLastMove().getCol() - 1][board.getLastMove().getRow() - 1]) >= 4
+        final int lastMove = PackedMove.getIndex(board.getLastPackedMove());
+        final int dim = board.getDim();
+        return Math.abs(_fieldValues[lastMove % dim][lastMove / dim]) >= 4
                 || board.hasPass() // pass
-                || board.getMoves().size() < 2; // forced move
+                || board.countMoves(board.getNextPlayerColor()) < 2; // forced move
 
     }
 
@@ -354,6 +450,27 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
         Collections.sort(moves, _moveComparator);
     }
 
+    /**
+     * sort an array of packed moves (see PackedMove) -- the most promising first
+     * @param board
+     * @param moves packed moves - the score of the moves is overwritten
+     * @param count number of moves in the array
+     */
+    public void sortMoves(Board board, int[] moves, int count) {
+        if (board==null) {
+            throw new NullPointerException("Board must not be null");
+        }
+        // If we have a board we can adapt the field values according to the situation
+        setFieldValues(board);
+        // -- use the field values as score and sort --
+        final int dim = board.getDim();
+        for (int i = 0; i < count; i++) {
+            final int index = PackedMove.getIndex(moves[i]);
+            moves[i] = PackedMove.setScore(moves[i], _fieldValues[index % dim][index / dim]);
+        }
+        PackedMove.sortByScore(moves, count);
+    }
+
     /**
      * returns string representation of class
      */
@@ -367,12 +484,22 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
      * @param board
      */
     private void setFieldValues(Board board) {
-        // reset the values
-        initFieldValues();
-
         // -- m(ax) col and row --
         final int m = board.getDim() - 1;
 
+        // Only the values next to the corners change - nothing to do if the corners are the same as last time
+        final int corners = cornerState(board.getField(1, 1)) + 3 * cornerState(board.getField(m + 1, 1))
+                + 9 * cornerState(board.getField(1, m + 1)) + 27 * cornerState(board.getField(m + 1, m + 1));
+        if (corners == _fieldValuesCorners) {
+            return;
+        }
+        _fieldValuesCorners = corners;
+
+        // reset the values
+        for (int col = 0; col < _fieldValues.length; col++) {
+            System.arraycopy(_initialFieldValues[col], 0, _fieldValues[col], 0, _fieldValues[col].length);
+        }
+
         // If we have any corners we change the values for that corner region
         // left bottom corner
         if (board.getField(1,1).equals(_maxPlayer)) { // my corner
@@ -395,7 +522,7 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
             // -- the C-fields (next to corners) get -3 --
             _fieldValues[m-1][0] = 5;
             _fieldValues[m][1]   = 5;
-        } else if(board.getField(1,1).equals(_maxPlayer.getInverseColor())) { // opponents corner
+        } else if(board.getField(m+1,1).equals(_maxPlayer.getInverseColor())) { // opponents corner
             // -- the X-fields (diagonally next to corners) get -10 --
             _fieldValues[m-1][1] = -1;
             // -- the C-fields (next to corners) get -3 --
@@ -409,7 +536,7 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
             // -- the C-fields (next to corners) get -3 --
             _fieldValues[0][m-1] = 5;
             _fieldValues[1][m]   = 5;
-        } else if(board.getField(1,1).equals(_maxPlayer.getInverseColor())) { // opponents corner
+        } else if(board.getField(1,m+1).equals(_maxPlayer.getInverseColor())) { // opponents corner
             // -- the X-fields (diagonally next to corners) get -10 --
             _fieldValues[1][m-1] = -1;
             // -- the C-fields (next to corners) get -3 --
@@ -423,7 +550,7 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
             // -- the C-fields (next to corners) get -3 --
             _fieldValues[m-1][m] = 5;
             _fieldValues[m][m-1] = 5;
-        } else if(board.getField(1,1).equals(_maxPlayer.getInverseColor())) { // opponents corner
+        } else if(board.getField(m+1,m+1).equals(_maxPlayer.getInverseColor())) { // opponents corner
             // -- the X-fields (diagonally next to corners) get -10 --
             _fieldValues[m-1][m-1] = -1;
             // -- the C-fields (next to corners) get -3 --
@@ -433,6 +560,14 @@ public class TreeSearchBoardAnalyserImpl_v14 implements TreeSearchBoardAnalyser
 
     }
 
+    /**
+     * @param color
+     * @return 0 for an empty field, 1 for the max player and 2 for the opponent
+     */
+    private int cornerState(ReversiColor color) {
+        return color.isEmpty() ? 0 : color.equals(_maxPlayer) ? 1 : 2;
+    }
+
     /**
      * initilaize the engine with a table for sorting move
      *
@@ -0,0 +1,233 @@
+/*
+ * <p>GPL Dislaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.Board;
+import fko.reversi.game.ReversiColor;
+
+import static fko.reversi.player.computer.TreeSearch.TreeSearchBitBoardImpl.BASE3;
+import static fko.reversi.player.computer.TreeSearch.TreeSearchBitBoardImpl.fileToByte;
+
+/**
+ * <p>
+ * Analyses a given board and returns an heuristic value for that board.<br/>
+ * Same evaluation as TreeSearchBoardAnalyserImpl_v14 but for the 8x8 bitboard (TreeSearchBitBoardImpl) the field
+ * values and the liberties are computed without scanning the board field by field:
+ * <ul>
+ * <li>the four edges together with their two X-squares are evaluated as patterns. The base-3 index of a pattern
+ * (0 = empty, 1 = max player, 2 = opponent) is built from the bytes of the edge with a lookup table and the field
+ * values of all 3^10 patterns, including the changed values of the X- and C-squares next to an occupied corner,
+ * are precomputed</li>
+ * <li>the field values of the inner fields do not change - they are counted per value with a bit mask</li>
+ * <li>the difference of the liberties is updated by the board with each move</li>
+ * </ul>
+ * Other boards are evaluated by TreeSearchBoardAnalyserImpl_v14.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public class TreeSearchBoardAnalyserImpl_v15 extends TreeSearchBoardAnalyserImpl_v14 {
+
+    // -- the fields of an edge pattern: the 8 fields of the edge from corner to corner and the 2 X-squares --
+    private static final int EDGE_PATTERN_FIELDS = 10;
+    private static final int POW3_8 = 6561;
+    private static final int POW3_9 = 19683;
+
+    // -- bits of the X-squares of the four edges (next to the first and the last field of the edge) --
+    private static final int X_B2 = 9;  // col 2, row 2
+    private static final int X_G2 = 14; // col 7, row 2
+    private static final int X_B7 = 49; // col 2, row 7
+    private static final int X_G7 = 54; // col 7, row 7
+
+    // -- field values of all edge patterns - fields which belong to two edges (corners and X-squares) count
+    // -- once, all other fields twice so the sum of the four edges is twice the field value of the edges --
+    private final int[] _edgePatternValues;
+
+    // -- the inner fields: a bit mask for each field value --
+    private final long[] _innerMasks;
+    private final int[]  _innerValues;
+
+    /**
+     * Constructor
+     * @param board     the board
+     * @param maxPlayer my player
+     */
+    public TreeSearchBoardAnalyserImpl_v15(Board board, ReversiColor maxPlayer) {
+        super(board, maxPlayer);
+        if (board.getDim() == Board.DEFAULT_DIM) {
+            _edgePatternValues = initEdgePatternValues();
+            final long[] masks = new long[Board.DEFAULT_DIM * Board.DEFAULT_DIM];
+            final int[] values = new int[masks.length];
+            int count = 0;
+            for (int col = 1; col < Board.DEFAULT_DIM - 1; col++) {
+                for (int row = 1; row < Board.DEFAULT_DIM - 1; row++) {
+                    final int bit = (row << 3) + col;
+                    if (bit == X_B2 || bit == X_G2 || bit == X_B7 || bit == X_G7) {
+                        continue;
+                    }
+                    final int value = _initialFieldValues[col][row];
+                    int i = 0;
+                    while (i < count && values[i] != value) {
+                        i++;
+                    }
+                    if (i == count) {
+                        values[count++] = value;
+                    }
+                    masks[i] |= 1L << bit;
+                }
+            }
+            _innerMasks = new long[count];
+            _innerValues = new int[count];
+            System.arraycopy(masks, 0, _innerMasks, 0, count);
+            System.arraycopy(values, 0, _innerValues, 0, count);
+        } else {
+            _edgePatternValues = null;
+            _innerMasks = null;
+            _innerValues = null;
+        }
+    }
+
+    /**
+     * Computes the field values of all patterns of the bottom edge (row 1 with the X-squares of row 2).
+     * All edges have the same field values. The changes of the values next to an occupied corner are the
+     * ones of <code>TreeSearchBoardAnalyserImpl_v14.setFieldValues()</code>.
+     * @return field values of all patterns
+     */
+    private int[] initEdgePatternValues() {
+        final int last = Board.DEFAULT_DIM - 1;
+        final int[] patternValues = new int[POW3_9 * 3];
+        final int[] digits = new int[EDGE_PATTERN_FIELDS];
+        final int[] fieldValues = new int[EDGE_PATTERN_FIELDS];
+        for (int pattern = 0; pattern < patternValues.length; pattern++) {
+            for (int i = 0, p = pattern; i < EDGE_PATTERN_FIELDS; i++, p /= 3) {
+                digits[i] = p % 3;
+            }
+            for (int i = 0; i < Board.DEFAULT_DIM; i++) {
+                fieldValues[i] = _initialFieldValues[i][0];
+            }
+            fieldValues[8] = _initialFieldValues[1][1];
+            fieldValues[9] = _initialFieldValues[last - 1][1];
+            // -- first corner with its C-square and X-square, then the last corner --
+            adjustCorner(digits[0], fieldValues, 1, 8);
+            adjustCorner(digits[last], fieldValues, last - 1, 9);
+
+            int value = 0;
+            for (int i = 0; i < EDGE_PATTERN_FIELDS; i++) {
+                final int owner = digits[i] == 1 ? 1 : digits[i] == 2 ? -1 : 0;
+                final int shared = i == 0 || i == last || i >= Board.DEFAULT_DIM ? 1 : 2;
+                value += owner * fieldValues[i] * shared;
+            }
+            patternValues[pattern] = value;
+        }
+        return patternValues;
+    }
+
+    private static void adjustCorner(int corner, int[] fieldValues, int cSquare, int xSquare) {
+        if (corner == 1) { // my corner
+            fieldValues[xSquare] = 4;
+            fieldValues[cSquare] = 5;
+        } else if (corner == 2) { // opponents corner
+            fieldValues[xSquare] = -1;
+            fieldValues[cSquare] = -1;
+        }
+    }
+
+    /**
+     * Evaluates the field values and the liberties of all stones on the board.
+     * @param board
+     * @param moveNumber last move number of the board
+     * @return weighted sum of the field values and the liberties
+     */
+    @Override
+    protected int analyseFields(TreeSearchBoard board, int moveNumber) {
+        if (!(board instanceof TreeSearchBitBoardImpl) || _edgePatternValues == null) {
+            return super.analyseFields(board, moveNumber);
+        }
+
+        final TreeSearchBitBoardImpl bitBoard = (TreeSearchBitBoardImpl) board;
+        final long max = _maxPlayer.isBlack() ? bitBoard.getBlackStones() : bitBoard.getWhiteStones();
+        final long opp = _maxPlayer.isBlack() ? bitBoard.getWhiteStones() : bitBoard.getBlackStones();
+
+        int value = 0;
+
+        // field values
+        final int fieldWeight = _weightMatrix[moveNumber][1];
+        if (fieldWeight != 0) {
+            int edges = _edgePatternValues[edgeIndex(max, opp) + xIndex(max, opp, X_B2, X_G2)];
+            edges += _edgePatternValues[edgeIndex(max >>> 56, opp >>> 56) + xIndex(max, opp, X_B7, X_G7)];
+            edges += _edgePatternValues[edgeIndex(fileToByte(max, 0), fileToByte(opp, 0))
+                    + xIndex(max, opp, X_B2, X_B7)];
+            edges += _edgePatternValues[edgeIndex(fileToByte(max, 7), fileToByte(opp, 7))
+                    + xIndex(max, opp, X_G2, X_G7)];
+            int fieldValues = edges >> 1;
+            for (int i = 0; i < _innerMasks.length; i++) {
+                fieldValues += _innerValues[i]
+                        * (Long.bitCount(max & _innerMasks[i]) - Long.bitCount(opp & _innerMasks[i]));
+            }
+            value += fieldValues * fieldWeight;
+        }
+
+        // liberties (liberties around my stones are bad) - the board keeps their difference up to date
+        final int libertyWeight = _weightMatrix[moveNumber][11];
+        if (libertyWeight != 0) {
+            value -= bitBoard.getLibertiesDiff(_maxPlayer) * libertyWeight;
+        }
+
+        return value;
+    }
+
+    /**
+     * @param max the fields of the max player on the edge in the lowest byte
+     * @param opp the fields of the opponent on the edge in the lowest byte
+     * @return the part of the pattern index for the 8 fields of an edge
+     */
+    private static int edgeIndex(long max, long opp) {
+        return BASE3[(int) max & 0xFF] + (BASE3[(int) opp & 0xFF] << 1);
+    }
+
+    /**
+     * @param max bitboard of the max player
+     * @param opp bitboard of the opponent
+     * @param xFirst bit of the X-square next to the first field of the edge
+     * @param xLast bit of the X-square next to the last field of the edge
+     * @return the part of the pattern index for the two X-squares of an edge
+     */
+    private static int xIndex(long max, long opp, int xFirst, int xLast) {
+        return POW3_8 * (int) (((max >>> xFirst) & 1) + (((opp >>> xFirst) & 1) << 1))
+             + POW3_9 * (int) (((max >>> xLast) & 1) + (((opp >>> xLast) & 1) << 1));
+    }
+
+    /**
+     * returns string representation of class
+     */
+    @Override
+	public String toString() {
+        return "Class TreeSearchBoardAnalyserImpl_v15";
+    }
+
+}
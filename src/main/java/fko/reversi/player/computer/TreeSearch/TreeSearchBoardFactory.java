@@ -0,0 +1,88 @@
+/*
+ * <p>GPL Disclaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.game.BitBoardImpl;
+import fko.reversi.game.BitSetBoardImpl;
+import fko.reversi.game.Board;
+import fko.reversi.game.BoardSnapshot;
+import fko.reversi.game.SynchronizedBoard;
+
+/**
+ * A factory for the boards used by the TreeSearch engines.<br>
+ * The standard 8x8 board uses <code>TreeSearchBitBoardImpl</code>, all other dimensions use
+ * <code>TreeSearchBitSetBoardImpl</code>.<br>
+ * TreeSearch boards do not use any monitors and are owned by the search thread which created them.
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public class TreeSearchBoardFactory {
+
+    // -- Factories should not be instantiated --
+    private TreeSearchBoardFactory() {}
+
+    /**
+     * Creates a new TreeSearchBoard as a deep copy of the given board.
+     * @param board
+     * @return new TreeSearchBoard
+     */
+    public static TreeSearchBoard createBoard(Board board) {
+        // -- a shared board is copied while holding its lock - the search board is owned by the calling thread --
+        if (board instanceof SynchronizedBoard) {
+            board = ((SynchronizedBoard) board).unsynchronizedCopy();
+        } else if (board instanceof BoardSnapshot) {
+            // -- a snapshot is immutable and is copied without any lock --
+            board = ((BoardSnapshot) board).unsynchronizedCopy();
+        }
+        if (board instanceof BitBoardImpl) {
+            return new TreeSearchBitBoardImpl((BitBoardImpl) board);
+        } else if (board instanceof BitSetBoardImpl) {
+            return new TreeSearchBitSetBoardImpl((BitSetBoardImpl) board);
+        } else if (board.getDim() == Board.DEFAULT_DIM) {
+            return new TreeSearchBitBoardImpl(board);
+        }
+        return new TreeSearchBitSetBoardImpl(board);
+    }
+
+    /**
+     * Creates a deep copy of the given TreeSearchBoard of the same implementation.
+     * @param board
+     * @return copy of the board
+     */
+    public static TreeSearchBoard copyBoard(TreeSearchBoard board) {
+        if (board instanceof TreeSearchBitBoardImpl) {
+            return new TreeSearchBitBoardImpl((TreeSearchBitBoardImpl) board);
+        } else if (board instanceof TreeSearchBitSetBoardImpl) {
+            return new TreeSearchBitSetBoardImpl((TreeSearchBitSetBoardImpl) board);
+        } else if (board instanceof TreeSearchBoardImpl_v14) {
+            return new TreeSearchBoardImpl_v14((TreeSearchBoardImpl_v14) board);
+        }
+        return createBoard(board);
+    }
+
+}
@@ -29,6 +29,9 @@ package fko.reversi.player.computer.TreeSearch;
 
 import fko.reversi.game.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The HashableBoard_v10 extends the BoardImpl class with a stableFields array which is updated
  *
@@ -62,6 +65,9 @@ public class TreeSearchBoardImpl_v13 extends BoardImpl implements TreeSearchBoar
     private int     _stableFieldsBlack = 0;
     private int     _stableFieldsWhite = 0;
 
+    // saved states of the board before each move - used to take back moves
+    private final List<TreeSearchBoardImpl_v13> _savedBoards = new ArrayList<TreeSearchBoardImpl_v13>();
+
     /**
      * default contructor
      */
@@ -129,7 +135,13 @@ public class TreeSearchBoardImpl_v13 extends BoardImpl implements TreeSearchBoar
      */
     @Override
 	public synchronized void makeMove(Move move) throws IllegalMoveException {
-        super.makeMove(move);
+        _savedBoards.add(new TreeSearchBoardImpl_v13(this));
+        try {
+            super.makeMove(move);
+        } catch (IllegalMoveException e) {
+            _savedBoards.remove(_savedBoards.size() - 1);
+            throw e;
+        }
         // --update edge indices --
         updateEdgeIndices(move.getCol()-1, move.getRow()-1);
     }
@@ -378,6 +390,69 @@ public class TreeSearchBoardImpl_v13 extends BoardImpl implements TreeSearchBoar
 
     }
 
+    /**
+     * Writes all legal moves for the next player as packed moves (see PackedMove) into the given array.
+     * This board creates the move list first and converts it.
+     * @param moves
+     * @return number of moves
+     */
+    public int getMoves(int[] moves) {
+        int count = 0;
+        for (Move move : getMoves()) {
+            moves[count++] = PackedMove.create(move, getDim());
+        }
+        return count;
+    }
+
+    /**
+     * Makes a packed move (see PackedMove) on board according to rules.
+     * This board converts the move into a MoveImpl first.
+     * @param move
+     */
+    public void makeMove(int move) throws IllegalMoveException {
+        makeMove(PackedMove.toMove(move, getDim()));
+    }
+
+    /**
+     * Returns the number of stones the given packed move (see PackedMove) would flip on this board.
+     * This board converts the move into a MoveImpl first.
+     * @param move
+     */
+    public int flipCount(int move) {
+        return flipCount(PackedMove.toMove(move, getDim()));
+    }
+
+    /**
+     * Returns the last move as a packed move (see PackedMove)
+     * @return the last move or PackedMove.NONE if there has been no move yet
+     */
+    public int getLastPackedMove() {
+        final Move move = getLastMove();
+        return move == null ? PackedMove.NONE : PackedMove.create(move, getDim());
+    }
+
+    /**
+     * takes back the last move - the board is set back to the state saved before the move
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public synchronized void undoMove() {
+        if (_savedBoards.isEmpty()) {
+            throw new IllegalStateException("Error: TreeSearchBoardImpl_v13.undoMove() There is no move to take back");
+        }
+        final TreeSearchBoardImpl_v13 old = _savedBoards.remove(_savedBoards.size() - 1);
+        restore(old);
+        // -- stable fields are only added during a game so they have to be taken back as well --
+        for (int col = 0; col < getDim(); col++) {
+            System.arraycopy(old._stableFields[col], 0, this._stableFields[col], 0, getDim());
+        }
+        _stableFieldsBlack = old._stableFieldsBlack;
+        _stableFieldsWhite = old._stableFieldsWhite;
+        this._topEdgeIndex = old._topEdgeIndex;
+        this._bottomEdgeIndex = old._bottomEdgeIndex;
+        this._leftEdgeIndex = old._leftEdgeIndex;
+        this._rightEdgeIndex = old._rightEdgeIndex;
+    }
+
     /**
      * returns the difference of number of stable fields
      * @param color
@@ -29,6 +29,9 @@ package fko.reversi.player.computer.TreeSearch;
 
 import fko.reversi.game.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The TreeSearchBoardImpl extends the BoardImpl class ...
  *
@@ -59,6 +62,9 @@ public class TreeSearchBoardImpl_v14 extends BoardImpl implements TreeSearchBoar
     // flag if the current stable field set and counters are valid
     private boolean _valid = false;
 
+    // saved states of the board before each move - used to take back moves
+    private final List<TreeSearchBoardImpl_v14> _savedBoards = new ArrayList<TreeSearchBoardImpl_v14>();
+
     /**
      * default contructor
      */
@@ -123,7 +129,73 @@ public class TreeSearchBoardImpl_v14 extends BoardImpl implements TreeSearchBoar
     @Override
 	public synchronized void makeMove(Move move) throws IllegalMoveException {
         _valid=false;
-        super.makeMove(move);
+        _savedBoards.add(new TreeSearchBoardImpl_v14(this));
+        try {
+            super.makeMove(move);
+        } catch (IllegalMoveException e) {
+            _savedBoards.remove(_savedBoards.size() - 1);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes all legal moves for the next player as packed moves (see PackedMove) into the given array.
+     * This board creates the move list first and converts it.
+     * @param moves
+     * @return number of moves
+     */
+    public int getMoves(int[] moves) {
+        int count = 0;
+        for (Move move : getMoves()) {
+            moves[count++] = PackedMove.create(move, getDim());
+        }
+        return count;
+    }
+
+    /**
+     * Makes a packed move (see PackedMove) on board according to rules.
+     * This board converts the move into a MoveImpl first.
+     * @param move
+     */
+    public void makeMove(int move) throws IllegalMoveException {
+        makeMove(PackedMove.toMove(move, getDim()));
+    }
+
+    /**
+     * Returns the number of stones the given packed move (see PackedMove) would flip on this board.
+     * This board converts the move into a MoveImpl first.
+     * @param move
+     */
+    public int flipCount(int move) {
+        return flipCount(PackedMove.toMove(move, getDim()));
+    }
+
+    /**
+     * Returns the last move as a packed move (see PackedMove)
+     * @return the last move or PackedMove.NONE if there has been no move yet
+     */
+    public int getLastPackedMove() {
+        final Move move = getLastMove();
+        return move == null ? PackedMove.NONE : PackedMove.create(move, getDim());
+    }
+
+    /**
+     * takes back the last move - the board is set back to the state saved before the move
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public synchronized void undoMove() {
+        if (_savedBoards.isEmpty()) {
+            throw new IllegalStateException("Error: TreeSearchBoardImpl_v14.undoMove() There is no move to take back");
+        }
+        final TreeSearchBoardImpl_v14 old = _savedBoards.remove(_savedBoards.size() - 1);
+        restore(old);
+        // -- stable fields are only added during a game so they have to be taken back as well --
+        for (int col = 0; col < getDim(); col++) {
+            System.arraycopy(old._stableFields[col], 0, _stableFields[col], 0, getDim());
+        }
+        _stableFieldsBlack = old._stableFieldsBlack;
+        _stableFieldsWhite = old._stableFieldsWhite;
+        _valid=false;
     }
 
     /**
@@ -98,6 +98,12 @@ public interface TreeSearchEngineWatcher {
      */
     int getBoardsNonQuiet();
 
+    /**
+     * return the number of boards whose evaluation stopped early (lazy evaluation) so far
+     * @return int
+     */
+    int getBoardsLazy();
+
     /**
      * return the number of cache hits so far
      * @return int
@@ -110,6 +116,18 @@ public interface TreeSearchEngineWatcher {
      */
     int getCacheMisses();
 
+    /**
+     * return the number of hits in the cache of the leaf evaluations so far
+     * @return int
+     */
+    int getEvalCacheHits();
+
+    /**
+     * return the number of misses in the cache of the leaf evaluations so far
+     * @return int
+     */
+    int getEvalCacheMisses();
+
     /**
      * return the current cache size
      * @return int
@@ -121,4 +139,11 @@ public interface TreeSearchEngineWatcher {
      * @return int
      */
     int getCurCachedBoards();
+
+    /**
+     * returns the result proven by the endgame search for the current move - "win", "draw" or "loss" after a
+     * win/loss/draw search or the final disc difference (e.g. "+12") after an exact solve
+     * @return String or null if nothing has been proven
+     */
+    String getProvenResult();
 }
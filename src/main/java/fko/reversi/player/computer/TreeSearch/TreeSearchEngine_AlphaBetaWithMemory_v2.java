@@ -169,7 +169,8 @@ public class TreeSearchEngine_AlphaBetaWithMemory_v2 implements Engine, TreeSear
         _startTime = System.currentTimeMillis();
 
         // Create new hashable board based on the current board (deep copy)
-        TreeSearchBoard board = new TreeSearchBoardImpl_v13(curBoard);
+        // The factory chooses the bitboard implementation for the board dimension
+        TreeSearchBoard board = TreeSearchBoardFactory.createBoard(curBoard);
 
         // Set my color (MAX player)
         _maxColor = board.getNextPlayerColor();
@@ -308,14 +309,15 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
                 + "depth: "+d+" extra: "+extra+" alpha: "+alpha+" beta: "+beta);
 
         // Cache lookup
-        BoardValue cachedBoardValue = retrieveCache(parentBoard.getHashKey());
+        final long zobristKey = parentBoard.getZobristKey();
+        BoardValue cachedBoardValue = retrieveCache(zobristKey);
 
         // DEBUG
         Move vergleich = null;
 
         if (cachedBoardValue == null) { // we didn't find something in cache so we must create a new boardValueN
             cachedBoardValue = new TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue(
-                    parentBoard.getHashKey(), TreeSearchEngine_AlphaBetaWithMemory_v2.VALUE_UNKNOWN, 0, MAX_VALUE, -MAX_VALUE);
+                    zobristKey, TreeSearchEngine_AlphaBetaWithMemory_v2.VALUE_UNKNOWN, 0, MAX_VALUE, -MAX_VALUE);
             LOG.info("Not in cache: "+cachedBoardValue.toString());
         }
         else if (_BOUNDS_CACHE && d >= 0 && cachedBoardValue.getDepth() >= parentBoard.getLastMoveNumber()+d) { // can we use this due to depth?
@@ -365,9 +367,8 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
             // Loop though children
             int i=0;
             while(currentBestMoveForNode.getValue() < beta && childrenIterator.hasNext()) {
-                // generate next child out of the next move and a copy of our node
+                // next move - it is made on our node and taken back after the recursion
                 Move currentMove = childrenIterator.next();
-                TreeSearchBoard childBoard = TreeSearchEngine_AlphaBetaWithMemory_v2.genChild(parentBoard, currentMove);
                 // Statistics
                 if (d==_iterativeMaxDepth) {
                     // Store the current move for TreeSearchEngineWatcher
@@ -377,7 +378,9 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
                 }
                 // recursive call
                 LOG.info(" MAX  : "+spacer(d)+parentBoard +" Move: "+currentMove);
-                Move temp = AlphaBetaWithMemory(childBoard, a, beta, d-1, extra);
+                makeMove(parentBoard, currentMove);
+                Move temp = AlphaBetaWithMemory(parentBoard, a, beta, d-1, extra);
+                parentBoard.undoMove();
                 if (temp.getValue() > currentBestMoveForNode.getValue()) {
                     currentMove.setValue(temp.getValue());
                     currentBestMoveForNode=currentMove; // new best move for max player
@@ -399,9 +402,8 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
             // Loop though children
             int i=0;
             while(currentBestMoveForNode.getValue() > alpha && childrenIterator.hasNext()) {
-                // generate next child out of the next move and a copy of our node
+                // next move - it is made on our node and taken back after the recursion
                 Move currentMove = childrenIterator.next();
-                TreeSearchBoard childBoard = TreeSearchEngine_AlphaBetaWithMemory_v2.genChild(parentBoard, currentMove);
                 // Statistics
                 if (d==_iterativeMaxDepth) {
                     // Store the current move for TreeSearchEngineWatcher
@@ -411,7 +413,9 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
                 }
                 // recursive call
                 LOG.info(" MIN  : "+spacer(d)+parentBoard +" Move: "+currentMove);
-                Move temp = AlphaBetaWithMemory(childBoard, alpha, b, d-1, extra);
+                makeMove(parentBoard, currentMove);
+                Move temp = AlphaBetaWithMemory(parentBoard, alpha, b, d-1, extra);
+                parentBoard.undoMove();
                 if (temp.getValue() < currentBestMoveForNode.getValue()) {
                     currentMove.setValue(temp.getValue());
                     currentBestMoveForNode=currentMove; // we have a new best move for min player
@@ -465,31 +469,29 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
     }
 
     /**
-     * Generates a new copy of the given board a makes the given move.
+     * Makes the given move on the given board to generate the child node.
+     * The move has to be taken back with undoMove() after the child has been searched.
      * @param n
      * @param c
-     * @return new board with the move made
      */
-    private static TreeSearchBoard genChild(TreeSearchBoard n, Move c) {
-        TreeSearchBoard n2 = new TreeSearchBoardImpl_v13(n);
+    private static void makeMove(TreeSearchBoard n, Move c) {
         try {
-            n2.makeMove(c);  // generate new board
+            n.makeMove(c);  // generate child node
         } catch (IllegalMoveException e) {
             throw new RuntimeException("Illegal Move should not happen here",e);
         }
-        return n2;
     }
 
     /**
      * Checks if a given board is already evaluated.
-     * @param hashKey - the hashkey of the board we look for its BoardValue
+     * @param zobristKey - the Zobrist key of the board we look for its BoardValue
      * @return Returns a BoardValue of the given board found in the boardCache, null if not found
      */
-    private TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue retrieveCache(String hashKey) {
+    private TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue retrieveCache(long zobristKey) {
         if (!_cacheEnabled) {
             return null;
         }
-        final TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue boardValue = (TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue) _boardCache.get(hashKey);
+        final TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue boardValue = (TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue) _boardCache.get(zobristKey);
         // -- check boardCache --
         if (boardValue != null) {   // hit
             _nodesFoundInCache++;
@@ -506,7 +508,7 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
      */
     private void storeCache(TreeSearchEngine_AlphaBetaWithMemory_v2.BoardValue value) {
         if (_cacheEnabled) {
-            _boardCache.put(value.getHashKey(), value);
+            _boardCache.put(value.getZobristKey(), value);
         }
 
     }
@@ -696,6 +698,14 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
         return _boardsNonQuiet;
     }
 
+    /**
+     * return the number of boards whose evaluation stopped early so far - this engine has no lazy evaluation
+     * @return int
+     */
+    public int getBoardsLazy() {
+        return 0;
+    }
+
     /**
      * return the number of cache hits so far
      * @return int
@@ -712,6 +722,22 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
         return _nodesNotFoundInCache;
     }
 
+    /**
+     * return the number of evaluation cache hits so far - this engine has no separate evaluation cache
+     * @return int
+     */
+    public int getEvalCacheHits() {
+        return 0;
+    }
+
+    /**
+     * return the number of evaluation cache misses so far - this engine has no separate evaluation cache
+     * @return int
+     */
+    public int getEvalCacheMisses() {
+        return 0;
+    }
+
     /**
      * return the current cache size
      * @return int
@@ -734,6 +760,14 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
         return _boardCache.getMaxEntries();
     }
 
+    /**
+     * returns the result proven by the endgame search for the current move - this engine has no endgame search
+     * @return null
+     */
+    public String getProvenResult() {
+        return null;
+    }
+
     /**
      * To support a nicer log output this method returns spaces according to the remaining
      * search depth
@@ -753,15 +787,15 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
      */
     private static class BoardValue {
 
-        private String _hashKey;    // used to store the hash key of the board - the hashkey could be used to recreate the board
+        private long   _zobristKey; // used to store the Zobrist key of the board
         private Move   _bestMove;   // the last move on the board - also used to store the current value
         private int    _searchDepth; // used to find out if upper - and lowerbound are valid
         private int    _value;      // the exact value for the current board
         private int    _upperbound; // _upper and lowerbound are used for subtrees
         private int    _lowerbound; // they can only be used when queried from the same or a lower depth
 
-        private BoardValue(String hashKey, int value, int searchDepth, int upperbound, int lowerbound) {
-            _hashKey = hashKey;
+        private BoardValue(long zobristKey, int value, int searchDepth, int upperbound, int lowerbound) {
+            _zobristKey = zobristKey;
             _bestMove = null;
             _searchDepth = searchDepth;
             _value = value;
@@ -779,12 +813,12 @@ System.out.println("Move Number: "+board.getNextMoveNumber()+" First(Move: "+val
         public int    getExactValue (               ) {return _value; }
         public int    getUpperbound (               ) {return _upperbound; }
         public int    getLowerbound (               ) {return _lowerbound; }
-        public String getHashKey    (               ) {return _hashKey; }
+        public long   getZobristKey (               ) {return _zobristKey; }
 
         @Override
 		public String toString() {
             return MessageFormat.format("{0}: bestMove={1} searchDepth={2} value={3} upperbound={4} lowerbound={5}"
-                    , _hashKey, _bestMove, _searchDepth, _value, _upperbound, _lowerbound);
+                    , Long.toHexString(_zobristKey), _bestMove, _searchDepth, _value, _upperbound, _lowerbound);
         }
     }
 
@@ -31,11 +31,10 @@ import fko.reversi.Reversi;
 import fko.reversi.game.*;
 import fko.reversi.player.Player;
 import fko.reversi.player.computer.Engine;
-import fko.reversi.util.LruCache;
 import static java.lang.Integer.*;
 import static java.lang.Math.*;
 
-import java.text.MessageFormat;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -50,15 +49,23 @@ import java.util.*;
 public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher {
 
     // some constants
-    private static final int   INITIAL_CACHE_CAPACITY   = 100000;
-    private static final float CACHE_LOAD_FACTOR        = 0.75f;
     private static final float INITIAL_BRANCHING_FACTOR = 8.0f;
+    private static final float WLD_TIME_SHARE           = 0.5f; // share of the time for a move the WLD search may use
+    private static final int   ETC_MIN_DEPTH            = 3;    // minimal remaining depth for the ETC
+    private static final int   NO_CUTOFF                = MIN_VALUE; // returned by etc() and probCut() if there was no cut off
+    private static final int   NO_EVALUATION            = MIN_VALUE; // returned by the evaluation cache for a miss
+    private static final int   PROBCUT_MAX_WINDOW       = 1 << 24; // ProbCut is not used with a window beyond this
     
     // some optimization options
     private boolean _USE_PV          = true; // defines if the principal variation search shall be used
     private boolean _USE_NODE_CACHE  = true;
+    private boolean _USE_ETC         = true; // defines if the enhanced transposition cutoff shall be used
+    private boolean _USE_PROBCUT     = true; // defines if Multi-ProbCut shall be used if there are parameters
     private boolean _USE_BOARD_CACHE = true;
     private boolean _USE_QUIESCENCE  = true;
+    // lazy evaluation - the bounds of a lazy evaluation are weaker than the exact value so MTD(f) needs more
+    // passes. With the cheap bitboard evaluation this costs more than it saves (e.g. depth 8: +38% nodes).
+    private boolean _USE_LAZY_EVAL   = false;
 
     // The current game this engine is used in
     private Game _game = null;
@@ -69,6 +76,9 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
     // The boardAnalyser is used to analyze the board and return a value
     private TreeSearchBoardAnalyser _boardAnalyser = null;
 
+    // Killer moves and history of this engine - added to the static move order of the boardAnalyser
+    private MoveOrdering _moveOrdering = null;
+
     // Used for the iterative search to determine the start and the max search depth for each iteration
     private int _currentSearchDepth  = 2;
     private int _iterativeStartDepth = 1;
@@ -82,9 +92,13 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
     private int  _curExtraSearchDepth = 0;
     private int  _boardsChecked       = 0;
     private int  _boardsNonQuiet      = 0;
+    private int  _boardsLazy          = 0;
     private int  _cacheHits           = 0;
     private int  _cacheMisses         = 0;
+    private int  _evalCacheHits       = 0;
+    private int  _evalCacheMisses     = 0;
     private int  _nodesChecked        = 0;
+    private volatile String _provenResult = null;
 
     // Time calculations
     private long  _startTime              = 0L;
@@ -92,15 +106,16 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
     private int   _branchingSum           = 8;
     private int   _branchingFactorCounter = 1;
 
-    // Time control
-    private Timer   _timer                = null;
-    private boolean _softTimeLimitReached = false;
-    private boolean _hardTimeLimitReached = false;
+    // Time control - the flags are set by the TimeKeeper or, for helpers, by the main engine
+    private          Timer   _timer                = null;
+    private volatile boolean _softTimeLimitReached = false;
+    private volatile boolean _hardTimeLimitReached = false;
 
     // cache for already analyzed boards
-    private              boolean  _cacheEnabled;
-    private              LruCache _boardCache   = null;
-    private static final int      VALUE_UNKNOWN = MIN_VALUE;
+    private boolean                  _cacheEnabled;
+    private TranspositionTable       _boardCache = null;
+    private TranspositionTable.Entry _cacheEntry = new TranspositionTable.Entry();
+    private EvaluationCache          _evalCache  = null; // static evaluations of the leaf nodes
 
     // A comparator to sort the move list after an iteration
     private static final Comparator<Move> _moveComparator = new MoveComparator();
@@ -108,13 +123,76 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
     // The last calculated value as a starting point for the next move
     private int _lastValue = 0;
 
+    // -- reusable buffers for the packed moves of each ply - avoids allocations in the search --
+    private int[][] _moveBuffers    = null;
+    private int     _rootMoveNumber = 0;
+
+    // -- the best move of the last searched node of each ply - stored in the cache as hash move --
+    private int[] _bestMoves = null;
+
+    // -- endgame solver - a win/loss/draw search with at most _wldEmpties empty fields and
+    // -- an exact solve with at most _endgameEmpties empty fields (0 = off) --
+    private          int           _wldEmpties     = 0;
+    private          int           _endgameEmpties = 0;
+    private volatile EndgameSolver _endgameSolver  = null;
+
+    // -- Multi-ProbCut: the parameters (null = off) and the number of standard deviations for a cut --
+    private ProbCut _probCut          = null;
+    private float   _probCutThreshold = 1.5f;
+    private boolean _probCutEnabled   = false; // -- only if the parameters are for the dimension of the board --
+
+    // -- Lazy SMP: helper engines search the same position on their own threads and share the cache --
+    private TreeSearchEngine_MTDf_v6[] _helpers     = new TreeSearchEngine_MTDf_v6[0];
+    private int                        _helperIndex = 0; // 0 for the main engine
+
+    // -- Pondering: after our move the ponderer searches the position after the expected reply of the opponent
+    // -- on its own thread and fills the shared cache. _completedDepth is the last fully searched depth. --
+    private          boolean                  _ponder         = false;
+    private          TreeSearchEngine_MTDf_v6 _ponderer       = null;
+    private          Thread                   _ponderThread   = null;
+    private          long                     _ponderKey      = 0L;
+    private volatile int                      _completedDepth = 0;
+
     /**
      * Constructor
      */
     public TreeSearchEngine_MTDf_v6() {
         _cacheEnabled = Boolean.valueOf(Reversi.getProperties().getProperty("engine.cacheEnabled"));
-        _boardCache = new LruCache(INITIAL_CACHE_CAPACITY, CACHE_LOAD_FACTOR, true,
-                parseInt(Reversi.getProperties().getProperty("engine.cacheSize")));
+        if (_cacheEnabled) {
+            _boardCache = new TranspositionTable(
+                    parseInt(Reversi.getProperties().getProperty("engine.cacheSizeMB", "64")));
+            _evalCache = new EvaluationCache(
+                    parseInt(Reversi.getProperties().getProperty("engine.evalCacheSizeMB", "4")));
+        }
+        _wldEmpties = parseInt(Reversi.getProperties().getProperty("engine.wldEmpties", "0"));
+        _endgameEmpties = parseInt(Reversi.getProperties().getProperty("engine.endgameEmpties", "0"));
+        final String probCutFile = Reversi.getProperties().getProperty("engine.probCutFile", "").trim();
+        if (probCutFile.length() > 0) {
+            try {
+                _probCut = ProbCut.load(probCutFile);
+                _probCutThreshold = Float.parseFloat(
+                        Reversi.getProperties().getProperty("engine.probCutThreshold", "1.5"));
+            } catch (IOException e) {
+                System.err.println("ProbCut file " + probCutFile + " could not be loaded - ProbCut is off: " + e);
+            } catch (IllegalArgumentException e) {
+                System.err.println("ProbCut file " + probCutFile + " is invalid - ProbCut is off: " + e);
+            }
+        }
+    }
+
+    /**
+     * Constructor for a helper engine which shares the cache of the main engine.
+     * @param mainEngine
+     * @param helperIndex 1..n
+     */
+    private TreeSearchEngine_MTDf_v6(TreeSearchEngine_MTDf_v6 mainEngine, int helperIndex) {
+        _cacheEnabled = mainEngine._cacheEnabled;
+        _boardCache = mainEngine._boardCache;
+        _evalCache = mainEngine._evalCache;
+        _maxColor = mainEngine._maxColor;
+        _probCut = mainEngine._probCut;
+        _probCutThreshold = mainEngine._probCutThreshold;
+        _helperIndex = helperIndex;
     }
 
     /**
@@ -122,6 +200,18 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
      */
     public void init(Player init_player) {
         _maxColor=init_player.getColor();
+        // Number of search threads for our color - all but the player's thread are helpers
+        final int threads = parseInt(Reversi.getProperties().getProperty(
+                _maxColor.isBlack() ? "engine.black.threads" : "engine.white.threads", "1"));
+        _helpers = new TreeSearchEngine_MTDf_v6[Math.max(threads - 1, 0)];
+        for (int i = 0; i < _helpers.length; i++) {
+            _helpers[i] = new TreeSearchEngine_MTDf_v6(this, i + 1);
+        }
+        // Pondering needs the cache to hand over its results
+        _ponder = _cacheEnabled && Boolean.valueOf(Reversi.getProperties().getProperty(
+                _maxColor.isBlack() ? "engine.black.ponder" : "engine.white.ponder", "false"));
+        // The ponderer is stopped like the main engine when the game is over
+        _ponderer = _ponder ? new TreeSearchEngine_MTDf_v6(this, 0) : null;
     }
 
     /**
@@ -169,13 +259,26 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         }
 
         // Create new hashable board based on the current board (deep copy)
-        TreeSearchBoard board = new TreeSearchBoardImpl_v14(curBoard);
-        
-        // Create and Initialize the BoardAnalyser if not already existing
-        if (_boardAnalyser == null) {
-            _boardAnalyser = new TreeSearchBoardAnalyserImpl_v14(board, _maxColor);
+        // The factory chooses the bitboard implementation for the board dimension
+        TreeSearchBoard board = TreeSearchBoardFactory.createBoard(curBoard);
+
+        // Stop pondering - if the opponent played the expected move the cache already has the results
+        final int ponderDepth = stopPondering(board.getZobristKey());
+
+        // Entries of earlier moves are replaced first - but not the entries of a ponder hit
+        if (_cacheEnabled && ponderDepth == 0) {
+            _boardCache.newSearch();
         }
 
+        // After a ponder hit the iterative deepening of a timed game continues with the last depth of the ponderer
+        final int iterativeStartDepth = _iterativeStartDepth;
+        if (timedGame && ponderDepth > 0) {
+            _iterativeStartDepth = Math.min(Math.max(_iterativeStartDepth, ponderDepth), maxDepth);
+        }
+
+        // Create the BoardAnalyser and the move buffers
+        prepareSearch(board);
+
         // Generate moves to check if we have more then 1 move
         List<Move> moves = board.getMoves();
         _movesSize = moves.size();
@@ -186,22 +289,398 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
             return moves.get(0);
         }
 
+        // Endgame - prove a win, draw or loss and solve exactly with few enough empty fields
+        final int empties = countEmpties(board);
+        if (empties <= _wldEmpties || empties <= _endgameEmpties) {
+            final Move bestMove = searchEndgame(moves, board, empties, approxTime);
+            if (bestMove != null) {
+                if (timedGame) {
+                    _timer.cancel();
+                }
+                return bestMove;
+            }
+        }
+
+        // Start the helper threads - they stop when we have found our move
+        final Thread[] helperThreads = startHelpers(moves, maxDepth, board);
+
         // Do the search
         Move bestMove = search(moves, maxDepth, board);
+        _iterativeStartDepth = iterativeStartDepth;
 
-        // stop the time keepers
+        // stop the helpers and the time keepers
+        stopHelpers(helperThreads);
         if (timedGame) {
             _timer.cancel();
         }
 
+        // Use the time of the opponent
+        if (_ponder) {
+            startPondering(board, bestMove, maxDepth);
+        }
+
         return bestMove;
     }
 
+    /**
+     * The endgame stages.<br/>
+     * First the win/loss/draw search - in a timed game with its own time budget. Then, with few enough empty
+     * fields, the exact solve. If the exact solve does not finish in time the winning or drawing move of the
+     * first stage is played.
+     * @param moves
+     * @param board
+     * @param empties
+     * @param approxTime time available for this move in a timed game
+     * @return the best move or null if nothing could be proven and the normal search has to be used
+     */
+    private Move searchEndgame(List<Move> moves, TreeSearchBoard board, int empties, long approxTime) {
+        if (_endgameSolver == null) {
+            _endgameSolver = new EndgameSolver(_cacheEnabled ? new EndgameTable(parseInt(
+                    Reversi.getProperties().getProperty("engine.endgameCacheSizeMB", "16"))) : null);
+        }
+
+        // Sort the move, good candidates first
+        _boardAnalyser.sortMoves(board, moves);
+        _curSearchDepth = empties;
+        _curExtraSearchDepth = empties;
+
+        // Win/loss/draw
+        Move wldMove = null;
+        if (empties <= _wldEmpties) {
+            wldMove = solveWLD(moves, board, _game.isTimedGame() ? (long) (approxTime * WLD_TIME_SHARE) : 0L);
+            if (wldMove != null) {
+                // try the proven move first
+                moves.remove(wldMove);
+                moves.add(0, wldMove);
+            }
+        }
+
+        // Exact
+        if (empties <= _endgameEmpties && !_hardTimeLimitReached && !_game.isOverOrStopped()) {
+            final Move exactMove = solveEndgame(moves, board);
+            if (!_endgameSolver.isStopped() || wldMove == null) {
+                return exactMove;
+            }
+        }
+
+        return wldMove;
+    }
+
+    /**
+     * Proves a win, a draw or a loss with null window searches around 0.<br/>
+     * Stops with the first winning move. The value of a winning move is a lower bound of its disc difference.
+     * @param moves
+     * @param board
+     * @param timeBudget maximal time for the search in ms - 0 for no limit
+     * @return a winning move, a drawing move if there is no winning move or null if all moves lose or the search
+     * did not finish in time
+     */
+    private Move solveWLD(List<Move> moves, TreeSearchBoard board, long timeBudget) {
+        final EndgameSolver solver = _endgameSolver;
+        solver.reset();
+        solver.setGame(_game);
+        TimerTask budget = null;
+        if (timeBudget > 0) {
+            budget = new TreeSearchEngine_MTDf_v6.TimeKeeper(3);
+            _timer.schedule(budget, timeBudget);
+        }
+
+        Move drawMove = null;
+        Move winMove = null;
+        for (int i = 0; i < moves.size(); i++) {
+            final Move m = moves.get(i);
+            _curMoveNumber = i + 1;
+            _curMove = m;
+            makeMove(board, m);
+            final int value = solver.solve(board, _maxColor, -1, 1);
+            board.undoMove();
+            //noinspection NumericCastThatLosesPrecision
+            _nodesChecked = (int) solver.getNodes();
+            if (solver.isStopped() || _game.isOverOrStopped()) {
+                break;
+            }
+            m.setValue(value);
+            if (value > 0) {
+                winMove = m;
+                break;
+            }
+            if (value == 0 && drawMove == null) {
+                drawMove = m;
+            }
+        }
+
+        if (budget != null) {
+            budget.cancel();
+        }
+
+        if (winMove != null) {
+            _provenResult = "win";
+            _currentBestMove = winMove;
+            return winMove;
+        }
+        if (solver.isStopped() || _game.isOverOrStopped()) {
+            return null;
+        }
+        if (drawMove != null) {
+            _provenResult = "draw";
+            _currentBestMove = drawMove;
+            return drawMove;
+        }
+        _provenResult = "loss";
+        return null;
+    }
+
+    /**
+     * Solves the endgame exactly. The values of the moves are the final disc differences.<br/>
+     * The first move is solved with a full window. The other moves are only tested with a null window if they
+     * are better than the best move so far and solved again if they are.<br/>
+     * If the search is stopped the best move solved so far is returned.
+     * @param moves sorted moves
+     * @param board
+     * @return best move
+     */
+    private Move solveEndgame(List<Move> moves, TreeSearchBoard board) {
+        final EndgameSolver solver = _endgameSolver;
+        solver.reset();
+        solver.setGame(_game);
+        _currentBestMove = moves.get(0);
+
+        final int infinity = board.getDim() * board.getDim() + 1;
+        int bestValue = -infinity;
+        for (int i = 0; i < moves.size(); i++) {
+            final Move m = moves.get(i);
+            _curMoveNumber = i + 1;
+            _curMove = m;
+            makeMove(board, m);
+            int value;
+            if (i == 0) {
+                value = solver.solve(board, _maxColor, -infinity, infinity);
+            } else {
+                value = solver.solve(board, _maxColor, bestValue, bestValue + 1);
+                if (value > bestValue) { // better move - get the exact value
+                    value = solver.solve(board, _maxColor, value - 1, infinity);
+                }
+            }
+            board.undoMove();
+            //noinspection NumericCastThatLosesPrecision
+            _nodesChecked = (int) solver.getNodes();
+            if (solver.isStopped() || _game.isOverOrStopped()) {
+                break;
+            }
+            m.setValue(value);
+            if (value > bestValue) {
+                bestValue = value;
+                _currentBestMove = m;
+            }
+        }
+        if (!solver.isStopped() && !_game.isOverOrStopped()) {
+            _provenResult = bestValue > 0 ? "+" + bestValue : String.valueOf(bestValue);
+        }
+        return _currentBestMove;
+    }
+
+    /**
+     * @param board
+     * @return number of empty fields of the board
+     */
+    private static int countEmpties(Board board) {
+        return board.getDim() * board.getDim() - board.getPiecesBlack() - board.getPiecesWhite();
+    }
+
+    /**
+     * Creates the BoardAnalyser and the MoveOrdering if not already existing and prepares the move buffers
+     * for each ply from the current move to the end of the game.
+     * @param board
+     */
+    private void prepareSearch(TreeSearchBoard board) {
+        if (_boardAnalyser == null) {
+            _boardAnalyser = new TreeSearchBoardAnalyserImpl_v15(board, _maxColor);
+        }
+        if (_moveOrdering == null) {
+            _moveOrdering = new MoveOrdering(board.getDim());
+        } else {
+            _moveOrdering.newSearch();
+        }
+        _probCutEnabled = _USE_PROBCUT && _probCut != null && _probCut.getDim() == board.getDim();
+        _rootMoveNumber = board.getLastMoveNumber();
+        final int plies = board.getMaxMoveNumber() - _rootMoveNumber + 1;
+        final int fields = board.getDim() * board.getDim();
+        if (_moveBuffers == null || _moveBuffers.length < plies || _moveBuffers[0].length < fields) {
+            _moveBuffers = new int[plies][fields];
+            _bestMoves = new int[plies];
+        }
+    }
+
+    /**
+     * Lazy SMP - starts a thread for each helper engine.<br/>
+     * Every helper runs the same iterative deepening search on its own copy of the board. Odd helpers search
+     * one ply deeper and every helper starts with a different root move. The helpers only communicate through
+     * the shared cache and are stopped by <code>stopHelpers()</code>.
+     * @param moves
+     * @param maxDepth
+     * @param board
+     * @return the started threads
+     */
+    private Thread[] startHelpers(List<Move> moves, int maxDepth, TreeSearchBoard board) {
+        final Thread[] threads = new Thread[_helpers.length];
+        for (int i = 0; i < _helpers.length; i++) {
+            final TreeSearchEngine_MTDf_v6 helper = _helpers[i];
+            final int depth = maxDepth + (helper._helperIndex & 1);
+            final TreeSearchBoard helperBoard = TreeSearchBoardFactory.createBoard(board);
+            final List<Move> helperMoves = new ArrayList<Move>(moves.size());
+            for (Move m : moves) {
+                //noinspection ObjectAllocationInLoop
+                helperMoves.add(new MoveImpl(m));
+            }
+            helper._game = _game;
+            helper._startTime = _startTime;
+            helper._iterativeStartDepth = _iterativeStartDepth + (helper._helperIndex & 1);
+            helper._lastValue = _lastValue;
+            helper._softTimeLimitReached = false;
+            helper._hardTimeLimitReached = false;
+            helper.resetCounters();
+            helper.prepareSearch(helperBoard);
+            //noinspection ObjectAllocationInLoop
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    helper.search(helperMoves, depth, helperBoard);
+                }
+            }, "Engine " + _maxColor + " Helper " + helper._helperIndex);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        return threads;
+    }
+
+    /**
+     * Stops the helper engines and waits for their threads to finish.
+     * @param threads
+     */
+    private void stopHelpers(Thread[] threads) {
+        for (TreeSearchEngine_MTDf_v6 helper : _helpers) {
+            helper._softTimeLimitReached = true;
+            helper._hardTimeLimitReached = true;
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts the ponderer with the position after our move and the expected reply of the opponent.<br/>
+     * The expected reply is the best move of the opponent in the cache or, if there is none, the first move of the
+     * static move order. If the opponent has to pass the position is known for sure. Positions which will be
+     * solved by the endgame solver are not pondered.
+     * @param board the board of our move - not changed
+     * @param bestMove our move
+     * @param maxDepth
+     */
+    private void startPondering(TreeSearchBoard board, Move bestMove, final int maxDepth) {
+        final TreeSearchBoard ponderBoard = TreeSearchBoardFactory.createBoard(board);
+        makeMove(ponderBoard, bestMove);
+
+        // Expected reply of the opponent
+        if (ponderBoard.getNextPlayerColor() != _maxColor) {
+            final int[] replies = new int[ponderBoard.getDim() * ponderBoard.getDim()];
+            final int count = ponderBoard.getMoves(replies);
+            if (count == 0) {
+                return;
+            }
+            int reply = PackedMove.NONE;
+            if (_boardCache.probe(ponderBoard.getZobristKey(), _cacheEntry)) {
+                for (int i = 0; i < count; i++) {
+                    if (PackedMove.clearScore(replies[i]) == _cacheEntry.getMove()) {
+                        reply = replies[i];
+                        break;
+                    }
+                }
+            }
+            if (reply == PackedMove.NONE) {
+                _boardAnalyser.sortMoves(ponderBoard, replies, count);
+                reply = replies[0];
+            }
+            makeMove(ponderBoard, reply);
+        }
+
+        // Only positions the normal search would have to search
+        if (ponderBoard.getNextPlayerColor() != _maxColor || _game.isOverOrStopped()) {
+            return;
+        }
+        final int empties = countEmpties(ponderBoard);
+        if (empties <= _wldEmpties || empties <= _endgameEmpties) {
+            return;
+        }
+        final List<Move> moves = ponderBoard.getMoves();
+        if (moves.size() < 2) {
+            return;
+        }
+
+        final TreeSearchEngine_MTDf_v6 ponderer = _ponderer;
+        ponderer._game = _game;
+        ponderer._startTime = System.currentTimeMillis();
+        ponderer._iterativeStartDepth = 1;
+        ponderer._lastValue = _lastValue;
+        ponderer._completedDepth = 0;
+        ponderer._softTimeLimitReached = false;
+        ponderer._hardTimeLimitReached = false;
+        ponderer.resetCounters();
+        ponderer.prepareSearch(ponderBoard);
+        _boardCache.newSearch();
+        _ponderKey = ponderBoard.getZobristKey();
+        _ponderThread = new Thread(new Runnable() {
+            public void run() {
+                ponderer.search(moves, maxDepth, ponderBoard);
+            }
+        }, "Engine " + _maxColor + " Ponder");
+        _ponderThread.setDaemon(true);
+        _ponderThread.start();
+    }
+
+    /**
+     * Stops the ponderer and waits for its thread to finish.
+     * @param zobristKey key of the board we have to move on now
+     * @return the depth the ponderer has completed if it searched this board - 0 otherwise
+     */
+    private int stopPondering(long zobristKey) {
+        final Thread thread = _ponderThread;
+        if (thread == null) {
+            return 0;
+        }
+        _ponderer._softTimeLimitReached = true;
+        _ponderer._hardTimeLimitReached = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        _ponderThread = null;
+        return zobristKey == _ponderKey ? _ponderer._completedDepth : 0;
+    }
+
+    /**
+     * Checks if the search has to be stopped because the game has been stopped or the hard time limit
+     * has been reached. Helpers are only stopped by the main engine.
+     * @return true if the search has to be stopped
+     */
+    private boolean isSearchStopped() {
+        return _hardTimeLimitReached || (_helperIndex == 0 && _game.isOverOrStopped());
+    }
+
     private Move search(List<Move> moves, int maxDepth, TreeSearchBoard parentBoard) {
 
         // Sort the move, good candidates first
         _boardAnalyser.sortMoves(parentBoard, moves);
 
+        // Helpers start with a different move
+        if (_helperIndex > 0) {
+            Collections.rotate(moves, -(_helperIndex % moves.size()));
+        }
+
         // Holds the best move so far
         _currentBestMove = new MoveImpl(moves.get(0));
         _currentBestMove.setValue(-MAX_VALUE);
@@ -221,21 +700,24 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
 
                 final Move m = movesIterator.next();
                 _curMove = m;
-                TreeSearchBoard childBoard = genChild(parentBoard, m);
 
                 // Do the actual search using either AlphaBeta or MTDf depending on the search depth.
                 // MTDf is more efficient within deeper searches
-                if (_currentSearchDepth < 4 || parentBoard.getNextMoveNumber() > 0.8*parentBoard.getMaxMoveNumber()) {
-                    m.setValue(AlphaBetaWithMemory(childBoard, -MAX_VALUE, MAX_VALUE, _currentSearchDepth-1, 0));
+                final boolean useAlphaBeta = _currentSearchDepth < 4
+                        || parentBoard.getNextMoveNumber() > 0.8*parentBoard.getMaxMoveNumber();
+                makeMove(parentBoard, m);
+                if (useAlphaBeta) {
+                    m.setValue(AlphaBetaWithMemory(parentBoard, -MAX_VALUE, MAX_VALUE, _currentSearchDepth-1, 0));
                 } else {
                     if (_game.isTimedGame()) {
                         // In a time game we always have a value for the current best move here
-                        m.setValue(MTDf(childBoard, _currentBestMove.getValue(), _currentSearchDepth - 1));
+                        m.setValue(MTDf(parentBoard, _currentBestMove.getValue(), _currentSearchDepth - 1));
                     } else {
                         // If the game is not timed we use the value of the last own move as a start value
-                        m.setValue(MTDf(childBoard, _lastValue, _currentSearchDepth - 1));
+                        m.setValue(MTDf(parentBoard, _lastValue, _currentSearchDepth - 1));
                     }
                 }
+                parentBoard.undoMove();
 
                 // we have found a new best move
                 if (m.getValue() > _currentBestMove.getValue()) {
@@ -256,6 +738,7 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
             if (_softTimeLimitReached || _game.isOverOrStopped()) {
                 break;
             }
+            _completedDepth = _currentSearchDepth;
 
         }
 
@@ -333,6 +816,10 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
             if (_hardTimeLimitReached && lowerbound>-MAX_VALUE) {
                 return lowerbound; // time is up for this move
             }
+            // A stopped helper does not need a value
+            if (_hardTimeLimitReached && _helperIndex > 0) {
+                return g;
+            }
         }
         return g;
     }
@@ -350,8 +837,10 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
      */
     private int AlphaBetaWithMemory(final TreeSearchBoard parentBoard, int alpha, int beta, int d, int extra) {
 
-        // Check for game paused
-        _game.waitWhileGamePaused();
+        // Check for game paused - helpers only check at the root
+        if (_helperIndex == 0) {
+            _game.waitWhileGamePaused();
+        }
 
         // best value so far
         int bestValue;
@@ -366,25 +855,31 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         }
 
         // Cache lookup
-        BoardValue cachedBoardValue = retrieveCache(parentBoard.getHashKey());
-
-        // we didn't find something useful(!) in cache so we must create a new boardValueN
-        if (cachedBoardValue == null || cachedBoardValue.getDepth() < parentBoard.getLastMoveNumber()+d) {
-            cachedBoardValue = new BoardValue(
-                    parentBoard.getHashKey(), VALUE_UNKNOWN, 0, MAX_VALUE, -MAX_VALUE);
-        }
-        // we found something useful - if cache for nodes turned on then us it
-        else if (_USE_NODE_CACHE) {
-                // we found something in cache
-                if (cachedBoardValue.getUpperbound() <= alpha
-                        || cachedBoardValue.getUpperbound() == cachedBoardValue.getLowerbound()) {
-                    return cachedBoardValue.getUpperbound();
+        final long zobristKey = parentBoard.getZobristKey();
+        final TranspositionTable.Entry cachedBoardValue = retrieveCache(zobristKey);
+
+        // the bounds we know of this board - kept for the cache update
+        int lowerbound = -MAX_VALUE;
+        int upperbound = MAX_VALUE;
+
+        // the best move of an earlier search of this board is tried first - also from a lower depth
+        final int hashMove = cachedBoardValue != null ? cachedBoardValue.getMove() : PackedMove.NONE;
+
+        // we found something useful(!) in cache - the entry must be from the same or a deeper search
+        if (cachedBoardValue != null && cachedBoardValue.getDepth() >= d) {
+            lowerbound = cachedBoardValue.getLowerbound();
+            upperbound = cachedBoardValue.getUpperbound();
+            // if cache for nodes turned on then use it
+            if (_USE_NODE_CACHE) {
+                if (upperbound <= alpha || upperbound == lowerbound) {
+                    return upperbound;
                 }
-                if (cachedBoardValue.getLowerbound() >= beta) {
-                    return cachedBoardValue.getLowerbound();
+                if (lowerbound >= beta) {
+                    return lowerbound;
                 }
-                alpha = Math.max(alpha, cachedBoardValue.getLowerbound());
-                beta  = Math.min(beta, cachedBoardValue.getUpperbound());
+                alpha = Math.max(alpha, lowerbound);
+                beta  = Math.min(beta, upperbound);
+            }
         }
 
         // Check if node is leave node and if board is quiet - increase depth by 1 if non-quiet
@@ -397,43 +892,66 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
 
         // Processing node
         if (d == 0 || parentBoard.getNextPlayerColor().isNone()) { // n is LEAFNODE
-            return leafNode(cachedBoardValue, parentBoard, d);
+            return leafNode(parentBoard, zobristKey, lowerbound, upperbound, alpha, beta, d, hashMove);
         }
-        else if (parentBoard.getNextPlayerColor() == _maxColor) { // n is a MAXNODE
-            bestValue = maxNode(parentBoard, alpha, beta, d, extra);
+
+        // Multi-ProbCut - shallow searches predict if the deep search would end outside the window
+        if (_probCutEnabled) {
+            final int value = probCut(parentBoard, alpha, beta, d, extra);
+            if (value != NO_CUTOFF) {
+                return value;
+            }
+        }
+
+        if (parentBoard.getNextPlayerColor() == _maxColor) { // n is a MAXNODE
+            bestValue = maxNode(parentBoard, alpha, beta, d, extra, hashMove);
         }
         else if (parentBoard.getNextPlayerColor() == _maxColor.getInverseColor()) { // n is a MINNODE
-            bestValue = minNode(parentBoard, alpha, beta, d, extra);
+            bestValue = minNode(parentBoard, alpha, beta, d, extra, hashMove);
         } else {
             throw new RuntimeException("No next player!");
         }
 
-        // Cache update
-        if (_USE_NODE_CACHE) {
-            updateCacheNode(parentBoard, cachedBoardValue, alpha, beta, bestValue, d);
+        // Cache update - not for a stopped search as its values are incomplete
+        if (_USE_NODE_CACHE && !_hardTimeLimitReached) {
+            updateCacheNode(zobristKey, lowerbound, upperbound, alpha, beta, bestValue, d,
+                    _bestMoves[parentBoard.getLastMoveNumber() - _rootMoveNumber]);
         }
 
         return bestValue;
     }
 
     /**
-     * Calculates the leaf nodes.
-     * @param cachedBoardValue
+     * Calculates the leaf nodes.<br/>
+     * The evaluations are kept in their own cache (see EvaluationCache) and not in the cache of the bounds.
+     * With _USE_LAZY_EVAL the evaluation may stop early when its value can not get into the window. Such a value
+     * is only a bound and is stored in the cache of the bounds.
      * @param parentBoard
+     * @param zobristKey
+     * @param lowerbound the lowerbound from the cache
+     * @param upperbound the upperbound from the cache
+     * @param alpha
+     * @param beta
      * @param d
+     * @param hashMove the best move from the cache - kept in the cache
      * @return value of the board in a null move
      */
-    private int leafNode(BoardValue cachedBoardValue, TreeSearchBoard parentBoard, int d) {
-        int value;
-        if (cachedBoardValue.getExactValue() == VALUE_UNKNOWN) { // cache miss - evaluate the board and store in cache
+    private int leafNode(TreeSearchBoard parentBoard, long zobristKey, int lowerbound, int upperbound,
+                         int alpha, int beta, int d, int hashMove) {
+        int value = retrieveEvaluation(zobristKey);
+        if (value == NO_EVALUATION) { // cache miss - evaluate the board and store in cache
             // Calculate heuristic value for the board
-            value = _boardAnalyser.analyse(parentBoard);
+            value = _USE_LAZY_EVAL ? _boardAnalyser.analyse(parentBoard, alpha, beta)
+                                   : _boardAnalyser.analyse(parentBoard);
             _boardsChecked++;
-            if (_USE_BOARD_CACHE) {
-                updateCacheLeaf(parentBoard, cachedBoardValue, value, d);
+            if (_boardAnalyser.isLastAnalysisLazy()) {
+                _boardsLazy++; // just for statistics
+                if (_USE_BOARD_CACHE) {
+                    updateCacheNode(zobristKey, lowerbound, upperbound, alpha, beta, value, d, hashMove);
+                }
+            } else if (_USE_BOARD_CACHE) {
+                updateEvaluation(zobristKey, value);
             }
-        } else { // cache hit and value found
-            value = cachedBoardValue.getExactValue();
         }
         return value;
     }
@@ -445,47 +963,62 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
      * @param beta
      * @param d
      * @param extra
+     * @param hashMove the best move from the cache - searched first
      * @return best move with value for the position
      */
-    private int maxNode(TreeSearchBoard parentBoard, int alpha, int beta, int d, int extra) {
-        Move currentBestMoveForNode;
-        // Generate moves for current player
-        List<Move> children = genChildren(parentBoard);
-        ListIterator<Move> childrenIterator = children.listIterator();
-        // Set the first move as the current best move
-        currentBestMoveForNode = children.get(0);
-        currentBestMoveForNode.setValue(-MAX_VALUE);
+    private int maxNode(TreeSearchBoard parentBoard, int alpha, int beta, int d, int extra, int hashMove) {
+        // Generate moves for current player into the buffer of this ply
+        final int ply = parentBoard.getLastMoveNumber() - _rootMoveNumber;
+        final int[] children = _moveBuffers[ply];
+        final int count = genChildren(parentBoard, children, hashMove);
+        // Enhanced transposition cutoff - maybe the cache already knows a child which refutes the window
+        if (_USE_ETC && _cacheEnabled && d >= ETC_MIN_DEPTH) {
+            final int value = etc(parentBoard, children, count, alpha, beta, d, true);
+            if (value != NO_CUTOFF) {
+                return value;
+            }
+        }
+        final int alphaAtStart = alpha;
+        int bestMove = PackedMove.NONE;
+        // Start with the worst value for the max player
+        int bestValue = -MAX_VALUE;
         // Loop though children
-        while(currentBestMoveForNode.getValue() < beta && childrenIterator.hasNext()) {
-            // generate next child out of the next move and a copy of our node
-            Move currentMove = childrenIterator.next();
-            TreeSearchBoard childBoard = genChild(parentBoard, currentMove);
+        for (int i = 0; bestValue < beta && i < count; i++) {
+            // make the next move on our node - it is taken back after the recursion
+            makeMove(parentBoard, children[i]);
             // Recursion
-            if (_USE_PV && childrenIterator.previousIndex()>0) {
-                currentMove.setValue(AlphaBetaWithMemory(childBoard, alpha, alpha+1, d-1, extra));
-                 if (alpha < currentMove.getValue() && currentMove.getValue() < beta) { // Check for failure.
-                     currentMove.setValue(AlphaBetaWithMemory(childBoard, currentMove.getValue(), beta, d-1, extra));
+            int value;
+            if (_USE_PV && i>0) {
+                value = AlphaBetaWithMemory(parentBoard, alpha, alpha+1, d-1, extra);
+                 if (alpha < value && value < beta) { // Check for failure.
+                     value = AlphaBetaWithMemory(parentBoard, value, beta, d-1, extra);
                  }
             }  else {
-                currentMove.setValue(AlphaBetaWithMemory(childBoard, alpha, beta, d-1, extra));
+                value = AlphaBetaWithMemory(parentBoard, alpha, beta, d-1, extra);
             }
+            parentBoard.undoMove();
             // Did we find something new?
-            if (currentMove.getValue() > currentBestMoveForNode.getValue()) {
-                currentBestMoveForNode=currentMove; // new best move for max player
+            if (value > bestValue) {
+                bestValue = value; // new best value for max player
+                bestMove = children[i];
             }
-            if (currentBestMoveForNode.getValue() > alpha) { // a = Math.max(a, currentBestMoveForNode.getValue());
-                alpha = currentBestMoveForNode.getValue();
+            if (bestValue > alpha) { // a = Math.max(a, bestValue);
+                alpha = bestValue;
             }
             if (alpha >= beta) {
+                _moveOrdering.addCutoff(parentBoard.getLastMoveNumber(), children[i], d);
                 break;
             }
             // Check if game has been stopped or the hard time limit has been reached
             // and return the best move so far
-            if (_hardTimeLimitReached || _game.isOverOrStopped()) {
+            if (isSearchStopped()) {
                 break;
             }
         }
-        return currentBestMoveForNode.getValue();
+        // If no move was better than alpha the best move is only a guess - keep the one from the cache then
+        _bestMoves[ply] = bestValue <= alphaAtStart && hashMove != PackedMove.NONE
+                ? hashMove : PackedMove.clearScore(bestMove);
+        return bestValue;
     }
 
     /**
@@ -495,152 +1028,283 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
      * @param beta
      * @param d
      * @param extra
+     * @param hashMove the best move from the cache - searched first
      * @return best move with value for the position
      */
-    private int minNode(TreeSearchBoard parentBoard, int alpha, int beta, int d, int extra) {
-        Move currentBestMoveForNode;
-        // Generate moves for current player
-        List<Move> children = genChildren(parentBoard);
-        ListIterator<Move> childrenIterator = children.listIterator();
-        // Set the first move as the current best move
-        currentBestMoveForNode = children.get(0);
-        currentBestMoveForNode.setValue(MAX_VALUE);
+    private int minNode(TreeSearchBoard parentBoard, int alpha, int beta, int d, int extra, int hashMove) {
+        // Generate moves for current player into the buffer of this ply
+        final int ply = parentBoard.getLastMoveNumber() - _rootMoveNumber;
+        final int[] children = _moveBuffers[ply];
+        final int count = genChildren(parentBoard, children, hashMove);
+        // Enhanced transposition cutoff - maybe the cache already knows a child which refutes the window
+        if (_USE_ETC && _cacheEnabled && d >= ETC_MIN_DEPTH) {
+            final int value = etc(parentBoard, children, count, alpha, beta, d, false);
+            if (value != NO_CUTOFF) {
+                return value;
+            }
+        }
+        final int betaAtStart = beta;
+        int bestMove = PackedMove.NONE;
+        // Start with the worst value for the min player
+        int bestValue = MAX_VALUE;
         // Loop though children
-        while(currentBestMoveForNode.getValue() > alpha && childrenIterator.hasNext()) {
-            // generate next child out of the next move and a copy of our node
-            Move currentMove = childrenIterator.next();
-            TreeSearchBoard childBoard = genChild(parentBoard, currentMove);
+        for (int i = 0; bestValue > alpha && i < count; i++) {
+            // make the next move on our node - it is taken back after the recursion
+            makeMove(parentBoard, children[i]);
             // Recursion
-            if (_USE_PV && childrenIterator.previousIndex()>0) {
-                currentMove.setValue(AlphaBetaWithMemory(childBoard, beta-1, beta, d-1, extra));
-                if (alpha < currentMove.getValue() && currentMove.getValue() < beta) { // Check for failure.
-                    currentMove.setValue(AlphaBetaWithMemory(childBoard, alpha, currentMove.getValue(), d-1, extra));
+            int value;
+            if (_USE_PV && i>0) {
+                value = AlphaBetaWithMemory(parentBoard, beta-1, beta, d-1, extra);
+                if (alpha < value && value < beta) { // Check for failure.
+                    value = AlphaBetaWithMemory(parentBoard, alpha, value, d-1, extra);
                 }
             } else {
-                currentMove.setValue(AlphaBetaWithMemory(childBoard, alpha, beta, d-1, extra));
+                value = AlphaBetaWithMemory(parentBoard, alpha, beta, d-1, extra);
             }
+            parentBoard.undoMove();
             // Did we find something new?
-            if (currentMove.getValue() < currentBestMoveForNode.getValue()) {
-                currentBestMoveForNode=currentMove; // we have a new best move for min player
+            if (value < bestValue) {
+                bestValue = value; // we have a new best value for min player
+                bestMove = children[i];
             }
-            if (currentBestMoveForNode.getValue() < beta) { //b = Math.min(b, currentBestMoveForNode.getValue());
-                beta=currentBestMoveForNode.getValue();
+            if (bestValue < beta) { //b = Math.min(b, bestValue);
+                beta = bestValue;
             }
             if (alpha >= beta) {
+                _moveOrdering.addCutoff(parentBoard.getLastMoveNumber(), children[i], d);
                 break;
             }
             // Check if game has been stopped or the hard time limit has been reached
             // and return the best move so far
-            if (_hardTimeLimitReached || _game.isOverOrStopped()) {
+            if (isSearchStopped()) {
                 break;
             }
         }
-        return currentBestMoveForNode.getValue();
+        // If no move was better than beta the best move is only a guess - keep the one from the cache then
+        _bestMoves[ply] = bestValue >= betaAtStart && hashMove != PackedMove.NONE
+                ? hashMove : PackedMove.clearScore(bestMove);
+        return bestValue;
     }
 
     /**
-     * Generates a list of moves from a given board and also sorts these moves using
-     * _boardAnalyser.sortMoves.
+     * Multi-ProbCut (Michael Buro).<br/>
+     * The value of the deep search is predicted by a linear regression on the value of a shallow search with the
+     * parameters for the stage of the game and the depth (see <code>ProbCut</code>). A null window search with the
+     * shallow depth checks if the deep search would be at or above beta (or at or below alpha) with a probability
+     * given by _probCutThreshold. The cheapest check comes first.<br/>
+     * The parameters are from the view of the player to move, the engine uses the view of the max player.
+     * The result of a cut off is not stored in the cache as it is only a prediction.
+     * @param parentBoard
+     * @param alpha
+     * @param beta
+     * @param d
+     * @param extra
+     * @return beta or alpha if the deep search is not needed or NO_CUTOFF
+     */
+    private int probCut(TreeSearchBoard parentBoard, int alpha, int beta, int d, int extra) {
+        if (alpha <= -PROBCUT_MAX_WINDOW || beta >= PROBCUT_MAX_WINDOW) {
+            return NO_CUTOFF;
+        }
+        final ProbCut.Check[] checks = _probCut.getChecks(
+                parentBoard.getPiecesBlack() + parentBoard.getPiecesWhite() - 4, d);
+        if (checks == null) {
+            return NO_CUTOFF;
+        }
+        final boolean isMaxNode = parentBoard.getNextPlayerColor() == _maxColor;
+        // window from the view of the player to move
+        final int sideAlpha = isMaxNode ? alpha : -beta;
+        final int sideBeta  = isMaxNode ? beta  : -alpha;
+        for (ProbCut.Check check : checks) {
+            final int shallowDepth = check.getShallowDepth();
+            // Will the deep search fail high for the player to move?
+            int bound = check.getUpperBound(sideBeta, _probCutThreshold);
+            if (isMaxNode ? AlphaBetaWithMemory(parentBoard, bound - 1, bound, shallowDepth, extra) >= bound
+                          : AlphaBetaWithMemory(parentBoard, -bound, -bound + 1, shallowDepth, extra) <= -bound) {
+                return isMaxNode ? beta : alpha;
+            }
+            // Will the deep search fail low for the player to move?
+            bound = check.getLowerBound(sideAlpha, _probCutThreshold);
+            if (isMaxNode ? AlphaBetaWithMemory(parentBoard, bound, bound + 1, shallowDepth, extra) <= bound
+                          : AlphaBetaWithMemory(parentBoard, -bound - 1, -bound, shallowDepth, extra) >= -bound) {
+                return isMaxNode ? alpha : beta;
+            }
+            if (isSearchStopped()) {
+                break;
+            }
+        }
+        return NO_CUTOFF;
+    }
+
+    /**
+     * Enhanced transposition cutoff (ETC).<br/>
+     * Looks up all children of a node in the cache before any of them is searched. If the cache bound of a child
+     * from a deep enough search already produces a cut off the node does not need to be searched. This finds the
+     * many transpositions the repeated searches of MTD(f) create before the first child is searched again.
+     * @param parentBoard
+     * @param children
+     * @param count
+     * @param alpha
+     * @param beta
+     * @param d
+     * @param isMaxNode
+     * @return the value of the cut off or NO_CUTOFF
+     */
+    private int etc(TreeSearchBoard parentBoard, int[] children, int count,
+                    int alpha, int beta, int d, boolean isMaxNode) {
+        for (int i = 0; i < count; i++) {
+            makeMove(parentBoard, children[i]);
+            final boolean found = _boardCache.probe(parentBoard.getZobristKey(), _cacheEntry);
+            parentBoard.undoMove();
+            if (found && _cacheEntry.getDepth() >= d - 1) {
+                final int value = isMaxNode ? _cacheEntry.getLowerbound() : _cacheEntry.getUpperbound();
+                if (isMaxNode ? value >= beta : value <= alpha) {
+                    _moveOrdering.addCutoff(parentBoard.getLastMoveNumber(), children[i], d);
+                    _bestMoves[parentBoard.getLastMoveNumber() - _rootMoveNumber] = PackedMove.clearScore(children[i]);
+                    return value;
+                }
+            }
+        }
+        return NO_CUTOFF;
+    }
+
+    /**
+     * Generates the packed moves from a given board and also sorts these moves using
+     * _boardAnalyser.sortMoves and the killers and history of _moveOrdering. The hash move from the cache
+     * is put first.
      * The branching factor is also updated.
      * @param n
-     * @return List of moves for the next player of the given board
+     * @param children buffer to receive the packed moves for the next player of the given board
+     * @param hashMove the best move of an earlier search of this board or PackedMove.NONE
+     * @return number of moves written to children
      */
-    private List<Move> genChildren(TreeSearchBoard n) {
-        List<Move> children = n.getMoves();
+    private int genChildren(TreeSearchBoard n, int[] children, int hashMove) {
+        final int count = n.getMoves(children);
         // Pruning in AlphaBeta works best when moves are sorted with the most promising first
-        _boardAnalyser.sortMoves(n, children);
-        updateBranchingFactor(children.size()); // Support time estimation
-        return children;
+        _boardAnalyser.sortMoves(n, children, count);
+        _moveOrdering.order(n.getLastMoveNumber(), children, count);
+        // The hash move is the best guess we have - it is only used if it is a legal move of this board
+        if (hashMove != PackedMove.NONE) {
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.clearScore(children[i]) == hashMove) {
+                    final int move = children[i];
+                    System.arraycopy(children, 0, children, 1, i);
+                    children[0] = move;
+                    break;
+                }
+            }
+        }
+        updateBranchingFactor(count); // Support time estimation
+        return count;
     }
 
     /**
-     * Generates a new copy of the given board a makes the given move.
+     * Makes the given move on the given board to generate the child node.
+     * The move has to be taken back with undoMove() after the child has been searched.
      * @param n
      * @param c
-     * @return new board with the move made
      */
-    private static TreeSearchBoard genChild(TreeSearchBoard n, Move c) {
-        TreeSearchBoard n2 = new TreeSearchBoardImpl_v14((TreeSearchBoardImpl_v14)n);
+    private static void makeMove(TreeSearchBoard n, Move c) {
         try {
-            n2.makeMove(c);  // generate new board
+            n.makeMove(c);  // generate child node
         } catch (IllegalMoveException e) {
             throw new RuntimeException("Illegal Move should not happen here",e);
         }
-        return n2;
     }
 
     /**
-     * Called to update the cache when a board was evaluated.
-     * @param parentBoard
-     * @param cachedBoardValue
+     * Makes the given packed move on the given board to generate the child node.
+     * The move has to be taken back with undoMove() after the child has been searched.
+     * @param n
+     * @param c packed move (see PackedMove)
+     */
+    private static void makeMove(TreeSearchBoard n, int c) {
+        try {
+            n.makeMove(c);  // generate child node
+        } catch (IllegalMoveException e) {
+            throw new RuntimeException("Illegal Move should not happen here",e);
+        }
+    }
+
+    /**
+     * Called to update the evaluation cache when a board was evaluated.
+     * @param zobristKey
      * @param value
      */
-    private void updateCacheLeaf(TreeSearchBoard parentBoard, BoardValue cachedBoardValue, int value, int d) {
-        cachedBoardValue.setExactValue(value);
-        cachedBoardValue.setUpperbound(value);
-        cachedBoardValue.setLowerbound(value);
-        cachedBoardValue.setSearchDepth(parentBoard.getLastMoveNumber()+d);
-        storeCache(cachedBoardValue);
+    private void updateEvaluation(long zobristKey, int value) {
+        if (_cacheEnabled) {
+            _evalCache.store(zobristKey, value);
+        }
     }
 
     /**
      * Called to update the cache when new lower- or upperbound have been found.
      *
-     * @param parentBoard
-     * @param cachedBoardValue
+     * @param zobristKey
+     * @param lowerbound the lowerbound known before the search of the node
+     * @param upperbound the upperbound known before the search of the node
      * @param alpha
      * @param beta
      * @param value
      * @param d
+     * @param bestMove the best or cut off move of the node
      */
-    private void updateCacheNode(TreeSearchBoard parentBoard, BoardValue cachedBoardValue,
-                                 int alpha, int beta, int value, int d) {
+    private void updateCacheNode(long zobristKey, int lowerbound, int upperbound,
+                                 int alpha, int beta, int value, int d, int bestMove) {
+        if (!_cacheEnabled) {
+            return;
+        }
         // Fail low result implies an upper bound
         if (value <= alpha) {
-            cachedBoardValue.setUpperbound(value);
+            upperbound = value;
         }
         // Found an accurate minimax value - will not occur if called with zero window
         if (alpha < value && value < beta) {
-            cachedBoardValue.setLowerbound(value);
-            cachedBoardValue.setUpperbound(value);
+            lowerbound = value;
+            upperbound = value;
         }
         // Fail high result implies a lower bound
         if (value >= beta) {
-            cachedBoardValue.setLowerbound(value);
+            lowerbound = value;
         }
-        cachedBoardValue.setSearchDepth(parentBoard.getLastMoveNumber()+d);
-        storeCache(cachedBoardValue);
+        _boardCache.store(zobristKey, lowerbound, upperbound, d, bestMove);
     }
 
     /**
-     * Checks if a given board is already evaluated.
-     * @param hashKey - the hashkey of the board we look for its BoardValue
-     * @return Returns a BoardValue of the given board found in the boardCache, null if not found
+     * Checks if a given board is already evaluated.<br/>
+     * The returned entry is reused by the next lookup.
+     * @param zobristKey - the Zobrist key of the board we look for
+     * @return Returns the cache entry of the given board, null if not found
      */
-    private BoardValue retrieveCache(String hashKey) {
+    private TranspositionTable.Entry retrieveCache(long zobristKey) {
         if (!_cacheEnabled) {
             return null;
         }
-        final BoardValue boardValue = (BoardValue) _boardCache.get(hashKey);
         // -- check boardCache --
-        if (boardValue != null) {   // hit
+        if (_boardCache.probe(zobristKey, _cacheEntry)) {   // hit
             _cacheHits++;
-            return boardValue;
-        } else {                    // miss
+            return _cacheEntry;
+        } else {                                            // miss
             _cacheMisses++;
             return null;
         }
     }
 
     /**
-     * saves board evaluations for similar boards
-     * @param value
+     * Looks up the evaluation of a board in the evaluation cache.
+     * @param zobristKey - the Zobrist key of the board we look for
+     * @return the evaluation of the board or NO_EVALUATION if not found
      */
-    private void storeCache(BoardValue value) {
-        if (_cacheEnabled) {
-            _boardCache.put(value.getHashKey(), value);
+    private int retrieveEvaluation(long zobristKey) {
+        if (!_cacheEnabled || !_USE_BOARD_CACHE) {
+            return NO_EVALUATION;
         }
-
+        final int value = _evalCache.probe(zobristKey, NO_EVALUATION);
+        if (value != NO_EVALUATION) {   // hit
+            _evalCacheHits++;
+        } else {                        // miss
+            _evalCacheMisses++;
+        }
+        return value;
     }
 
     /**
@@ -726,9 +1390,13 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         _nodesChecked = 0;
         _cacheHits = 0;
         _cacheMisses = 0;
+        _evalCacheHits = 0;
+        _evalCacheMisses = 0;
         _boardsNonQuiet = 0;
+        _boardsLazy = 0;
         _curSearchDepth = 0;
         _curExtraSearchDepth = 0;
+        _provenResult = null;
     }
 
     /**
@@ -744,6 +1412,7 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
      * @param game
      */
     public void setGame(Game game) {
+        stopPondering(0L);
         this._game = game;
     }
 
@@ -797,12 +1466,16 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
     }
 
     /**
-     * returns the number of nodes per second for the current calculation
+     * returns the number of nodes per second for the current calculation - of all search threads
      * @return int
      */
     public int getCurNodesPerSecond() {
+        long nodes = _nodesChecked;
+        for (TreeSearchEngine_MTDf_v6 helper : _helpers) {
+            nodes += helper._nodesChecked;
+        }
         //noinspection NumericCastThatLosesPrecision,MagicNumber
-        return (int) (1000.0F * ((float) _nodesChecked / ((float) (System.currentTimeMillis() - _startTime))));
+        return (int) (1000.0F * ((float) nodes / ((float) (System.currentTimeMillis() - _startTime))));
     }
 
     /**
@@ -829,6 +1502,14 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         return _boardsNonQuiet;
     }
 
+    /**
+     * return the number of boards whose evaluation stopped early so far
+     * @return int
+     */
+    public int getBoardsLazy() {
+        return _boardsLazy;
+    }
+
     /**
      * return the number of cache hits so far
      * @return int
@@ -845,6 +1526,22 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         return _cacheMisses;
     }
 
+    /**
+     * return the number of evaluation cache hits so far
+     * @return int
+     */
+    public int getEvalCacheHits() {
+        return _evalCacheHits;
+    }
+
+    /**
+     * return the number of evaluation cache misses so far
+     * @return int
+     */
+    public int getEvalCacheMisses() {
+        return _evalCacheMisses;
+    }
+
     /**
      * return the current cache size
      * @return int
@@ -853,7 +1550,7 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         if (!_cacheEnabled) {
             return 0;
         }
-        return _boardCache.size();
+        return _boardCache.getUsedEntries();
     }
 
     /**
@@ -864,7 +1561,15 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         if (!_cacheEnabled) {
             return 0;
         }
-        return _boardCache.getMaxEntries();
+        return _boardCache.getCapacity();
+    }
+
+    /**
+     * returns the result proven by the endgame search for the current move
+     * @return String
+     */
+    public String getProvenResult() {
+        return _provenResult;
     }
 
     /**
@@ -884,46 +1589,6 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
         }
     }
 
-    /**
-     * A class to store a evaluated board in a cache.
-     */
-    private static class BoardValue {
-        private String _hashKey;    // used to store the hash key of the board - the hashkey could be used to recreate the board
-
-        private Move   _bestMove;   // the last move on the board - also used to store the current value
-        private int    _searchDepth; // used to find out if upper - and lowerbound are valid
-        private int    _value;      // the exact value for the current board
-        private int    _upperbound; // _upper and lowerbound are used for subtrees
-        private int    _lowerbound; // they can only be used when queried from the same or a lower depth
-
-        private BoardValue(String hashKey, int value, int searchDepth, int upperbound, int lowerbound) {
-            _hashKey = hashKey;
-            _bestMove = null;
-            _searchDepth = searchDepth;
-            _value = value;
-            _upperbound = upperbound;
-            _lowerbound = lowerbound;
-        }
-
-        public void   setBestMove   (Move bestMove  ) {_bestMove    = bestMove;  }
-        public void   setSearchDepth(int  depth     ) {_searchDepth = depth;  }
-        public void   setExactValue (int  value     ) {_value = value; }
-        public void   setUpperbound (int  upperbound) {_upperbound  = upperbound;  }
-        public void   setLowerbound (int  lowerbound) {_lowerbound  = lowerbound;  }
-        public Move   getBestMove   (               ) {return _bestMove; }
-        public int    getDepth      (               ) {return _searchDepth; }
-        public int    getExactValue (               ) {return _value; }
-        public int    getUpperbound (               ) {return _upperbound; }
-        public int    getLowerbound (               ) {return _lowerbound; }
-        public String getHashKey    (               ) {return _hashKey; }
-
-        @Override
-		public String toString() {
-            return MessageFormat.format("{0}: bestMove={1} searchDepth={2} value={3} upperbound={4} lowerbound={5}"
-                    , _hashKey, _bestMove, _searchDepth, _value, _upperbound, _lowerbound);
-        }
-    }
-
     /**
      * This TimeKeeper class is used to implement a Timer that calls this Timekeeper when a time limit has been
      * reached. This TimeKeeper then sets the time limit reached flags.
@@ -944,6 +1609,13 @@ public class TreeSearchEngine_MTDf_v6 implements Engine, TreeSearchEngineWatcher
                     break;
                 case 2:
                     _hardTimeLimitReached=true;
+                    final EndgameSolver solver = _endgameSolver;
+                    if (solver != null) {
+                        solver.stop();
+                    }
+                    break;
+                case 3: // time budget of the win/loss/draw search
+                    _endgameSolver.stop();
                     break;
                 default:
                     throw new RuntimeException("TimeKeeper mode not set.");
@@ -0,0 +1,1188 @@
+/*
+ * <p>GPL Dislaimer</p>
+ * <p>
+ * "Reversi by Frank Kopp"
+ * Copyright 2003, 2004, 2005, 2006 Frank Kopp
+ * mail-to:frank@familie-kopp.de
+ *
+ * This file is part of "Reversi by Frank Kopp".
+ *
+ * "Reversi by Frank Kopp" is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * "Reversi by Frank Kopp" is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with "Reversi by Frank Kopp"; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * </p>
+ *
+ *
+ */
+
+package fko.reversi.player.computer.TreeSearch;
+
+import fko.reversi.Reversi;
+import fko.reversi.game.*;
+import fko.reversi.player.Player;
+import fko.reversi.player.computer.Engine;
+import static java.lang.Integer.*;
+import static java.lang.Math.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p/>
+ * The TreeSearchEngine_YBWC class implements a parallel AlphaBetaWithMemory search using the
+ * "Young Brothers Wait Concept" (YBWC) on a <code>ForkJoinPool</code>.
+ * </p>
+ * <p/>
+ * In every node the eldest brother (the first move after sorting) is searched serially. When it did not
+ * produce a cut off the remaining brothers are searched in parallel as tasks which can be stolen by idle
+ * threads. Each task searches on its own copy of the board. When one of the brothers produces a beta cut off
+ * the other brothers of this split point are aborted.<br/>
+ * The engine uses the same evaluation (TreeSearchBoardAnalyserImpl_v15), the same quiescence extension and the
+ * same cache semantics as TreeSearchEngine_MTDf_v6. The cache is shared by all threads.
+ * </p>
+ * <p/>
+ * The number of threads is configured with engine.black.threads and engine.white.threads.
+ * </p>
+ *
+ * @author Frank Kopp (frank@familie-kopp.de)
+ */
+public class TreeSearchEngine_YBWC_v1 implements Engine, TreeSearchEngineWatcher {
+
+    // Nodes with less remaining depth are always searched serially
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    // returned by the evaluation cache for a miss
+    private static final int NO_EVALUATION = MIN_VALUE;
+
+    // some optimization options
+    private boolean _USE_PV          = true; // defines if the principal variation search shall be used
+    private boolean _USE_NODE_CACHE  = true;
+    private boolean _USE_BOARD_CACHE = true;
+    private boolean _USE_QUIESCENCE  = true;
+
+    // The current game this engine is used in
+    private Game _game = null;
+
+    // My color (Max Player)
+    private ReversiColor _maxColor = ReversiColor.NONE;
+
+    // The threads doing the search - created for each game and shut down when the game has been replaced
+    private int          _threads = 1;
+    private ForkJoinPool _pool    = null;
+
+    // The board of the current move - the BoardAnalysers of the threads are created for its dimension
+    private volatile TreeSearchBoard _rootBoard = null;
+
+    // Each thread has its own BoardAnalyser and cache entry - created when a thread first needs one
+    private final ThreadLocal<Worker> _workers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker(new TreeSearchBoardAnalyserImpl_v15(_rootBoard, _maxColor), _rootBoard.getDim());
+        }
+    };
+
+    // Killer moves and history shared by all threads - added to the static move order of the BoardAnalyser
+    private MoveOrdering _moveOrdering = null;
+
+    // Used for the iterative search to determine the start and the max search depth for each iteration
+    private int _currentSearchDepth  = 2;
+    private int _iterativeStartDepth = 1;
+
+    // some information about our nodes - updated by all threads
+    private volatile int  _movesSize           = 0;
+    private volatile int  _curMoveNumber       = 0;
+    private volatile Move _curMove             = null;
+    private volatile Move _currentBestMove     = null;
+    private volatile int  _curSearchDepth      = 0;
+    private volatile int  _curExtraSearchDepth = 0;
+    private final LongAdder _boardsChecked  = new LongAdder();
+    private final LongAdder _boardsNonQuiet = new LongAdder();
+    private final LongAdder _cacheHits      = new LongAdder();
+    private final LongAdder _cacheMisses    = new LongAdder();
+    private final LongAdder _evalCacheHits   = new LongAdder();
+    private final LongAdder _evalCacheMisses = new LongAdder();
+    private final LongAdder _nodesChecked   = new LongAdder();
+
+    // Time calculations
+    private long _startTime = 0L;
+
+    // Time control
+    private          Timer   _timer                = null;
+    private volatile boolean _softTimeLimitReached = false;
+    private volatile boolean _hardTimeLimitReached = false;
+
+    // Set when the game has been stopped during the search
+    private volatile boolean _gameStopped = false;
+
+    // cache for already analyzed boards
+    private boolean            _cacheEnabled;
+    private TranspositionTable _boardCache = null; // bounds of the inner nodes
+    private EvaluationCache    _evalCache  = null; // static evaluations of the leaf nodes
+
+    // A comparator to sort the move list after an iteration
+    private static final Comparator<Move> _moveComparator = new MoveComparator();
+
+    /**
+     * Constructor
+     */
+    public TreeSearchEngine_YBWC_v1() {
+        _cacheEnabled = Boolean.valueOf(Reversi.getProperties().getProperty("engine.cacheEnabled"));
+        if (_cacheEnabled) {
+            _boardCache = new TranspositionTable(
+                    parseInt(Reversi.getProperties().getProperty("engine.cacheSizeMB", "64")));
+            _evalCache = new EvaluationCache(
+                    parseInt(Reversi.getProperties().getProperty("engine.evalCacheSizeMB", "4")));
+        }
+    }
+
+    /**
+     * Initializer
+     */
+    public void init(Player init_player) {
+        _maxColor=init_player.getColor();
+        final int threads = parseInt(Reversi.getProperties().getProperty(
+                _maxColor.isBlack() ? "engine.black.threads" : "engine.white.threads", "1"));
+        _threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Starts calculation and returns next move.<p/>
+     *
+     * @param curBoard
+     * @return returns the "best" next move
+     */
+    public Move getNextMove(Board curBoard) {
+
+        // Initialize timer
+        _startTime = System.currentTimeMillis();
+
+        // Timed game?
+        boolean timedGame=_game.isTimedGame();
+
+        // Approximate available time for this move
+        long approxTime = 0;
+        _softTimeLimitReached=false;
+        _hardTimeLimitReached=false;
+        _gameStopped=false;
+        if (_game.isTimedGame()) {
+            approxTime = approxTime(curBoard);
+            configureTimeControl(approxTime);
+        }
+
+        // Update maximal search depth so we can change the level for the engine each move
+        int maxDepth = updateSearchDepth();
+
+        // If we have only very little time left then limit the search depth
+        if (timedGame) {
+            if(approxTime < 100) {
+                maxDepth = 2;
+            }
+            if(approxTime < 50) {
+                maxDepth = 1;
+            }
+        }
+
+        // Reset all the counters used for the TreeSearchEngineWatcher
+        resetCounters();
+
+        // Entries of earlier moves are replaced first
+        if (_cacheEnabled) {
+            _boardCache.newSearch();
+        }
+
+        // If we do not have a timed game we immediately search with the maximum search depth
+        if (!timedGame) {
+            _iterativeStartDepth = maxDepth;
+        }
+
+        // Create new hashable board based on the current board (deep copy)
+        // The factory chooses the bitboard implementation for the board dimension
+        final TreeSearchBoard board = TreeSearchBoardFactory.createBoard(curBoard);
+
+        // Every thread creates its own BoardAnalyser when it first needs one
+        _rootBoard = board;
+        if (_pool == null) {
+            _pool = new ForkJoinPool(_threads);
+        }
+
+        // Killers and history of the last move are still useful but should fade out
+        if (_moveOrdering == null) {
+            _moveOrdering = new MoveOrdering(board.getDim());
+        } else {
+            _moveOrdering.newSearch();
+        }
+
+        // Generate moves to check if we have more then 1 move
+        List<Move> moves = board.getMoves();
+        _movesSize = moves.size();
+
+        // If we have only one move return this and mark it as the only move by setting its value to Integer.MIN_VALUE.
+        if (_movesSize==1) {
+            moves.get(0).setValue(MIN_VALUE);
+            return moves.get(0);
+        }
+
+        // Do the search
+        Move bestMove = search(moves, maxDepth, board);
+
+        // stop the time keepers
+        if (timedGame) {
+            _timer.cancel();
+        }
+
+        // The threads are not needed anymore if the game has been stopped
+        if (_game.isOverOrStopped()) {
+            shutdownPool();
+        }
+
+        return bestMove;
+    }
+
+    private Move search(List<Move> moves, int maxDepth, TreeSearchBoard parentBoard) {
+
+        // Sort the move, good candidates first
+        getWorker()._analyser.sortMoves(parentBoard, moves);
+
+        // Holds the best move so far
+        _currentBestMove = new MoveImpl(moves.get(0));
+        _currentBestMove.setValue(-MAX_VALUE);
+
+        // Iterative deepening for time limited game.
+        // If we do not have a timed game we immediately search with the maximum search depth.
+        for (_currentSearchDepth = _iterativeStartDepth; _currentSearchDepth <= maxDepth; _currentSearchDepth++) {
+
+            // Check for game paused
+            _game.waitWhileGamePaused();
+
+            // Search all moves in parallel - the best move of an interrupted iteration is only used if
+            // we do not have a result from an earlier iteration
+            final Move best = _pool.invoke(new RootTask(moves, parentBoard, _currentSearchDepth - 1));
+            if (!isSearchStopped() || _currentBestMove.getValue() == -MAX_VALUE) {
+                _currentBestMove = best;
+            }
+
+            // Resort the array with the results from the last iteration
+            // this might give us a better sorting for AlphaBeta cut offs
+            Collections.sort(moves, _moveComparator); // -- best first --
+
+            // Check if game has been stopped or if time is up and return the best move so far
+            if (_softTimeLimitReached || isSearchStopped() || _game.isOverOrStopped()) {
+                break;
+            }
+        }
+
+        return _currentBestMove;
+    }
+
+    /**
+     * AlphaBeta search with caching.
+     * This implementation uses separate max and min node handling because in Reversi it might happen that
+     * a player is passed. With a separate min and max handling this is easier to handle.
+     *
+     * @param s - the search of the current task
+     * @param alpha
+     * @param beta
+     * @param d - depth
+     * @param extra - the current additional search depth due to non-quiet boards
+     */
+    private int AlphaBetaWithMemory(final Search s, int alpha, int beta, int d, int extra) {
+
+        final TreeSearchBoard parentBoard = s._board;
+
+        // best value so far
+        int bestValue;
+
+        // Store the current statistics for TreeSearchEngineWatcher - the depths are only approximate
+        _nodesChecked.increment();
+        if (_currentSearchDepth-d > _curSearchDepth) {
+            _curSearchDepth = _currentSearchDepth - d; // use only higher values
+        }
+        if (_currentSearchDepth-d+extra > _curExtraSearchDepth) {
+            _curExtraSearchDepth = _currentSearchDepth - d + extra;
+        }
+
+        // Cache lookup
+        final long zobristKey = parentBoard.getZobristKey();
+        final TranspositionTable.Entry cachedBoardValue = retrieveCache(zobristKey, s._worker._cacheEntry);
+
+        // the bounds we know of this board - kept for the cache update
+        int lowerbound = -MAX_VALUE;
+        int upperbound = MAX_VALUE;
+
+        // we found something useful(!) in cache - the entry must be from the same or a deeper search
+        if (cachedBoardValue != null && cachedBoardValue.getDepth() >= d) {
+            lowerbound = cachedBoardValue.getLowerbound();
+            upperbound = cachedBoardValue.getUpperbound();
+            // if cache for nodes turned on then use it
+            if (_USE_NODE_CACHE) {
+                if (upperbound <= alpha || upperbound == lowerbound) {
+                    return upperbound;
+                }
+                if (lowerbound >= beta) {
+                    return lowerbound;
+                }
+                alpha = Math.max(alpha, lowerbound);
+                beta  = Math.min(beta, upperbound);
+            }
+        }
+
+        // Check if node is leave node and if board is quiet - increase depth by 1 if non-quiet
+        if (_USE_QUIESCENCE && d==0 && !parentBoard.getNextPlayerColor().isNone()
+                && s._worker._analyser.notQuiet(parentBoard) && extra<4) { // but only up to 3 plys
+            d++; // non-quiet board -> search another level
+            extra++; // just for statistics
+            _boardsNonQuiet.increment(); // just for statistics
+        }
+
+        // Processing node
+        if (d == 0 || parentBoard.getNextPlayerColor().isNone()) { // n is LEAFNODE
+            return leafNode(s, zobristKey);
+        }
+        else if (parentBoard.getNextPlayerColor() == _maxColor) { // n is a MAXNODE
+            bestValue = maxNode(s, alpha, beta, d, extra);
+        }
+        else if (parentBoard.getNextPlayerColor() == _maxColor.getInverseColor()) { // n is a MINNODE
+            bestValue = minNode(s, alpha, beta, d, extra);
+        } else {
+            throw new RuntimeException("No next player!");
+        }
+
+        // Cache update - not for an aborted search as its values are incomplete
+        if (_USE_NODE_CACHE && !s.isAborted()) {
+            updateCacheNode(zobristKey, lowerbound, upperbound, alpha, beta, bestValue, d);
+        }
+
+        return bestValue;
+    }
+
+    /**
+     * Calculates the leaf nodes.
+     * @param s
+     * @param zobristKey
+     * @return value of the board in a null move
+     */
+    private int leafNode(Search s, long zobristKey) {
+        int value = retrieveEvaluation(zobristKey);
+        if (value == NO_EVALUATION) { // cache miss - evaluate the board and store in cache
+            // Calculate heuristic value for the board
+            value = s._worker._analyser.analyse(s._board);
+            _boardsChecked.increment();
+            if (_USE_BOARD_CACHE) {
+                updateEvaluation(zobristKey, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Calculates the best move for a max position (_maxPlayer's turn)
+     * @param s
+     * @param alpha
+     * @param beta
+     * @param d
+     * @param extra
+     * @return best move with value for the position
+     */
+    private int maxNode(Search s, int alpha, int beta, int d, int extra) {
+        final TreeSearchBoard parentBoard = s._board;
+        // Generate moves for current player into the buffer of this ply
+        final int[] children = s.getMoveBuffer();
+        final int count = genChildren(s, children);
+        // Start with the worst value for the max player
+        int bestValue = -MAX_VALUE;
+        // Loop though children
+        for (int i = 0; bestValue < beta && i < count; i++) {
+            // Young brothers wait - the eldest brother has been searched, the others can be searched in parallel
+            if (i > 0 && d >= MIN_SPLIT_DEPTH && count - i > 1) {
+                return split(s, children, i, count, alpha, beta, bestValue, d, extra, true);
+            }
+            // make the next move on our node - it is taken back after the recursion
+            makeMove(parentBoard, children[i]);
+            // Recursion
+            final int value = (_USE_PV && i>0)
+                    ? maxChildPV(s, alpha, beta, d, extra)
+                    : AlphaBetaWithMemory(s, alpha, beta, d-1, extra);
+            parentBoard.undoMove();
+            // Did we find something new?
+            if (value > bestValue) {
+                bestValue = value; // new best value for max player
+            }
+            if (bestValue > alpha) { // a = Math.max(a, bestValue);
+                alpha = bestValue;
+            }
+            if (alpha >= beta) {
+                _moveOrdering.addCutoff(parentBoard.getLastMoveNumber(), children[i], d);
+                break;
+            }
+            // Check if a brother had a cut off, the game has been stopped or the hard time limit has been reached
+            if (s.isAborted()) {
+                break;
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * * Calculates the best move for a min position (_minPlayer's turn)
+     * @param s
+     * @param alpha
+     * @param beta
+     * @param d
+     * @param extra
+     * @return best move with value for the position
+     */
+    private int minNode(Search s, int alpha, int beta, int d, int extra) {
+        final TreeSearchBoard parentBoard = s._board;
+        // Generate moves for current player into the buffer of this ply
+        final int[] children = s.getMoveBuffer();
+        final int count = genChildren(s, children);
+        // Start with the worst value for the min player
+        int bestValue = MAX_VALUE;
+        // Loop though children
+        for (int i = 0; bestValue > alpha && i < count; i++) {
+            // Young brothers wait - the eldest brother has been searched, the others can be searched in parallel
+            if (i > 0 && d >= MIN_SPLIT_DEPTH && count - i > 1) {
+                return split(s, children, i, count, alpha, beta, bestValue, d, extra, false);
+            }
+            // make the next move on our node - it is taken back after the recursion
+            makeMove(parentBoard, children[i]);
+            // Recursion
+            final int value = (_USE_PV && i>0)
+                    ? minChildPV(s, alpha, beta, d, extra)
+                    : AlphaBetaWithMemory(s, alpha, beta, d-1, extra);
+            parentBoard.undoMove();
+            // Did we find something new?
+            if (value < bestValue) {
+                bestValue = value; // we have a new best value for min player
+            }
+            if (bestValue < beta) { //b = Math.min(b, bestValue);
+                beta = bestValue;
+            }
+            if (alpha >= beta) {
+                _moveOrdering.addCutoff(parentBoard.getLastMoveNumber(), children[i], d);
+                break;
+            }
+            // Check if a brother had a cut off, the game has been stopped or the hard time limit has been reached
+            if (s.isAborted()) {
+                break;
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Searches a younger brother of a max node with a null window and searches again if it fails high.
+     * The move has already been made on the board of the search.
+     */
+    private int maxChildPV(Search s, int alpha, int beta, int d, int extra) {
+        int value = AlphaBetaWithMemory(s, alpha, alpha+1, d-1, extra);
+        if (alpha < value && value < beta) { // Check for failure.
+            value = AlphaBetaWithMemory(s, value, beta, d-1, extra);
+        }
+        return value;
+    }
+
+    /**
+     * Searches a younger brother of a min node with a null window and searches again if it fails low.
+     * The move has already been made on the board of the search.
+     */
+    private int minChildPV(Search s, int alpha, int beta, int d, int extra) {
+        int value = AlphaBetaWithMemory(s, beta-1, beta, d-1, extra);
+        if (alpha < value && value < beta) { // Check for failure.
+            value = AlphaBetaWithMemory(s, alpha, value, d-1, extra);
+        }
+        return value;
+    }
+
+    /**
+     * Searches the brothers <code>children[from..count-1]</code> in parallel.<br/>
+     * Each brother becomes a task with its own copy of the board. The tasks are forked except the first which is
+     * searched by this thread. The results are joined in order. When a brother produces a cut off the other
+     * brothers of this split point are aborted.
+     * @param s the search of the parent node
+     * @param children
+     * @param from first brother to search in parallel
+     * @param count
+     * @param alpha
+     * @param beta
+     * @param bestValue best value of the eldest brothers
+     * @param d
+     * @param extra
+     * @param isMaxNode
+     * @return best value of the parent node
+     */
+    private int split(Search s, int[] children, int from, int count,
+                      int alpha, int beta, int bestValue, int d, int extra, boolean isMaxNode) {
+
+        // Check for game paused and if the game has been stopped - not in every node as the game status is locked
+        _game.waitWhileGamePaused();
+        if (_game.isOverOrStopped()) {
+            _gameStopped = true;
+            return bestValue;
+        }
+
+        final SplitPoint splitPoint = new SplitPoint(s._splitPoint);
+        final SearchTask[] tasks = new SearchTask[count - from];
+        for (int i = 0; i < tasks.length; i++) {
+            //noinspection ObjectAllocationInLoop
+            tasks[i] = new SearchTask(s._board, children[from + i], splitPoint, alpha, beta, d - 1, extra, isMaxNode);
+        }
+        for (int i = tasks.length - 1; i > 0; i--) {
+            tasks[i].fork();
+        }
+        for (int i = 0; i < tasks.length; i++) {
+            final int value = i == 0 ? tasks[i].invoke() : tasks[i].join();
+            if (splitPoint._cutoff) {
+                continue; // the remaining brothers are aborted - we only wait for them
+            }
+            if (isMaxNode) {
+                bestValue = Math.max(bestValue, value);
+                alpha = Math.max(alpha, bestValue);
+            } else {
+                bestValue = Math.min(bestValue, value);
+                beta = Math.min(beta, bestValue);
+            }
+            if (alpha >= beta) {
+                _moveOrdering.addCutoff(s._board.getLastMoveNumber(), children[from + i], d);
+                splitPoint._cutoff = true;
+            } else if (s.isAborted()) {
+                splitPoint._cutoff = true;
+            }
+        }
+        return bestValue;
+    }
+
+    /**
+     * Generates the packed moves from a given board and also sorts these moves using
+     * the BoardAnalyser of the current thread and the killers and history of _moveOrdering.
+     * @param s
+     * @param children buffer to receive the packed moves for the next player of the given board
+     * @return number of moves written to children
+     */
+    private int genChildren(Search s, int[] children) {
+        final int count = s._board.getMoves(children);
+        // Pruning in AlphaBeta works best when moves are sorted with the most promising first
+        s._worker._analyser.sortMoves(s._board, children, count);
+        _moveOrdering.order(s._board.getLastMoveNumber(), children, count);
+        return count;
+    }
+
+    /**
+     * Makes the given packed move on the given board to generate the child node.
+     * The move has to be taken back with undoMove() after the child has been searched.
+     * @param n
+     * @param c packed move (see PackedMove)
+     */
+    private static void makeMove(TreeSearchBoard n, int c) {
+        try {
+            n.makeMove(c);  // generate child node
+        } catch (IllegalMoveException e) {
+            throw new RuntimeException("Illegal Move should not happen here",e);
+        }
+    }
+
+    /**
+     * Makes the given move on the given board to generate the child node.
+     * @param n
+     * @param c
+     */
+    private static void makeMove(TreeSearchBoard n, Move c) {
+        try {
+            n.makeMove(c);  // generate child node
+        } catch (IllegalMoveException e) {
+            throw new RuntimeException("Illegal Move should not happen here",e);
+        }
+    }
+
+    /**
+     * Called to update the evaluation cache when a board was evaluated.
+     * @param zobristKey
+     * @param value
+     */
+    private void updateEvaluation(long zobristKey, int value) {
+        if (_cacheEnabled) {
+            _evalCache.store(zobristKey, value);
+        }
+    }
+
+    /**
+     * Called to update the cache when new lower- or upperbound have been found.
+     *
+     * @param zobristKey
+     * @param lowerbound the lowerbound known before the search of the node
+     * @param upperbound the upperbound known before the search of the node
+     * @param alpha
+     * @param beta
+     * @param value
+     * @param d
+     */
+    private void updateCacheNode(long zobristKey, int lowerbound, int upperbound,
+                                 int alpha, int beta, int value, int d) {
+        if (!_cacheEnabled) {
+            return;
+        }
+        // Fail low result implies an upper bound
+        if (value <= alpha) {
+            upperbound = value;
+        }
+        // Found an accurate minimax value - will not occur if called with zero window
+        if (alpha < value && value < beta) {
+            lowerbound = value;
+            upperbound = value;
+        }
+        // Fail high result implies a lower bound
+        if (value >= beta) {
+            lowerbound = value;
+        }
+        _boardCache.store(zobristKey, lowerbound, upperbound, d, PackedMove.NONE);
+    }
+
+    /**
+     * Checks if a given board is already evaluated.
+     * @param zobristKey - the Zobrist key of the board we look for
+     * @param entry - the cache entry of the current thread
+     * @return Returns the cache entry of the given board, null if not found
+     */
+    private TranspositionTable.Entry retrieveCache(long zobristKey, TranspositionTable.Entry entry) {
+        if (!_cacheEnabled) {
+            return null;
+        }
+        // -- check boardCache --
+        if (_boardCache.probe(zobristKey, entry)) {   // hit
+            _cacheHits.increment();
+            return entry;
+        } else {                                      // miss
+            _cacheMisses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the evaluation of a board in the evaluation cache.
+     * @param zobristKey - the Zobrist key of the board we look for
+     * @return the evaluation of the board or NO_EVALUATION if not found
+     */
+    private int retrieveEvaluation(long zobristKey) {
+        if (!_cacheEnabled || !_USE_BOARD_CACHE) {
+            return NO_EVALUATION;
+        }
+        final int value = _evalCache.probe(zobristKey, NO_EVALUATION);
+        if (value != NO_EVALUATION) {   // hit
+            _evalCacheHits.increment();
+        } else {                        // miss
+            _evalCacheMisses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * @return true if the game has been stopped or the hard time limit has been reached
+     */
+    private boolean isSearchStopped() {
+        return _hardTimeLimitReached || _gameStopped;
+    }
+
+    /**
+     * Called to update the current search depth for the player.
+     * @return current search depth
+     */
+    private int updateSearchDepth() {
+        int maxDepth;
+        if (_maxColor.isBlack()) {
+            maxDepth = Reversi.getPlayroom().getCurrentEngineLevelBlack();
+        } else if (_maxColor.isWhite()) {
+            maxDepth = Reversi.getPlayroom().getCurrentEngineLevelWhite();
+        } else {
+            throw new RuntimeException("Invalid next player color. Was " + _maxColor);
+        }
+        return maxDepth;
+    }
+
+    /**
+     * Approximates the time available for the next move.
+     */
+    private long approxTime(Board curBoard) {
+        int movesLeft;
+        long timeLeft;
+        //noinspection NumericCastThatLosesPrecision
+        movesLeft = (int) ceil(((curBoard.getMaxMoveNumber() - curBoard.getLastMoveNumber()) >> 1)); // >> equals division by 2
+        if (_maxColor.isBlack()) {
+            timeLeft = _game.getBlackTime() - _game.getBlackClock().getTime();
+        } else {
+            timeLeft = _game.getWhiteTime() - _game.getWhiteClock().getTime();
+        }
+        // Give some overhead time so that in games with very low available time we do not run out of time
+        timeLeft-=500; // this should do
+        // -- time left per remaining move --
+        if (movesLeft==0) {
+            return max(timeLeft, 0);
+        } else {
+            return max((timeLeft/movesLeft),0);
+        }
+    }
+
+    /**
+     * Configure and start time keepers
+     * @param approxTime
+     */
+    private void configureTimeControl(long approxTime) {
+        // standard limits
+        float soft = 0.75f;
+        float hard = 1.25f;
+        // limits for very short available time
+        if (approxTime < 100) {
+            soft = 0.8f;
+            hard = 0.9f;
+        }
+        // limits for higher available time
+        if (approxTime > 1000) {
+            soft = 1.0f;
+            hard = 1.2f;
+        }
+        _timer = new Timer("TimeKeeper "+_maxColor.toString()+" "+" ApproxTime: " +approxTime + " Soft:"+soft+" Hard:"+hard);
+        _timer.schedule(new TreeSearchEngine_YBWC_v1.TimeKeeper(1), (long) (approxTime * soft));
+        _timer.schedule(new TreeSearchEngine_YBWC_v1.TimeKeeper(2), (long) (approxTime * hard));
+    }
+
+    /**
+     * Resets the counter used for the TreeSearchEngineWatcher
+     */
+    private void resetCounters() {
+        // -- reset counters --
+        _boardsChecked.reset();
+        _nodesChecked.reset();
+        _cacheHits.reset();
+        _cacheMisses.reset();
+        _evalCacheHits.reset();
+        _evalCacheMisses.reset();
+        _boardsNonQuiet.reset();
+        _curSearchDepth = 0;
+        _curExtraSearchDepth = 0;
+    }
+
+    /**
+     * return the number of possible moves for the current move
+     * @return int
+     */
+    public int numberOfPossibleMoves() {
+        return _movesSize;
+    }
+
+    /**
+     * Sets the current game.
+     * @param game
+     */
+    public void setGame(Game game) {
+        if (game != _game) {
+            shutdownPool();
+            _moveOrdering = null; // -- killers and history of another game (maybe another board dimension) --
+        }
+        this._game = game;
+    }
+
+    /**
+     * Stops the threads of the search. A new pool is created with the next move.
+     */
+    private void shutdownPool() {
+        if (_pool != null) {
+            _pool.shutdownNow();
+            _pool = null;
+        }
+    }
+
+    /**
+     * Returns the Worker of the current thread.<br/>
+     * A Worker of an earlier game with a different board dimension is replaced.
+     * @return the Worker of the current thread
+     */
+    private Worker getWorker() {
+        Worker worker = _workers.get();
+        if (worker._dim != _rootBoard.getDim()) {
+            worker = new Worker(new TreeSearchBoardAnalyserImpl_v15(_rootBoard, _maxColor), _rootBoard.getDim());
+            _workers.set(worker);
+        }
+        return worker;
+    }
+
+    /**
+     * returns the current move in calculation
+     * @return Move
+     */
+    public Move getCurMove() {
+        return _curMove;
+    }
+
+    /**
+     * return the current move number
+     * @return int
+     */
+    public int getCurMoveNumber() {
+        return _curMoveNumber;
+    }
+
+    /**
+     * return the current best move
+     * @return Move
+     */
+    public Move getMaxValueMove() {
+        return _currentBestMove;
+    }
+
+    /**
+     * returns the current depth in the search tree (without non-quite extra depth)
+     * @return int
+     */
+    public int getCurSearchDepth() {
+        return _curSearchDepth;
+    }
+
+    /**
+     * returns the current depth in the search tree (with non-quite extra depth)
+     * @return int
+     */
+    public int getCurExtraSearchDepth() {
+        return _curExtraSearchDepth;
+    }
+
+    /**
+     * return the number of nodes checked so far
+     * @return int
+     */
+    public int getNodesChecked() {
+        return _nodesChecked.intValue();
+    }
+
+    /**
+     * returns the number of nodes per second for the current calculation - of all threads
+     * @return int
+     */
+    public int getCurNodesPerSecond() {
+        //noinspection NumericCastThatLosesPrecision,MagicNumber
+        return (int) (1000.0F * (_nodesChecked.floatValue() / ((float) (System.currentTimeMillis() - _startTime))));
+    }
+
+    /**
+     * returns the used time for the current move
+     * @return long
+     */
+    public long getCurUsedTime() {
+        return System.currentTimeMillis() - _startTime;
+    }
+
+    /**
+     * return the number of boards analysed so far
+     * @return int
+     */
+    public int getBoardsChecked() {
+        return _boardsChecked.intValue();
+    }
+
+    /**
+     * return the number of non-quiet boards found so far
+     * @return int
+     */
+    public int getBoardsNonQuiet() {
+        return _boardsNonQuiet.intValue();
+    }
+
+    /**
+     * return the number of boards whose evaluation stopped early so far - this engine has no lazy evaluation
+     * @return int
+     */
+    public int getBoardsLazy() {
+        return 0;
+    }
+
+    /**
+     * return the number of cache hits so far
+     * @return int
+     */
+    public int getCacheHits() {
+        return _cacheHits.intValue();
+    }
+
+    /**
+     * return the nubmer of cache misses so far
+     * @return int
+     */
+    public int getCacheMisses() {
+        return _cacheMisses.intValue();
+    }
+
+    /**
+     * return the number of evaluation cache hits so far
+     * @return int
+     */
+    public int getEvalCacheHits() {
+        return _evalCacheHits.intValue();
+    }
+
+    /**
+     * return the number of evaluation cache misses so far
+     * @return int
+     */
+    public int getEvalCacheMisses() {
+        return _evalCacheMisses.intValue();
+    }
+
+    /**
+     * return the current cache size
+     * @return int
+     */
+    public int getCurCacheSize() {
+        if (!_cacheEnabled) {
+            return 0;
+        }
+        return _boardCache.getUsedEntries();
+    }
+
+    /**
+     * return the current number of boards in cache
+     * @return int
+     */
+    public int getCurCachedBoards() {
+        if (!_cacheEnabled) {
+            return 0;
+        }
+        return _boardCache.getCapacity();
+    }
+
+    /**
+     * returns the result proven by the endgame search for the current move - this engine has no endgame search
+     * @return null
+     */
+    public String getProvenResult() {
+        return null;
+    }
+
+    /**
+     * The BoardAnalyser and the cache entry of a thread.<br/>
+     * A thread which waits for a task may run other tasks in between. These only use the worker between
+     * two calls of the waiting task so the worker can be shared by all tasks of a thread.
+     */
+    private static final class Worker {
+        private final TreeSearchBoardAnalyser  _analyser;
+        private final TranspositionTable.Entry _cacheEntry = new TranspositionTable.Entry();
+        private final int                      _dim;
+
+        private Worker(TreeSearchBoardAnalyser analyser, int dim) {
+            _analyser = analyser;
+            _dim = dim;
+        }
+    }
+
+    /**
+     * A node where brothers are searched in parallel.<br/>
+     * A cut off at a split point aborts all tasks below it.
+     */
+    private static final class SplitPoint {
+        private final    SplitPoint _parent;
+        private volatile boolean    _cutoff = false;
+
+        private SplitPoint(SplitPoint parent) {
+            _parent = parent;
+        }
+
+        private boolean isCutoff() {
+            for (SplitPoint sp = this; sp != null; sp = sp._parent) {
+                if (sp._cutoff) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The state of the search of one task: its board, its move buffers and the split point it belongs to.
+     */
+    private final class Search {
+        private final TreeSearchBoard _board;
+        private final SplitPoint      _splitPoint;
+        private final Worker          _worker;
+        private final int             _rootMoveNumber;
+        private       int[][]         _moveBuffers = new int[0][];
+
+        private Search(TreeSearchBoard board, SplitPoint splitPoint) {
+            _board = board;
+            _splitPoint = splitPoint;
+            _worker = getWorker();
+            _rootMoveNumber = board.getLastMoveNumber();
+        }
+
+        /**
+         * @return the move buffer for the current ply of the board
+         */
+        private int[] getMoveBuffer() {
+            final int ply = _board.getLastMoveNumber() - _rootMoveNumber;
+            if (ply >= _moveBuffers.length) {
+                _moveBuffers = Arrays.copyOf(_moveBuffers, ply + 1);
+            }
+            if (_moveBuffers[ply] == null) {
+                _moveBuffers[ply] = new int[_board.getDim() * _board.getDim()];
+            }
+            return _moveBuffers[ply];
+        }
+
+        /**
+         * @return true if a brother had a cut off, the game has been stopped or the hard time limit has been reached
+         */
+        private boolean isAborted() {
+            return isSearchStopped() || _splitPoint.isCutoff();
+        }
+    }
+
+    /**
+     * Searches a younger brother of a split point on its own copy of the board.
+     */
+    private final class SearchTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final TreeSearchBoard _board;
+        private final SplitPoint      _splitPoint;
+        private final int             _alpha;
+        private final int             _beta;
+        private final int             _d;
+        private final int             _extra;
+        private final boolean         _parentIsMaxNode;
+
+        /**
+         * The board is copied by the thread of the parent node as copying writes to the parent board.
+         */
+        private SearchTask(TreeSearchBoard parentBoard, int move, SplitPoint splitPoint,
+                           int alpha, int beta, int d, int extra, boolean parentIsMaxNode) {
+            _board = TreeSearchBoardFactory.createBoard(parentBoard);
+            makeMove(_board, move);
+            _splitPoint = splitPoint;
+            _alpha = alpha;
+            _beta = beta;
+            _d = d;
+            _extra = extra;
+            _parentIsMaxNode = parentIsMaxNode;
+        }
+
+        @Override
+        protected Integer compute() {
+            final Search s = new Search(_board, _splitPoint);
+            if (s.isAborted()) {
+                return _parentIsMaxNode ? -MAX_VALUE : MAX_VALUE;
+            }
+            if (!_USE_PV) {
+                return AlphaBetaWithMemory(s, _alpha, _beta, _d, _extra);
+            }
+            return _parentIsMaxNode
+                    ? maxChildPV(s, _alpha, _beta, _d + 1, _extra)
+                    : minChildPV(s, _alpha, _beta, _d + 1, _extra);
+        }
+    }
+
+    /**
+     * Searches all root moves to the given depth and returns the best move.<br/>
+     * The first move is searched with a full window, all other moves in parallel.
+     */
+    private final class RootTask extends RecursiveTask<Move> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Move>      _moves;
+        private final TreeSearchBoard _board;
+        private final int             _d;
+
+        private RootTask(List<Move> moves, TreeSearchBoard board, int d) {
+            _moves = moves;
+            _board = board;
+            _d = d;
+        }
+
+        @Override
+        protected Move compute() {
+            final SplitPoint rootSplitPoint = new SplitPoint(null);
+
+            // the eldest brother
+            final Move first = _moves.get(0);
+            _curMoveNumber = 1;
+            _curMove = first;
+            final TreeSearchBoard board = TreeSearchBoardFactory.createBoard(_board);
+            makeMove(board, first);
+            first.setValue(AlphaBetaWithMemory(new Search(board, rootSplitPoint), -MAX_VALUE, MAX_VALUE, _d, 0));
+            Move best = first;
+
+            // the younger brothers in parallel
+            final SearchTask[] tasks = new SearchTask[_moves.size() - 1];
+            for (int i = 0; i < tasks.length; i++) {
+                //noinspection ObjectAllocationInLoop
+                tasks[i] = new SearchTask(_board, PackedMove.create(_moves.get(i + 1), _board.getDim()),
+                        rootSplitPoint, best.getValue(), MAX_VALUE, _d, 0, true);
+            }
+            for (int i = tasks.length - 1; i >= 0; i--) {
+                tasks[i].fork();
+            }
+            for (int i = 0; i < tasks.length; i++) {
+                final Move m = _moves.get(i + 1);
+                m.setValue(tasks[i].join());
+                _curMoveNumber = i + 2;
+                _curMove = m;
+                if (m.getValue() > best.getValue()) {
+                    best = m;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * This comparator is used to sort move according their current value.
+     */
+    private static class MoveComparator implements Comparator<Move> {
+        public int compare(Move o1, Move o2) {
+            final int o1Value = o1.getValue();
+            final int o2Value = o2.getValue();
+            if               (o1Value < o2Value) {
+                return 1;
+            } else          if (o1Value > o2Value) {
+                return -1;
+            } else {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * This TimeKeeper class is used to implement a Timer that calls this Timekeeper when a time limit has been
+     * reached. This TimeKeeper then sets the time limit reached flags.
+     */
+    private class TimeKeeper extends TimerTask {
+        private final int _mode;
+        private TimeKeeper(int mode) {
+            _mode=mode;
+        }
+        /**
+         * The action to be performed by this timer task.
+         */
+        @Override
+        public void run() {
+            switch(_mode) {
+                case 1:
+                    _softTimeLimitReached=true;
+                    break;
+                case 2:
+                    _hardTimeLimitReached=true;
+                    break;
+                default:
+                    throw new RuntimeException("TimeKeeper mode not set.");
+            }
+        }
+    }
+
+}
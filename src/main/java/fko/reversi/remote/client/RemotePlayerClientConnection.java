@@ -201,8 +201,8 @@ public class RemotePlayerClientConnection extends AbstractReversiRemoteConnectio
                 }
 
                 log("Send move from local player to server: "
-                        + getCurrentGame().getCurBoard().getLastMove().toString());
-                send(RemoteProtocol.getSendMoveCmd(getCurrentGame().getCurBoard().getLastMove()));
+                        + getCurrentGame().getBoardSnapshot().getLastMove().toString());
+                send(RemoteProtocol.getSendMoveCmd(getCurrentGame().getBoardSnapshot().getLastMove()));
                 finishedGameUpdateProcess(GameAction.LOCAL_MOVE);
 
 
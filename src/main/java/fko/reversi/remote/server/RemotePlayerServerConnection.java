@@ -331,8 +331,8 @@ public class RemotePlayerServerConnection extends AbstractReversiRemoteConnectio
      */
     private void sendLocalMove() {
 
-        log("Send move from local player to client: " + getCurrentGame().getCurBoard().getLastMove().toString());
-        send(RemoteProtocol.getSendMoveCmd(getCurrentGame().getCurBoard().getLastMove()));
+        log("Send move from local player to client: " + getCurrentGame().getBoardSnapshot().getLastMove().toString());
+        send(RemoteProtocol.getSendMoveCmd(getCurrentGame().getBoardSnapshot().getLastMove()));
 
         while (continueConversation()) {
 
@@ -103,7 +103,7 @@ public class BoardPanel extends JPanel implements MouseListener {
      * draw a board to the ui
      */
     public synchronized void drawBoard(Game game) {
-        this._curBoard = game.getCurBoard();
+        this._curBoard = game.getBoardSnapshot();
         this.repaint();
     }
 
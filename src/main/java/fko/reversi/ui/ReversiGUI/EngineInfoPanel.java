@@ -347,7 +347,10 @@ public class EngineInfoPanel extends JPanel {
             }
 
             // -- current search depth --
-            curDepth.setText(engine.getCurSearchDepth()+"/"+engine.getCurExtraSearchDepth());
+            // -- and the proven result of the endgame search --
+            final String provenResult = engine.getProvenResult();
+            curDepth.setText(engine.getCurSearchDepth()+"/"+engine.getCurExtraSearchDepth()
+                    + (provenResult == null ? "" : " " + provenResult));
 
             // -- current number of checked nodes --
             curNodes.setText(numberFormat.format(engine.getNodesChecked()) + " N");
@@ -358,14 +361,16 @@ public class EngineInfoPanel extends JPanel {
             // -- current time used for the move --
             engineShowCurTime(engine.getCurUsedTime());
 
-            // -- show the number of boards analysed so far --
-            this.curBoards.setText(numberFormat.format(engine.getBoardsChecked()) + " B");
+            // -- show the number of boards analysed so far and how many of them were evaluated lazy --
+            this.curBoards.setText(numberFormat.format(engine.getBoardsChecked()) + " B / "
+                    + numberFormat.format(engine.getBoardsLazy()) + " L");
 
             // -- show the number of non-quiet boards found so far --
             this.curNonQuiet.setText(numberFormat.format(engine.getBoardsNonQuiet()) + " NB");
 
             // -- show the number of cache hits ans misses so far --
-            engineShowCurCacheStats(engine.getCacheHits(), engine.getCacheMisses());
+            engineShowCurCacheStats(engine.getCacheHits(), engine.getCacheMisses(),
+                    engine.getEvalCacheHits(), engine.getEvalCacheMisses());
 
             // -- show the current capacity of the board cache --
             curCacheSize.setText(numberFormat.format(engine.getCurCacheSize()));
@@ -446,10 +451,15 @@ public class EngineInfoPanel extends JPanel {
      * shows the number of current boards evaluated so far
      * @param cachehits
      */
-    private void engineShowCurCacheStats(int cachehits, int cachemisses) {
+    private void engineShowCurCacheStats(int cachehits, int cachemisses, int evalhits, int evalmisses) {
         int percent = (int) (100.0F * ((float) cachehits / (float) (cachehits + cachemisses)));
         this.curCacheMisses.setText(numberFormat.format(cachemisses));
-        this.curCacheHits.setText(numberFormat.format(cachehits) + " (" + percent + "%)");
+        if (evalhits + evalmisses > 0) {
+            int evalPercent = (int) (100.0F * ((float) evalhits / (float) (evalhits + evalmisses)));
+            this.curCacheHits.setText(numberFormat.format(cachehits) + " (" + percent + "%) Eval " + evalPercent + "%");
+        } else {
+            this.curCacheHits.setText(numberFormat.format(cachehits) + " (" + percent + "%)");
+        }
     }
 
     /**
@@ -28,6 +28,7 @@
 package fko.reversi.ui.ReversiGUI;
 
 import fko.reversi.Reversi;
+import fko.reversi.game.Board;
 import fko.reversi.game.ReversiColor;
 
 import javax.swing.*;
@@ -687,6 +688,9 @@ public class MainMenu extends JMenuBar {
                     if (dimension < 4) { // -- level must be > 3 --
                         question = "The board dimension must at least 4";
                         dimension = 0;
+                    } else if (dimension > Board.MAX_DIM) { // -- moves of the search address at most 128x128 --
+                        question = "The board dimension must not be greater than " + Board.MAX_DIM;
+                        dimension = 0;
                     }
                 } while (userInput != null && dimension == 0);
                 // -- set level if not cancel has been pressed --
@@ -83,7 +83,7 @@ public class MoveList extends JScrollPane {
     protected void drawMove(Game game) {
 
         // -- reference the current board --
-        Board board = game.getCurBoard();
+        Board board = game.getBoardSnapshot();
 
         // -- reference to the move list of the board --
         List<Move> moves = board.getMoveHistory();
@@ -388,8 +388,8 @@ public final class ReversiGUI implements UserInterface {
             infoPanel.printInfoln("Game over!");
             if (game.getGameOverCause() == Game.GAMEOVER_NO_MORE_MOVES) {
                 infoPanel.printInfoln(
-                    "Black: " + game.getCurBoard().getPiecesBlack() + " (" + game.getBlackClock().getFormattedTime() + ")\n" +
-                    "White: " + game.getCurBoard().getPiecesWhite() + " (" + game.getWhiteClock().getFormattedTime() + ")" 
+                    "Black: " + game.getBoardSnapshot().getPiecesBlack() + " (" + game.getBlackClock().getFormattedTime() + ")\n" +
+                    "White: " + game.getBoardSnapshot().getPiecesWhite() + " (" + game.getWhiteClock().getFormattedTime() + ")" 
                 );
             } else if (game.getGameOverCause() == Game.GAMEOVER_TIME_IS_UP_FOR_ONE_PLAYER) {
                 infoPanel.printInfoln("Out of time!");
@@ -142,10 +142,10 @@ public class TextUI implements UserInterface, Runnable {
 
             case Game.GAME_RUNNING:
                 // --show last move an cuurent board --
-                if (game.getCurBoard().getLastMove() != null) {
-                    _println(game.getCurBoard().getLastMove().toString());
+                if (game.getBoardSnapshot().getLastMove() != null) {
+                    _println(game.getBoardSnapshot().getLastMove().toString());
                 }
-                _drawBoard(game.getCurBoard());
+                _drawBoard(game.getBoardSnapshot());
                 break;
 
             case Game.GAME_OVER: